@@ -0,0 +1,105 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import freemarker.template.TemplateException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares freemarker's default object wrapper with the string map wrapper, see {@link DataModelWrapping}.
+ *
+ * <p>{@code firstRender} sets up an engine and renders once in a fresh JVM, which is what an application pays at
+ * startup, including the class introspection of the default wrapper. {@code render} measures steady state
+ * rendering; run it with {@code -prof gc} to compare the allocation rate, e.g.
+ * {@code java -jar target/benchmarks.jar DataModelWrappingBenchmark -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataModelWrappingBenchmark {
+
+    private static final String CONFIG_PATH = "config.yaml";
+
+    @Param({"DEFAULT", "STRING_MAP"})
+    public DataModelWrapping wrapping;
+
+    @Param({"100", "1000"})
+    public int templateLines;
+
+    private String source;
+    private TemplateConfigBundleConfiguration configuration;
+    private Object dataModel;
+
+    /**
+     * Doesn't touch freemarker, so {@code firstRender} still sees a cold engine.
+     */
+    @Setup
+    public void setUp() {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < templateLines; i++) {
+            lines.append("key").append(i).append(": ${app.VAR_").append(i % 100).append("!'default'}\n");
+        }
+        source = lines.toString();
+        Map<String, String> variables = new HashMap<>();
+        for (int v = 0; v < 100; v++) {
+            variables.put("VAR_" + v, "value-" + v);
+        }
+        configuration = new TemplateConfigBundleConfiguration(Providers.fromMap("app", variables))
+            .dataModelWrapping(wrapping);
+        dataModel = configuration.dataModelFactory().get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    @Fork(20)
+    public byte[] firstRender() throws IOException, TemplateException {
+        return render(new FreemarkerEngine(configuration).getTemplate(CONFIG_PATH, source));
+    }
+
+    @Benchmark
+    public byte[] render(Compiled compiled) throws IOException, TemplateException {
+        return render(compiled.template);
+    }
+
+    private byte[] render(CompiledTemplate template) throws IOException, TemplateException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        template.render(dataModel, writer);
+        writer.flush();
+        return bytes.toByteArray();
+    }
+
+    @State(Scope.Benchmark)
+    public static class Compiled {
+
+        private CompiledTemplate template;
+
+        @Setup
+        public void setUp(DataModelWrappingBenchmark benchmark) throws IOException {
+            template = benchmark.configuration.engine().getTemplate(CONFIG_PATH, benchmark.source);
+        }
+    }
+}
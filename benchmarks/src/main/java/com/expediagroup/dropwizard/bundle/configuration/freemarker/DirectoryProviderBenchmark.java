@@ -0,0 +1,97 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the start cost of a directory with one file per variable, read eagerly into a map like a hand-written
+ * provider would, against {@link Providers#fromDirectory(String, Path)}, each followed by the handful of lookups a
+ * typical template does. {@code cachedDirectory} shows the cost of later renders with cached values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DirectoryProviderBenchmark {
+
+    @Param({"1000", "5000"})
+    public int fileCount;
+
+    private Path directory;
+    private String[] lookedUpKeys;
+    private TemplateConfigVariablesProvider cachedProvider;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("secrets");
+        for (int i = 0; i < fileCount; i++) {
+            Files.write(directory.resolve("SECRET_" + i), ("secret-value-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        lookedUpKeys = new String[] {"SECRET_0", "SECRET_" + (fileCount / 2), "SECRET_" + (fileCount - 1), "MISSING"};
+        cachedProvider = Providers.fromDirectory("secrets", directory, true);
+        for (String key : lookedUpKeys) {
+            cachedProvider.getVariables().get(key);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void eagerDirectory(Blackhole blackhole) throws IOException {
+        Map<String, String> variables = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                variables.put(file.getFileName().toString(),
+                    new String(Files.readAllBytes(file), StandardCharsets.UTF_8).trim());
+            }
+        }
+        lookUp(Providers.fromMap("secrets", variables).getVariables(), blackhole);
+    }
+
+    @Benchmark
+    public void lazyDirectory(Blackhole blackhole) {
+        lookUp(Providers.fromDirectory("secrets", directory).getVariables(), blackhole);
+    }
+
+    @Benchmark
+    public void cachedDirectory(Blackhole blackhole) {
+        lookUp(cachedProvider.getVariables(), blackhole);
+    }
+
+    private void lookUp(Map<String, String> variables, Blackhole blackhole) {
+        for (String key : lookedUpKeys) {
+            blackhole.consume(variables.get(key));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Compares building the data model of providers stacked in one namespace with the copying merge the bundle used to
+ * do against the layered merge, followed by the handful of lookups a typical template does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProviderMergeBenchmark {
+
+    private static final String NAMESPACE = "app";
+
+    @Param({"10", "25", "50"})
+    public int providerCount;
+
+    @Param({"200"})
+    public int variablesPerProvider;
+
+    private List<TemplateConfigVariablesProvider> providers;
+    private TemplateConfigBundleConfiguration configuration;
+    private String[] lookedUpKeys;
+
+    @Setup
+    public void setUp() {
+        providers = new ArrayList<>();
+        configuration = new TemplateConfigBundleConfiguration();
+        for (int p = 0; p < providerCount; p++) {
+            Map<String, String> variables = new HashMap<>();
+            for (int v = 0; v < variablesPerProvider; v++) {
+                // half of the keys are shared by all providers, half are unique to each
+                String key = v % 2 == 0 ? "shared" + v : "provider" + p + "_" + v;
+                variables.put(key, "value" + p);
+            }
+            TemplateConfigVariablesProvider provider = Providers.fromMap(NAMESPACE, variables);
+            providers.add(provider);
+            configuration.addCustomProvider(provider);
+        }
+        lookedUpKeys = new String[] {"shared0", "shared10", "provider0_1", "missing"};
+    }
+
+    @Benchmark
+    public void copyingMerge(Blackhole blackhole) {
+        TemplateConfigVariablesProvider merged = providers.get(0);
+        for (int i = 1; i < providers.size(); i++) {
+            Map<String, String> mergedVariables = new HashMap<>();
+            mergedVariables.putAll(merged.getVariables());
+            mergedVariables.putAll(providers.get(i).getVariables());
+            merged = Providers.fromMap(NAMESPACE, unmodifiableMap(mergedVariables));
+        }
+        lookUp(merged.getVariables(), blackhole);
+    }
+
+    @Benchmark
+    public void layeredMerge(Blackhole blackhole) {
+        TemplateConfigVariablesProvider merged = providers.get(0);
+        for (int i = 1; i < providers.size(); i++) {
+            merged = Providers.mergeProviders(merged, providers.get(i));
+        }
+        lookUp(merged.getVariables(), blackhole);
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public void defaultDataModelFactory(Blackhole blackhole) {
+        Map<String, Map<String, String>> dataModel =
+            (Map<String, Map<String, String>>) configuration.dataModelFactory().get();
+        lookUp(dataModel.get(NAMESPACE), blackhole);
+    }
+
+    private void lookUp(Map<String, String> variables, Blackhole blackhole) {
+        for (String key : lookedUpKeys) {
+            blackhole.consume(variables.get(key));
+        }
+    }
+}
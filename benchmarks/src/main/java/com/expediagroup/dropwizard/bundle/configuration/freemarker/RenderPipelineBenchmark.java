@@ -0,0 +1,164 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import io.dropwizard.configuration.ConfigurationSourceProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link TemplateConfigurationSourceProvider#open(String)} end to end and each of its phases separately.
+ *
+ * <p>Run with {@code -prof gc} to also report the allocation rate, e.g.
+ * {@code java -jar target/benchmarks.jar RenderPipelineBenchmark -prof gc}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderPipelineBenchmark {
+
+    private static final String CONFIG_PATH = "config.yaml";
+
+    /**
+     * Number of interpolated lines in the main template
+     */
+    @Param({"10", "1000"})
+    public int templateLines;
+
+    /**
+     * Length of the chain of includes, each include adding as many lines as the main template
+     */
+    @Param({"0", "3"})
+    public int includeDepth;
+
+    @Param({"2", "20"})
+    public int providerCount;
+
+    @Param({"10", "1000"})
+    public int variablesPerProvider;
+
+    private Path directory;
+    private String source;
+    private TemplateConfigBundleConfiguration configuration;
+    private TemplateConfigurationSourceProvider provider;
+    private FreemarkerEngine engine;
+    private CompiledTemplate compiledTemplate;
+    private Object dataModel;
+    private byte[] rendered;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, TemplateException {
+        directory = Files.createTempDirectory("render-pipeline-benchmark");
+        for (int depth = 1; depth <= includeDepth; depth++) {
+            String include = lines(depth) + (depth < includeDepth ? "<#include \"include" + (depth + 1) + ".yaml\">\n" : "");
+            Files.write(directory.resolve("include" + depth + ".yaml"), include.getBytes(StandardCharsets.UTF_8));
+        }
+        source = lines(0) + (includeDepth > 0 ? "<#include \"include1.yaml\">\n" : "");
+
+        configuration = new TemplateConfigBundleConfiguration()
+            .fileIncludePath(directory.toString())
+            .outputPath(directory.resolve("rendered.yaml").toString());
+        for (int p = 0; p < providerCount; p++) {
+            Map<String, String> variables = new HashMap<>();
+            for (int v = 0; v < variablesPerProvider; v++) {
+                variables.put("VAR_" + v, "value-" + p + "-" + v);
+            }
+            configuration.addCustomProvider(Providers.fromMap("ns" + p, variables));
+        }
+        ConfigurationSourceProvider parentProvider =
+            path -> new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8));
+        provider = new TemplateConfigurationSourceProvider(parentProvider, configuration);
+
+        engine = configuration.engine();
+        compiledTemplate = engine.getTemplate(CONFIG_PATH, source);
+        dataModel = configuration.dataModelFactory().get();
+        rendered = render();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public byte[] open() throws IOException {
+        try (InputStream config = provider.open(CONFIG_PATH)) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = config.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public FreemarkerEngine engineSetup() {
+        return new FreemarkerEngine(configuration);
+    }
+
+    @Benchmark
+    public Template templateParse() throws IOException {
+        return new Template("config", source, engine.freemarkerConfiguration());
+    }
+
+    @Benchmark
+    public Object dataModelBuild() {
+        return configuration.dataModelFactory().get();
+    }
+
+    @Benchmark
+    public byte[] render() throws IOException, TemplateException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+        compiledTemplate.render(dataModel, writer);
+        writer.flush();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public void writeConfigFile() {
+        provider.writeConfigFile(rendered);
+    }
+
+    private String lines(int prefix) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < templateLines; i++) {
+            lines.append("key").append(prefix).append('_').append(i).append(": ${ns").append(i % providerCount)
+                .append(".VAR_").append(i % variablesPerProvider).append("!'default'}\n");
+        }
+        return lines.toString();
+    }
+}
@@ -0,0 +1,76 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares loading a large generated properties file with {@link java.util.Properties} against memory-mapping and
+ * indexing it, each followed by the handful of lookups a typical template does. Add {@code -prof gc} to compare the
+ * allocations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VariablesFileBenchmark {
+
+    @Param({"10000", "100000"})
+    public int variableCount;
+
+    private Path propertiesFile;
+    private String[] lookedUpKeys;
+
+    @Setup
+    public void setUp() throws IOException {
+        propertiesFile = Files.createTempFile("variables", ".properties");
+        try (Writer writer = Files.newBufferedWriter(propertiesFile, StandardCharsets.ISO_8859_1)) {
+            for (int i = 0; i < variableCount; i++) {
+                writer.write("service.instance" + i + ".url=https://instance" + i + ".example.com:8443/api\n");
+            }
+        }
+        lookedUpKeys = new String[] {"service.instance0.url", "service.instance" + (variableCount / 2) + ".url",
+            "service.instance" + (variableCount - 1) + ".url", "missing"};
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(propertiesFile);
+    }
+
+    @Benchmark
+    public void loadedProperties(Blackhole blackhole) throws IOException {
+        lookUp(Providers.fromProperties("app", propertiesFile.toUri().toURL()).getVariables(), blackhole);
+    }
+
+    @Benchmark
+    public void mappedProperties(Blackhole blackhole) {
+        lookUp(Providers.lazyFromPropertiesFile("app", propertiesFile).getVariables(), blackhole);
+    }
+
+    private void lookUp(Map<String, String> variables, Blackhole blackhole) {
+        for (String key : lookedUpKeys) {
+            blackhole.consume(variables.get(key));
+        }
+    }
+}
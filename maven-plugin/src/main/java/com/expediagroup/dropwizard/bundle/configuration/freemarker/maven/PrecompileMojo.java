@@ -0,0 +1,122 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.expediagroup.dropwizard.bundle.configuration.freemarker.TemplateConfigBundleConfiguration;
+import com.expediagroup.dropwizard.bundle.configuration.freemarker.TemplatePrecompiler;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Validates config templates and the snippets in the {@code resourceIncludePath}, and writes the precompiled
+ * templates to the class output directory, so they're packaged into the jar. Fails the build if any template has a
+ * syntax error or includes a snippet that doesn't exist.
+ *
+ * @see TemplatePrecompiler
+ */
+@Mojo(name = "precompile", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, threadSafe = true)
+public class PrecompileMojo extends AbstractMojo {
+
+    /**
+     * Main config templates to validate and precompile, e.g. {@code config.yaml}
+     */
+    @Parameter
+    private List<File> templates = new ArrayList<>();
+
+    /**
+     * Directory the resources of the application are packaged from
+     */
+    @Parameter(defaultValue = "${project.basedir}/src/main/resources", required = true)
+    private File resourcesDirectory;
+
+    /**
+     * The {@code resourceIncludePath} of the bundle configuration, relative to the {@code resourcesDirectory}.
+     * Every file in it is validated as a snippet.
+     */
+    @Parameter
+    private String resourceIncludePath;
+
+    /**
+     * Charset of the templates, the {@code charset} of the bundle configuration
+     */
+    @Parameter(defaultValue = "${project.build.sourceEncoding}")
+    private String encoding;
+
+    /**
+     * Directory the precompiled templates are written to
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File outputDirectory;
+
+    /**
+     * Skip the precompilation
+     */
+    @Parameter(property = "templateConfig.skip", defaultValue = "false")
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Skipping config template precompilation");
+            return;
+        }
+        Charset charset = encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+        TemplateConfigBundleConfiguration configuration = new TemplateConfigBundleConfiguration().charset(charset);
+        Path includeDirectory = null;
+        if (resourceIncludePath != null) {
+            includeDirectory = resourcesDirectory.toPath().resolve(resourceIncludePath.replaceFirst("^/+", ""));
+            if (!Files.isDirectory(includeDirectory)) {
+                throw new MojoExecutionException("Include directory " + includeDirectory + " does not exist.");
+            }
+            // snippets are included from the sources they are packaged from
+            configuration.fileIncludePath(includeDirectory.toString());
+        }
+        TemplatePrecompiler precompiler = new TemplatePrecompiler(configuration);
+        try {
+            if (includeDirectory != null) {
+                for (String snippet : snippetNames(includeDirectory)) {
+                    precompiler.addInclude(snippet);
+                }
+            }
+            for (File template : templates) {
+                precompiler.addTemplate(template.getPath(),
+                    new String(Files.readAllBytes(template.toPath()), charset));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not read config templates.", e);
+        }
+        if (!precompiler.errors().isEmpty()) {
+            precompiler.errors().forEach(getLog()::error);
+            throw new MojoFailureException(precompiler.errors().size() + " config template errors, see above.");
+        }
+        try {
+            Path artifact = precompiler.writeTo(outputDirectory.toPath());
+            getLog().info("Precompiled " + precompiler.templateCount() + " config templates, "
+                + precompiler.substitutionPlanCount() + " of them without freemarker, to " + artifact);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Could not write precompiled config templates.", e);
+        }
+    }
+
+    private static List<String> snippetNames(Path includeDirectory) throws IOException {
+        try (Stream<Path> files = Files.walk(includeDirectory)) {
+            return files.filter(Files::isRegularFile)
+                .map(file -> includeDirectory.relativize(file).toString().replace(File.separatorChar, '/'))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+}
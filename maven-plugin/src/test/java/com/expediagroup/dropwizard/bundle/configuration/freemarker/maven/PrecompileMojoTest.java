@@ -0,0 +1,75 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker.maven;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import com.expediagroup.dropwizard.bundle.configuration.freemarker.TemplatePrecompiler;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Smoke tests for PrecompileMojo, configured the way Maven injects its parameters
+ */
+public class PrecompileMojoTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void precompilesTemplatesIntoTheOutputDirectory() throws Exception {
+        Path resources = folder.newFolder("resources").toPath();
+        write(resources.resolve("config-snippets/database.yaml"), "database: ${env.DB!\"postgres\"}\n");
+        Path template = write(resources.resolve("config.yaml"),
+            "server:\n  port: ${env.PORT!8080}\n<#include \"database.yaml\">\n");
+        Path output = folder.newFolder("classes").toPath();
+
+        mojo(resources, template, output).execute();
+
+        assertTrue(Files.isRegularFile(output.resolve(TemplatePrecompiler.RESOURCE)));
+    }
+
+    @Test
+    public void invalidTemplatesFailTheBuild() throws Exception {
+        Path resources = folder.newFolder("resources").toPath();
+        write(resources.resolve("config-snippets/database.yaml"), "database: postgres\n");
+        Path template = write(resources.resolve("config.yaml"), "port: ${env.PORT\n<#include \"missing.yaml\">\n");
+        Path output = folder.newFolder("classes").toPath();
+
+        try {
+            mojo(resources, template, output).execute();
+            throw new AssertionError("Expected the build to fail.");
+        } catch (MojoFailureException e) {
+            assertFalse(Files.exists(output.resolve(TemplatePrecompiler.RESOURCE)));
+        }
+    }
+
+    private static PrecompileMojo mojo(Path resources, Path template, Path output) throws ReflectiveOperationException {
+        PrecompileMojo mojo = new PrecompileMojo();
+        set(mojo, "templates", Collections.singletonList(template.toFile()));
+        set(mojo, "resourcesDirectory", resources.toFile());
+        set(mojo, "resourceIncludePath", "config-snippets");
+        set(mojo, "encoding", "UTF-8");
+        set(mojo, "outputDirectory", output.toFile());
+        return mojo;
+    }
+
+    private static void set(PrecompileMojo mojo, String name, Object value) throws ReflectiveOperationException {
+        Field field = PrecompileMojo.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+    private static Path write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
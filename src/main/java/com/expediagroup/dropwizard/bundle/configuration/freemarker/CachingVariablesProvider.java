@@ -0,0 +1,205 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TemplateConfigVariablesProvider} caching the variables of another provider for a fixed time.
+ *
+ * <p>Concurrent callers of an expired or missing entry wait for a single load of the underlying provider. Variables
+ * requested with {@link #getVariables(Set)} are cached per set of requested keys. Expired entries are evicted whenever
+ * a new one is loaded, and at most {@value #MAX_KEY_SETS} sets of requested keys are kept, evicting the ones loaded
+ * first, so templates that change over time don't pile up entries. With refresh-ahead, an entry older than the
+ * refresh time is still served, while it's reloaded in the background. A failing background refresh keeps the old
+ * variables until they expire. Create instances with {@link Providers#cached(TemplateConfigVariablesProvider,
+ * Duration)} or {@link Providers#refreshingAhead(TemplateConfigVariablesProvider, Duration, Duration)}.
+ */
+public final class CachingVariablesProvider implements TemplateConfigVariablesProvider {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingVariablesProvider.class);
+
+    private static final Object ALL_VARIABLES = new Object();
+
+    static final int MAX_KEY_SETS = 32;
+
+    private final TemplateConfigVariablesProvider provider;
+    private final long ttlNanos;
+    private final long refreshAfterNanos;
+    private final Executor refreshExecutor;
+    private final LongSupplier ticker;
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    CachingVariablesProvider(TemplateConfigVariablesProvider provider, Duration ttl, Duration refreshAfter,
+        Executor refreshExecutor, LongSupplier ticker) {
+        if (provider == null) {
+            throw new NullPointerException("Provided provider must not be null.");
+        }
+        if (ttl == null) {
+            throw new NullPointerException("Provided time to live must not be null.");
+        }
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive.");
+        }
+        if (refreshAfter != null && (refreshAfter.isNegative() || refreshAfter.compareTo(ttl) >= 0)) {
+            throw new IllegalArgumentException(
+                "Refresh time must not be negative and must be less than the time to live.");
+        }
+        this.provider = provider;
+        this.ttlNanos = ttl.toNanos();
+        this.refreshAfterNanos = refreshAfter == null ? Long.MAX_VALUE : refreshAfter.toNanos();
+        this.refreshExecutor = refreshExecutor;
+        this.ticker = ticker;
+    }
+
+    static CachingVariablesProvider create(TemplateConfigVariablesProvider provider, Duration ttl,
+        Duration refreshAfter) {
+        return new CachingVariablesProvider(provider, ttl, refreshAfter, ProviderResolver.defaultExecutor(),
+            System::nanoTime);
+    }
+
+    @Override
+    public String getNamespace() {
+        return provider.getNamespace();
+    }
+
+    @Override
+    public Map<String, String> getVariables() {
+        return get(ALL_VARIABLES, provider::getVariables);
+    }
+
+    @Override
+    public Map<String, String> getVariables(Set<String> requestedKeys) {
+        Set<String> key = Collections.unmodifiableSet(new HashSet<>(requestedKeys));
+        return get(key, () -> provider.getVariables(key));
+    }
+
+    /**
+     * Discards all cached variables, so the next render loads them again. Loads in progress are not affected.
+     */
+    public void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * @return snapshot of the counters of this cache
+     */
+    public ProviderCacheStats stats() {
+        return new ProviderCacheStats(hits.sum(), misses.sum(), loads.sum(), loadFailures.sum(), refreshes.sum(),
+            Duration.ofNanos(loadNanos.sum()));
+    }
+
+    private Map<String, String> get(Object key, Supplier<Map<String, String>> loader) {
+        long now = ticker.getAsLong();
+        Entry fresh = new Entry();
+        Entry entry = entries.compute(key, (k, current) -> current == null || current.isExpired(now) ? fresh : current);
+        if (entry == fresh) {
+            misses.increment();
+            evict(now);
+            load(key, loader, fresh, false);
+        } else if (!entry.variables.isDone()) {
+            misses.increment();
+        } else {
+            hits.increment();
+            if (now - entry.loadedAt >= refreshAfterNanos && entry.refreshing.compareAndSet(false, true)) {
+                refreshes.increment();
+                refreshExecutor.execute(() -> refresh(key, loader, entry));
+            }
+        }
+        try {
+            return entry.variables.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private void evict(long now) {
+        entries.forEach((key, entry) -> {
+            if (entry.isExpired(now)) {
+                entries.remove(key, entry);
+            }
+        });
+        // the entry of all variables doesn't count, evict the sets of requested keys loaded first
+        while (entries.size() - (entries.containsKey(ALL_VARIABLES) ? 1 : 0) > MAX_KEY_SETS) {
+            Map.Entry<Object, Entry> oldest = null;
+            for (Map.Entry<Object, Entry> candidate : entries.entrySet()) {
+                if (candidate.getKey() != ALL_VARIABLES && candidate.getValue().variables.isDone()
+                    && (oldest == null || candidate.getValue().loadedAt < oldest.getValue().loadedAt)) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            entries.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private void refresh(Object key, Supplier<Map<String, String>> loader, Entry stale) {
+        Entry refreshed = new Entry();
+        if (load(key, loader, refreshed, true)) {
+            entries.replace(key, stale, refreshed);
+        } else {
+            stale.refreshing.set(false);
+        }
+    }
+
+    private boolean load(Object key, Supplier<Map<String, String>> loader, Entry entry, boolean refresh) {
+        loads.increment();
+        long start = ticker.getAsLong();
+        try {
+            Map<String, String> variables = loader.get();
+            entry.loadedAt = ticker.getAsLong();
+            entry.variables.complete(variables);
+            return true;
+        } catch (RuntimeException | Error e) {
+            loadFailures.increment();
+            if (refresh) {
+                LOGGER.warn("Could not refresh variables of provider for namespace '{}', keeping the cached ones",
+                    provider.getNamespace(), e);
+            } else {
+                entries.remove(key, entry);
+            }
+            entry.variables.completeExceptionally(e);
+            return false;
+        } finally {
+            loadNanos.add(ticker.getAsLong() - start);
+        }
+    }
+
+    /**
+     * Variables loaded, or being loaded, for a set of requested keys
+     */
+    private final class Entry {
+
+        private final CompletableFuture<Map<String, String>> variables = new CompletableFuture<>();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long loadedAt;
+
+        boolean isExpired(long now) {
+            return variables.isDone() && now - loadedAt >= ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import freemarker.template.TemplateException;
+
+/**
+ * A config template compiled by a {@link RenderingEngine}.
+ */
+public interface CompiledTemplate {
+
+    /**
+     * Renders the template.
+     *
+     * @param dataModel the data model created by {@link TemplateConfigBundleConfiguration#dataModelFactory()}
+     * @param out writer to render the template to
+     * @throws IOException if writing fails
+     * @throws TemplateException if the template cannot be rendered with the given data model
+     */
+    void render(Object dataModel, Writer out) throws IOException, TemplateException;
+
+}
@@ -0,0 +1,191 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the rendered config to the {@code outputPath} atomically.
+ *
+ * <p>The content goes to a temporary file next to the target, which then replaces the target with an atomic move, so
+ * readers of the target never see a partially written config. If the target already has the same content it's left
+ * untouched, keeping its modification time for tools watching it.
+ */
+final class ConfigFileWriter extends OutputStream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConfigFileWriter.class);
+
+    private final Path target;
+    private final Path temp;
+    private final FileChannel channel;
+    private final OutputStream output;
+    private final boolean fsync;
+    private final MessageDigest digest = Digests.sha256();
+    private long size;
+    private boolean finished;
+
+    private ConfigFileWriter(Path target, boolean fsync) throws IOException {
+        this.target = target;
+        this.fsync = fsync;
+        Files.createDirectories(target.getParent());
+        // not Files.createTempFile, its owner-only permissions would end up on the config file
+        this.temp = target.resolveSibling("." + target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+        this.output = new BufferedOutputStream(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Opens a writer to stream the config to. Nothing is visible at the target until the writer is
+     * {@link #commit() committed}.
+     *
+     * @param target the output path
+     * @param fsync whether to force the content to the storage device before replacing the target
+     * @return the writer
+     * @throws IOException if the temporary file cannot be created
+     */
+    static ConfigFileWriter open(Path target, boolean fsync) throws IOException {
+        return new ConfigFileWriter(target.toAbsolutePath(), fsync);
+    }
+
+    /**
+     * Writes the config, unless the target already has the same content.
+     *
+     * @param target the output path
+     * @param content the rendered config
+     * @param fsync whether to force the content to the storage device before replacing the target
+     * @throws IOException if the config cannot be written
+     */
+    static void write(Path target, byte[] content, boolean fsync) throws IOException {
+        Path absoluteTarget = target.toAbsolutePath();
+        if (hasContent(absoluteTarget, content.length, Digests.sha256().digest(content))) {
+            LOGGER.debug("Config file {} is unchanged, not writing it", absoluteTarget);
+            return;
+        }
+        ConfigFileWriter writer = open(absoluteTarget, fsync);
+        writer.write(content, 0, content.length);
+        writer.commit(false);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        output.write(b);
+        digest.update((byte) b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        output.write(bytes, offset, length);
+        digest.update(bytes, offset, length);
+        size += length;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    /**
+     * Replaces the target with the written content, unless it already has the same content.
+     *
+     * @throws IOException if the target cannot be replaced
+     */
+    void commit() throws IOException {
+        commit(true);
+    }
+
+    /**
+     * Discards the written content, leaving the target as it was.
+     */
+    void abort() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            output.close();
+        } catch (IOException e) {
+            // the content is discarded anyway
+        }
+        deleteTemp();
+    }
+
+    @Override
+    public void close() throws IOException {
+        commit();
+    }
+
+    private void commit(boolean skipIfUnchanged) throws IOException {
+        if (finished) {
+            return;
+        }
+        try {
+            output.flush();
+            if (fsync) {
+                channel.force(true);
+            }
+            output.close();
+            if (skipIfUnchanged && hasContent(target, size, digest.digest())) {
+                LOGGER.debug("Config file {} is unchanged, not replacing it", target);
+                finished = true;
+                deleteTemp();
+                return;
+            }
+            move(temp, target);
+            finished = true;
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    private static boolean hasContent(Path path, long size, byte[] contentDigest) throws IOException {
+        try {
+            if (Files.size(path) != size) {
+                return false;
+            }
+            MessageDigest existingDigest = Digests.sha256();
+            try (InputStream existing = Files.newInputStream(path)) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = existing.read(buffer)) != -1) {
+                    existingDigest.update(buffer, 0, read);
+                }
+            }
+            return Arrays.equals(existingDigest.digest(), contentDigest);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteTemp() {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete temporary config file {}", temp, e);
+        }
+    }
+}
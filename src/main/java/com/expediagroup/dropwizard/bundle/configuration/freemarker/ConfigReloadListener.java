@@ -0,0 +1,28 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import io.dropwizard.Configuration;
+
+/**
+ * Listener for configs re-rendered by the hot reload of a {@link TemplateConfigBundle}.
+ *
+ * @param <T> the application's configuration class
+ */
+@FunctionalInterface
+public interface ConfigReloadListener<T extends Configuration> {
+
+    /**
+     * Called with every successfully re-rendered and parsed config, on the reload thread.
+     *
+     * @param renderedConfig the rendered config template
+     * @param configuration the rendered config, parsed and validated like at startup
+     */
+    void configReloaded(byte[] renderedConfig, T configuration);
+
+    /**
+     * Called if a changed config could not be rendered or parsed. The previous config stays in effect.
+     *
+     * @param e the failure
+     */
+    default void reloadFailed(Exception e) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import freemarker.cache.CacheStorage;
+import freemarker.cache.CacheStorageWithGetSize;
+import freemarker.cache.ConcurrentCacheStorage;
+
+/**
+ * {@link CacheStorage} decorator counting cache hits and misses of the wrapped storage.
+ */
+final class CountingCacheStorage implements ConcurrentCacheStorage, CacheStorageWithGetSize {
+
+    private final CacheStorage delegate;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    CountingCacheStorage(CacheStorage delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean isConcurrent() {
+        return delegate instanceof ConcurrentCacheStorage && ((ConcurrentCacheStorage) delegate).isConcurrent();
+    }
+
+    @Override
+    public Object get(Object key) {
+        Object value = delegate.get(key);
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public void remove(Object key) {
+        delegate.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public int getSize() {
+        return delegate instanceof CacheStorageWithGetSize ? ((CacheStorageWithGetSize) delegate).getSize() : -1;
+    }
+
+    long getHitCount() {
+        return hits.sum();
+    }
+
+    long getMissCount() {
+        return misses.sum();
+    }
+
+}
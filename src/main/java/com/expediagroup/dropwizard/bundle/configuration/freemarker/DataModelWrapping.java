@@ -0,0 +1,35 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import freemarker.template.Configuration;
+import freemarker.template.DefaultObjectWrapperBuilder;
+import freemarker.template.ObjectWrapper;
+
+/**
+ * How the data model of a {@link TemplateConfigBundleConfiguration} is exposed to freemarker templates.
+ */
+public enum DataModelWrapping {
+
+    /**
+     * Freemarker's default object wrapper, which can expose any Java object and introspects the classes of beans.
+     */
+    DEFAULT {
+        @Override
+        ObjectWrapper createWrapper() {
+            return new DefaultObjectWrapperBuilder(Configuration.VERSION_2_3_22).build();
+        }
+    },
+
+    /**
+     * A wrapper specialized in maps and strings, the types of the default data model, that sets up no class
+     * introspection. Other objects, e.g. from a custom data model factory, are still wrapped by the default wrapper.
+     */
+    STRING_MAP {
+        @Override
+        ObjectWrapper createWrapper() {
+            return new StringMapObjectWrapper();
+        }
+    };
+
+    abstract ObjectWrapper createWrapper();
+
+}
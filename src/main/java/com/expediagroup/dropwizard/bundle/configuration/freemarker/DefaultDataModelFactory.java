@@ -0,0 +1,77 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * The default data model factory of a {@link TemplateConfigBundleConfiguration}.
+ *
+ * <p>Creates a map from namespace to the variables of all custom providers with that namespace. Providers are
+ * resolved concurrently, see {@link ProviderResolver}. Providers sharing a namespace are layered in the order they
+ * were added, later ones overriding earlier ones. Variables referenced without a namespace are looked up across
+ * namespaces, see {@link VariablesDataModel}.
+ */
+final class DefaultDataModelFactory implements Supplier<Object> {
+
+    private final TemplateConfigBundleConfiguration configuration;
+    private volatile List<ProviderResolution> lastResolutions = Collections.emptyList();
+
+    DefaultDataModelFactory(TemplateConfigBundleConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public Object get() {
+        return create(ReferencedVariables.ALL);
+    }
+
+    /**
+     * Creates the data model, asking providers only for the variables the template may reference.
+     *
+     * @param referencedVariables variables the template may reference
+     * @return data model
+     */
+    Map<String, Object> create(ReferencedVariables referencedVariables) {
+        List<TemplateConfigVariablesProvider> providers = new ArrayList<>(configuration.customProviders());
+        ProviderResolver.Result result = ProviderResolver.resolve(providers,
+            provider -> referencedVariables.keys(provider.getNamespace())
+                .map(provider::getVariables)
+                .orElseGet(provider::getVariables),
+            configuration);
+        lastResolutions = result.resolutions();
+        return dataModel(providers, result.variables(), referencedVariables.bareKeys());
+    }
+
+    /**
+     * Creates a data model from already resolved providers.
+     *
+     * @param providers the providers
+     * @param variables the variables of each provider, in provider order
+     * @param bareKeys the keys the template may reference without a namespace, or empty if they're unknown
+     * @return data model
+     */
+    static Map<String, Object> dataModel(List<? extends TemplateConfigVariablesProvider> providers,
+        List<Map<String, String>> variables, Optional<Set<String>> bareKeys) {
+        Map<String, List<Map<String, String>>> layersByNamespace = new LinkedHashMap<>();
+        for (int i = 0; i < providers.size(); i++) {
+            layersByNamespace.computeIfAbsent(providers.get(i).getNamespace(), namespace -> new ArrayList<>())
+                .add(variables.get(i));
+        }
+        Map<String, Map<String, String>> namespaces = new LinkedHashMap<>();
+        layersByNamespace.forEach((namespace, layers) -> namespaces.put(namespace, LayeredVariablesMap.overlay(layers)));
+        return VariablesDataModel.create(namespaces, bareKeys);
+    }
+
+    /**
+     * @return how resolving each provider went during the last render, in provider order
+     */
+    List<ProviderResolution> lastResolutions() {
+        return lastResolutions;
+    }
+}
@@ -0,0 +1,111 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * SHA-256 helpers used to fingerprint templates and data models.
+ */
+final class Digests {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private Digests() {
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM.", e);
+        }
+    }
+
+    static String sha256Hex(byte[] bytes) {
+        return toHex(sha256().digest(bytes));
+    }
+
+    static String sha256Hex(String text) {
+        return sha256Hex(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Fingerprints a data model made of maps, collections, arrays, strings, numbers and booleans. Map entries are
+     * digested in key order, so the result doesn't depend on map iteration order.
+     *
+     * @param dataModel the data model
+     * @return hex encoded digest, or empty if the model contains values of any other type
+     */
+    static Optional<String> dataModelSha256Hex(Object dataModel) {
+        MessageDigest digest = sha256();
+        return update(digest, dataModel) ? Optional.of(toHex(digest.digest())) : Optional.empty();
+    }
+
+    private static boolean update(MessageDigest digest, Object value) {
+        if (value == null) {
+            digest.update((byte) 'Z');
+        } else if (value instanceof CharSequence) {
+            updateString(digest, 'S', value.toString());
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Character) {
+            updateString(digest, 'N', value.getClass().getName() + ':' + value);
+        } else if (value instanceof Map) {
+            List<Map.Entry<?, ?>> entries = new ArrayList<>(((Map<?, ?>) value).entrySet());
+            entries.sort((left, right) -> String.valueOf(left.getKey()).compareTo(String.valueOf(right.getKey())));
+            updateLength(digest, 'M', entries.size());
+            for (Map.Entry<?, ?> entry : entries) {
+                if (!update(digest, entry.getKey()) || !update(digest, entry.getValue())) {
+                    return false;
+                }
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            updateLength(digest, 'L', collection.size());
+            for (Object element : collection) {
+                if (!update(digest, element)) {
+                    return false;
+                }
+            }
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            updateLength(digest, 'L', length);
+            for (int i = 0; i < length; i++) {
+                if (!update(digest, Array.get(value, i))) {
+                    return false;
+                }
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static void updateString(MessageDigest digest, char type, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        updateLength(digest, type, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void updateLength(MessageDigest digest, char type, int length) {
+        digest.update((byte) type);
+        digest.update((byte) (length >>> 24));
+        digest.update((byte) (length >>> 16));
+        digest.update((byte) (length >>> 8));
+        digest.update((byte) length);
+    }
+}
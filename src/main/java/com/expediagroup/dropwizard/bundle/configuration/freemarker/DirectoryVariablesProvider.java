@@ -0,0 +1,144 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provider reading one variable per file from a directory, like the volumes Kubernetes mounts for secrets and config
+ * maps. The file name is the name of the variable and the UTF-8 decoded file content, without a single trailing line
+ * break, its value.
+ *
+ * <p>Listing the variables only reads the directory, and a file is only read when the template dereferences its
+ * variable. Hidden files are skipped, which includes the {@code ..data} links Kubernetes uses to swap the content of
+ * a mount atomically. If values are cached, a file is only read again once its modification time or size changed, so
+ * renders on reload don't reread unchanged files.
+ */
+final class DirectoryVariablesProvider implements LazyTemplateConfigVariablesProvider {
+
+    private final String namespace;
+    private final Path directory;
+    private final Map<String, CachedValue> cache;
+
+    DirectoryVariablesProvider(String namespace, Path directory, boolean cacheValues) {
+        if (namespace.trim().isEmpty()) {
+            throw new IllegalArgumentException("Namespace cannot be blank.");
+        }
+        if (directory == null) {
+            throw new NullPointerException("Provided directory must not be null.");
+        }
+        this.namespace = namespace;
+        this.directory = directory;
+        this.cache = cacheValues ? new ConcurrentHashMap<>() : null;
+    }
+
+    @Override
+    public String getNamespace() {
+        return namespace;
+    }
+
+    @Override
+    public String getVariable(String name) {
+        if (!isVariableName(name)) {
+            return null;
+        }
+        Path file = directory.resolve(name);
+        try {
+            if (cache == null) {
+                return Files.isRegularFile(file) ? read(file) : null;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                cache.remove(name);
+                return null;
+            }
+            CachedValue cached = cache.get(name);
+            if (cached != null && cached.isCurrent(attributes)) {
+                return cached.value;
+            }
+            String value = read(file);
+            cache.put(name, new CachedValue(attributes.lastModifiedTime(), attributes.size(), value));
+            return value;
+        } catch (NoSuchFileException e) {
+            if (cache != null) {
+                cache.remove(name);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read variable " + name + " from " + directory, e);
+        }
+    }
+
+    @Override
+    public Set<String> getVariableNames() {
+        Set<String> names = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                // follows links, so the files Kubernetes links to the ..data directory are variables
+                if (isVariableName(name) && Files.isRegularFile(file)) {
+                    names.add(name);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list variables in " + directory, e);
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    private static boolean isVariableName(String name) {
+        // also keeps names like ../other from reaching outside of the directory
+        return !name.isEmpty() && !name.startsWith(".") && name.indexOf('/') < 0 && name.indexOf('\\') < 0;
+    }
+
+    private static String read(Path file) throws IOException {
+        try (SeekableByteChannel channel = Files.newByteChannel(file)) {
+            // mounted values are small, so the buffer is sized to the file and only grows if the file does
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), Integer.MAX_VALUE - 8) + 1);
+            while (channel.read(buffer) >= 0) {
+                if (!buffer.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                    buffer.flip();
+                    larger.put(buffer);
+                    buffer = larger;
+                }
+            }
+            int length = buffer.position();
+            byte[] bytes = buffer.array();
+            if (length > 0 && bytes[length - 1] == '\n') {
+                length -= length > 1 && bytes[length - 2] == '\r' ? 2 : 1;
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class CachedValue {
+
+        private final FileTime lastModified;
+        private final long size;
+        private final String value;
+
+        private CachedValue(FileTime lastModified, long size, String value) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.value = value;
+        }
+
+        private boolean isCurrent(BasicFileAttributes attributes) {
+            return lastModified.equals(attributes.lastModifiedTime()) && size == attributes.size();
+        }
+    }
+}
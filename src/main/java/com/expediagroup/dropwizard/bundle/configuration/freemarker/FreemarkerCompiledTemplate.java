@@ -0,0 +1,51 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+
+/**
+ * A config template rendered by freemarker. The template is parsed on first use, so engines that never fall back to
+ * freemarker don't pay for parsing it.
+ */
+final class FreemarkerCompiledTemplate implements CompiledTemplate {
+
+    private final String name;
+    private final String source;
+    private final Configuration freemarkerConfiguration;
+    private volatile Template template;
+
+    FreemarkerCompiledTemplate(String name, String source, Configuration freemarkerConfiguration) {
+        this.name = name;
+        this.source = source;
+        this.freemarkerConfiguration = freemarkerConfiguration;
+    }
+
+    /**
+     * Returns the parsed template, parsing it if that hasn't happened yet.
+     *
+     * @return parsed template
+     * @throws IOException if the template cannot be parsed
+     */
+    Template template() throws IOException {
+        Template parsed = template;
+        if (parsed == null) {
+            synchronized (this) {
+                parsed = template;
+                if (parsed == null) {
+                    parsed = new Template(name, source, freemarkerConfiguration);
+                    template = parsed;
+                }
+            }
+        }
+        return parsed;
+    }
+
+    @Override
+    public void render(Object dataModel, Writer out) throws IOException, TemplateException {
+        template().process(dataModel, out);
+    }
+}
@@ -0,0 +1,344 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import freemarker.cache.TemplateLoader;
+import freemarker.template.Configuration;
+import freemarker.template.TemplateExceptionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Freemarker engine shared by all renders of a {@link TemplateConfigBundleConfiguration}.
+ *
+ * <p>The underlying freemarker {@link Configuration} is set up once, so template loaders, the include cache and the
+ * class introspection caches survive between {@link TemplateConfigurationSourceProvider#open(String)} calls.
+ * Main config templates are compiled by the configured {@link RenderingEngine} and cached by their path and source,
+ * included snippets are cached by freemarker's own template cache.
+ * Both caches use the size and eviction policy of the bundle configuration. With incremental rendering, the outputs
+ * of the fragments of main config templates are kept as well, see {@link IncrementalTemplate}. Instances are
+ * thread-safe. The main template cache is split into stripes, so renders of different templates don't wait for each
+ * other, and concurrent renders of the same config are collapsed into one, see {@link #renders()}. Templates found
+ * in the artifact of {@link TemplatePrecompiler} aren't parsed when they're compiled. With profiling, templates are
+ * instrumented by a {@link RenderProfiler}.
+ */
+final class FreemarkerEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FreemarkerEngine.class);
+
+    private static final String TEMPLATE_NAME = "config";
+
+    // the main template cache is split into stripes with their own lock, each holding at least this many templates
+    private static final int MIN_TEMPLATE_CACHE_STRIPE_SIZE = 8;
+    private static final int MAX_TEMPLATE_CACHE_STRIPES = 16;
+
+    private final Configuration freemarkerConfiguration;
+    private final CountingCacheStorage[] templateCacheStripes;
+    private final SingleFlight<TemplateKey, CompiledTemplate> compilations = new SingleFlight<>();
+    private final CountingCacheStorage includeCache;
+    private final RenderingEngine renderingEngine;
+    private final boolean incrementalRendering;
+    private final PrecompiledTemplates precompiledTemplates;
+    private final IncrementalTemplate.FragmentCache fragmentCache = new IncrementalTemplate.FragmentCache();
+    private final PrefetchingTemplateLoader prefetchingLoader;
+    private final TemplateLoader sourceLoader;
+    private final RenderProfiler profiler;
+    private final SingleFlight<TemplateConfigurationSourceProvider.RenderKey, TemplateConfigurationSourceProvider.Render>
+        renders = new SingleFlight<>();
+
+    FreemarkerEngine(TemplateConfigBundleConfiguration configuration) {
+        int stripes = Math.max(1, Math.min(MAX_TEMPLATE_CACHE_STRIPES,
+            configuration.templateCacheSize() / MIN_TEMPLATE_CACHE_STRIPE_SIZE));
+        int stripeSize = (configuration.templateCacheSize() + stripes - 1) / stripes;
+        this.templateCacheStripes = new CountingCacheStorage[stripes];
+        for (int i = 0; i < stripes; i++) {
+            templateCacheStripes[i] = new CountingCacheStorage(
+                configuration.templateCacheEviction().createStorage(stripeSize));
+        }
+        this.includeCache = new CountingCacheStorage(
+            configuration.templateCacheEviction().createStorage(configuration.templateCacheSize()));
+        this.freemarkerConfiguration = createFreemarkerConfiguration(configuration, includeCache);
+        TemplateLoader loader = freemarkerConfiguration.getTemplateLoader();
+        if (configuration.prefetchIncludes() && loader != null) {
+            this.prefetchingLoader = new PrefetchingTemplateLoader(loader);
+            freemarkerConfiguration.setTemplateLoader(prefetchingLoader);
+        } else {
+            this.prefetchingLoader = null;
+        }
+        // sources are read without the profiling instrumentation
+        this.sourceLoader = freemarkerConfiguration.getTemplateLoader();
+        if (configuration.profiling()) {
+            this.profiler = new RenderProfiler(freemarkerConfiguration);
+            freemarkerConfiguration.setSharedVariable(RenderProfiler.DIRECTIVE_NAME, profiler);
+            if (sourceLoader != null) {
+                freemarkerConfiguration.setTemplateLoader(profiler.loader(sourceLoader));
+            }
+        } else {
+            this.profiler = null;
+        }
+        this.renderingEngine = configuration.renderingEngine();
+        this.incrementalRendering = configuration.incrementalRendering();
+        // plans are the same for both built-in engines, custom engines decide on their own
+        boolean builtInEngine = renderingEngine == RenderingEngines.freemarker()
+            || renderingEngine == RenderingEngines.substitution();
+        this.precompiledTemplates = configuration.precompiledTemplates() && builtInEngine
+            ? PrecompiledTemplates.load(classLoader())
+            : PrecompiledTemplates.NONE;
+    }
+
+    private static ClassLoader classLoader() {
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        return contextClassLoader != null ? contextClassLoader : FreemarkerEngine.class.getClassLoader();
+    }
+
+    private static Configuration createFreemarkerConfiguration(TemplateConfigBundleConfiguration configuration,
+        CountingCacheStorage includeCache) {
+        Configuration freemarkerConfiguration = new Configuration(Configuration.VERSION_2_3_22);
+        freemarkerConfiguration.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
+        freemarkerConfiguration.setNumberFormat("computer");
+        freemarkerConfiguration.setObjectWrapper(configuration.dataModelWrapping().createWrapper());
+        freemarkerConfiguration.setDefaultEncoding(configuration.charset().name());
+        freemarkerConfiguration.setCacheStorage(includeCache);
+        // snippets are still checked for modification on every include, only unchanged ones are taken from the cache
+        freemarkerConfiguration.setTemplateUpdateDelay(0);
+        configuration.resourceIncludePath().ifPresent(p -> freemarkerConfiguration.setClassForTemplateLoading(
+            TemplateConfigurationSourceProvider.class, !p.startsWith("/") ? ("/" + p) : p));
+
+        if (!configuration.resourceIncludePath().isPresent()) {
+            configuration.fileIncludePath().map(File::new).ifPresent(f -> {
+                try {
+                    freemarkerConfiguration.setDirectoryForTemplateLoading(f);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not set directory for template loading.", e);
+                }
+            });
+        }
+        return freemarkerConfiguration;
+    }
+
+    /**
+     * Returns the compiled main config template for the given source, compiling it only if it isn't cached yet.
+     *
+     * @param path the path the template source was opened from
+     * @param source the template source
+     * @return compiled template
+     * @throws IOException if the template cannot be parsed
+     */
+    CompiledTemplate getTemplate(String path, String source) throws IOException {
+        TemplateKey key = new TemplateKey(path, source);
+        CountingCacheStorage stripe =
+            templateCacheStripes[(key.hashCode() & Integer.MAX_VALUE) % templateCacheStripes.length];
+        synchronized (stripe) {
+            CompiledTemplate cached = (CompiledTemplate) stripe.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // concurrent misses of the same template compile it once, other templates compile in parallel
+        return compilations.run(key, () -> {
+            CompiledTemplate template = compile(path, source);
+            synchronized (stripe) {
+                stripe.put(key, template);
+            }
+            return template;
+        });
+    }
+
+    private CompiledTemplate compile(String path, String source) throws IOException {
+        if (profiler != null) {
+            // profiled templates are always rendered by freemarker as a whole, so their directives can be timed
+            return profiler.compile(path, TEMPLATE_NAME, source);
+        }
+        FreemarkerCompiledTemplate freemarkerTemplate =
+            new FreemarkerCompiledTemplate(TEMPLATE_NAME, source, freemarkerConfiguration);
+        Optional<CompiledTemplate> precompiled = precompiledTemplates.find(source, freemarkerTemplate);
+        if (precompiled.isPresent() && precompiled.get() != freemarkerTemplate) {
+            return precompiled.get();
+        }
+        if (!precompiled.isPresent()) {
+            Optional<CompiledTemplate> compiled = renderingEngine.compile(source, freemarkerTemplate);
+            if (compiled.isPresent() && compiled.get() != freemarkerTemplate) {
+                return compiled.get();
+            }
+            // parse right away, so syntax errors are reported when the config is opened; precompiled templates were
+            // validated at build time and are parsed on their first render
+            freemarkerTemplate.template();
+        }
+        return incrementalRendering
+            ? IncrementalTemplate.split(path, source, freemarkerTemplate, this, fragmentCache).orElse(freemarkerTemplate)
+            : freemarkerTemplate;
+    }
+
+    /**
+     * Reads the raw source of an included template the same way freemarker looks it up, including localized variants.
+     *
+     * @param name normalized template name
+     * @return template source, or {@code null} if there's no such template
+     * @throws IOException if the template cannot be read
+     */
+    String loadIncludeSource(String name) throws IOException {
+        TemplateLoader loader = sourceLoader;
+        if (loader == null) {
+            return null;
+        }
+        for (String candidate : localizedNames(name, freemarkerConfiguration.getLocale())) {
+            Object templateSource = loader.findTemplateSource(candidate);
+            if (templateSource == null) {
+                continue;
+            }
+            try (Reader reader = loader.getReader(templateSource, freemarkerConfiguration.getDefaultEncoding())) {
+                StringBuilder source = new StringBuilder();
+                char[] buffer = new char[4096];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    source.append(buffer, 0, read);
+                }
+                return source.toString();
+            } finally {
+                loader.closeTemplateSource(templateSource);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Loads the statically known includes of a config template and everything they include concurrently, so rendering
+     * reads them from memory. Each render gets its own prefetch, which is only served while a template wrapped by
+     * {@link PrefetchingTemplateLoader.Prefetch#serving(CompiledTemplate)} renders.
+     *
+     * @param source the template source
+     * @param executor executor to load includes on
+     * @return the prefetched includes, or empty unless prefetching is enabled
+     */
+    Optional<PrefetchingTemplateLoader.Prefetch> prefetchIncludes(String source, Executor executor) {
+        if (prefetchingLoader == null) {
+            return Optional.empty();
+        }
+        PrefetchingTemplateLoader.Prefetch prefetch = prefetchingLoader.newPrefetch();
+        Set<String> seen = new HashSet<>();
+        Map<String, String> level = Collections.singletonMap(TEMPLATE_NAME, source);
+        while (!level.isEmpty()) {
+            Map<String, CompletableFuture<String>> loads = new LinkedHashMap<>();
+            level.forEach((templateName, templateSource) -> {
+                for (String includedName : TemplateSourceScanner.scan(templateSource).staticIncludedTemplateNames()) {
+                    TemplateSourceScanner.resolveTemplateName(templateName, includedName)
+                        .filter(seen::add)
+                        .ifPresent(name -> loads.put(name,
+                            CompletableFuture.supplyAsync(() -> prefetch(prefetch, name), executor)));
+                }
+            });
+            Map<String, String> nextLevel = new LinkedHashMap<>();
+            loads.forEach((name, load) -> {
+                String loaded = load.join();
+                if (loaded != null) {
+                    nextLevel.put(name, loaded);
+                }
+            });
+            level = nextLevel;
+        }
+        return Optional.of(prefetch);
+    }
+
+    private String prefetch(PrefetchingTemplateLoader.Prefetch prefetch, String name) {
+        try {
+            for (String candidate : localizedNames(name, freemarkerConfiguration.getLocale())) {
+                String source = prefetch.prefetch(candidate, freemarkerConfiguration.getDefaultEncoding());
+                if (source != null) {
+                    return source;
+                }
+            }
+        } catch (IOException e) {
+            // rendering loads it again and reports the failure
+            LOGGER.debug("Could not prefetch template {}", name, e);
+        }
+        return null;
+    }
+
+    private static List<String> localizedNames(String name, Locale locale) {
+        int extensionIndex = name.lastIndexOf('.');
+        int slashIndex = name.lastIndexOf('/');
+        String prefix = extensionIndex > slashIndex ? name.substring(0, extensionIndex) : name;
+        String extension = extensionIndex > slashIndex ? name.substring(extensionIndex) : "";
+        List<String> names = new ArrayList<>();
+        String localeName = locale == null ? "" : locale.toString();
+        while (!localeName.isEmpty()) {
+            names.add(prefix + "_" + localeName + extension);
+            int lastUnderscore = localeName.lastIndexOf('_');
+            localeName = lastUnderscore < 0 ? "" : localeName.substring(0, lastUnderscore);
+        }
+        names.add(name);
+        return names;
+    }
+
+    /**
+     * Renders in flight, so concurrent opens of the same config by providers sharing this engine, e.g. applications
+     * booted in parallel with the same bundle configuration, render it only once.
+     *
+     * @return renders in flight
+     */
+    SingleFlight<TemplateConfigurationSourceProvider.RenderKey, TemplateConfigurationSourceProvider.Render> renders() {
+        return renders;
+    }
+
+    void clearIncludeCache() {
+        freemarkerConfiguration.clearTemplateCache();
+    }
+
+    Configuration freemarkerConfiguration() {
+        return freemarkerConfiguration;
+    }
+
+    TemplateCacheStats cacheStats() {
+        long templateHits = 0;
+        long templateMisses = 0;
+        for (CountingCacheStorage stripe : templateCacheStripes) {
+            templateHits += stripe.getHitCount();
+            templateMisses += stripe.getMissCount();
+        }
+        return new TemplateCacheStats(templateHits, templateMisses,
+            includeCache.getHitCount(), includeCache.getMissCount(), fragmentCache.hitCount(),
+            fragmentCache.missCount());
+    }
+
+    private static final class TemplateKey {
+
+        private final String path;
+        private final String source;
+
+        private TemplateKey(String path, String source) {
+            this.path = path;
+            this.source = source;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey that = (TemplateKey) o;
+            return path.equals(that.path) && source.equals(that.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, source);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A config template rendered fragment by fragment, reusing the output of fragments whose inputs didn't change.
+ *
+ * <p>The template is split at its top level includes that are on lines of their own. Every included template and every
+ * part of the config template in between is a fragment. A fragment's inputs are its source, the sources of everything
+ * it includes and the values of the variables it may reference, see {@link ReferencedVariables}. Rendering a fragment
+ * on its own is only equivalent to rendering it as part of the whole template if no fragment can affect another one,
+ * so this is checked on every render: if any source defines variables or macros, imports libraries, calls macros or
+ * uses special variables, the template is rendered as a whole.
+ */
+final class IncrementalTemplate implements CompiledTemplate {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalTemplate.class);
+
+    private static final Set<String> BLOCK_DIRECTIVES =
+        new HashSet<>(Arrays.asList("if", "list", "items", "switch", "compress", "noparse"));
+    private static final Set<String> SELF_CONTAINED_DIRECTIVES = new HashSet<>(Arrays.asList("include", "if", "elseif",
+        "else", "list", "items", "sep", "switch", "case", "default", "break", "compress", "noparse", "t", "lt", "rt",
+        "nt", "flush"));
+
+    private final String path;
+    private final List<Segment> segments;
+    private final FreemarkerCompiledTemplate wholeTemplate;
+    private final Configuration freemarkerConfiguration;
+    private final FreemarkerEngine engine;
+    private final FragmentCache cache;
+
+    private IncrementalTemplate(String path, List<Segment> segments, FreemarkerCompiledTemplate wholeTemplate,
+        FreemarkerEngine engine, FragmentCache cache) {
+        this.path = path;
+        this.segments = segments;
+        this.wholeTemplate = wholeTemplate;
+        this.freemarkerConfiguration = engine.freemarkerConfiguration();
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+    /**
+     * Splits a config template into fragments.
+     *
+     * @param path the path the template source was opened from
+     * @param source the template source
+     * @param wholeTemplate the template rendered as a whole, used if fragments can't be rendered on their own
+     * @param engine engine to load included templates with
+     * @param cache cache of rendered fragments
+     * @return the fragmented template, or empty if the template has no includes to split it at
+     */
+    static Optional<CompiledTemplate> split(String path, String source, FreemarkerCompiledTemplate wholeTemplate,
+        FreemarkerEngine engine, FragmentCache cache) {
+        TemplateSourceScanner.ScannedTemplate scanned = TemplateSourceScanner.scan(source);
+        if (!isSelfContained(scanned)) {
+            return Optional.empty();
+        }
+        List<Segment> segments = new ArrayList<>();
+        int depth = 0;
+        int pieceStart = 0;
+        for (TemplateSourceScanner.Token token : scanned.tokens()) {
+            if (token.kind == TemplateSourceScanner.Kind.DIRECTIVE && BLOCK_DIRECTIVES.contains(token.name)) {
+                depth++;
+            } else if (token.kind == TemplateSourceScanner.Kind.DIRECTIVE_END
+                && BLOCK_DIRECTIVES.contains(token.name)) {
+                depth--;
+            } else if (depth == 0 && token.isDirective("include")) {
+                Optional<String> includeName = plainIncludeName(token.expression);
+                int lineStart = source.lastIndexOf('\n', token.start - 1) + 1;
+                int lineEnd = source.indexOf('\n', token.end);
+                lineEnd = lineEnd < 0 ? source.length() : lineEnd + 1;
+                // freemarker strips lines holding nothing but the include, so the fragments take the whole line
+                if (includeName.isPresent() && isBlank(source, lineStart, token.start)
+                    && isBlank(source, token.end, lineEnd)) {
+                    if (pieceStart < lineStart) {
+                        segments.add(Segment.piece(segments.size(), source.substring(pieceStart, lineStart)));
+                    }
+                    segments.add(Segment.include(segments.size(), includeName.get()));
+                    pieceStart = lineEnd;
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            return Optional.empty();
+        }
+        if (pieceStart < source.length()) {
+            segments.add(Segment.piece(segments.size(), source.substring(pieceStart)));
+        }
+        return Optional.of(new IncrementalTemplate(path, segments, wholeTemplate, engine, cache));
+    }
+
+    @Override
+    public void render(Object dataModel, Writer out) throws IOException, TemplateException {
+        List<Inputs> inputs = new ArrayList<>(segments.size());
+        for (Segment segment : segments) {
+            String source = segment.source != null ? segment.source : engine.loadIncludeSource(segment.templateName);
+            Optional<Inputs> segmentInputs = source == null ? Optional.empty() : inputs(segment, source, dataModel);
+            if (!segmentInputs.isPresent()) {
+                // let freemarker deal with it, including reporting missing includes
+                wholeTemplate.render(dataModel, out);
+                return;
+            }
+            inputs.add(segmentInputs.get());
+        }
+        int rendered = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            String key = path + '\u0000' + segments.get(i).cacheKey;
+            Inputs segmentInputs = inputs.get(i);
+            RenderedFragment cached = cache.fragments.get(key);
+            if (cached != null && cached.inputs.digest.equals(segmentInputs.digest)) {
+                cache.hits.increment();
+                out.write(cached.output);
+                continue;
+            }
+            cache.misses.increment();
+            rendered++;
+            if (cached != null && !cached.inputs.includesDigest.equals(segmentInputs.includesDigest)) {
+                // don't rely on modification times to pick up snippets known to have changed
+                for (String includeName : segmentInputs.includeNames) {
+                    freemarkerConfiguration.removeTemplateFromCache(includeName);
+                }
+            }
+            Template template = cached != null && cached.inputs.source.equals(segmentInputs.source) ? cached.template
+                : new Template(segments.get(i).templateName, segmentInputs.source, freemarkerConfiguration);
+            StringWriter output = new StringWriter();
+            template.process(dataModel, output);
+            cache.fragments.put(key, new RenderedFragment(segmentInputs, template, output.toString()));
+            out.write(output.toString());
+        }
+        LOGGER.debug("Rendered {} of {} fragments of config {}", rendered, segments.size(), path);
+    }
+
+    /**
+     * Collects and digests the inputs of a fragment.
+     *
+     * @return the inputs, or empty if the fragment can't be rendered on its own
+     */
+    private Optional<Inputs> inputs(Segment segment, String source, Object dataModel) throws IOException {
+        TemplateIncludes includes = TemplateIncludes.resolve(segment.templateName, source, engine);
+        if (!includes.isComplete() || !isSelfContained(TemplateSourceScanner.scan(source))) {
+            return Optional.empty();
+        }
+        MessageDigest includesDigest = Digests.sha256();
+        for (Map.Entry<String, String> include : includes.sources().entrySet()) {
+            if (include.getValue() == null || !isSelfContained(TemplateSourceScanner.scan(include.getValue()))) {
+                return Optional.empty();
+            }
+            update(includesDigest, include.getKey());
+            update(includesDigest, include.getValue());
+        }
+        Optional<String> variablesDigest =
+            Digests.dataModelSha256Hex(ReferencedVariables.analyze(source, includes).select(dataModel));
+        if (!variablesDigest.isPresent()) {
+            return Optional.empty();
+        }
+        String includesHex = Digests.toHex(includesDigest.digest());
+        MessageDigest digest = Digests.sha256();
+        update(digest, segment.templateName);
+        update(digest, source);
+        update(digest, includesHex);
+        update(digest, variablesDigest.get());
+        return Optional.of(new Inputs(source, includes.sources().keySet(), includesHex,
+            Digests.toHex(digest.digest())));
+    }
+
+    private static boolean isSelfContained(TemplateSourceScanner.ScannedTemplate scanned) {
+        if (!scanned.isComplete()) {
+            return false;
+        }
+        for (TemplateSourceScanner.Token token : scanned.tokens()) {
+            switch (token.kind) {
+                case USER_DIRECTIVE:
+                case USER_DIRECTIVE_END:
+                    return false;
+                case DIRECTIVE:
+                case DIRECTIVE_END:
+                    if (!SELF_CONTAINED_DIRECTIVES.contains(token.name) || usesSpecialVariable(token.expression)) {
+                        return false;
+                    }
+                    break;
+                case INTERPOLATION:
+                    if (usesSpecialVariable(token.expression)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Looks for special variables like {@code .now}, conservatively: a dot that doesn't follow an operand counts.
+     */
+    private static boolean usesSpecialVariable(String expression) {
+        for (int i = 0; i + 1 < expression.length(); i++) {
+            if (expression.charAt(i) != '.' || !Character.isLetter(expression.charAt(i + 1))) {
+                continue;
+            }
+            int previous = i - 1;
+            while (previous >= 0 && Character.isWhitespace(expression.charAt(previous))) {
+                previous--;
+            }
+            char c = previous < 0 ? 0 : expression.charAt(previous);
+            if (!(Character.isLetterOrDigit(c) || "_$@)]\"'.".indexOf(c) >= 0)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Optional<String> plainIncludeName(String expression) {
+        Optional<String> name = TemplateSourceScanner.leadingStringLiteral(expression);
+        if (!name.isPresent()) {
+            return Optional.empty();
+        }
+        // no parameters like parse=false, they change how the snippet is rendered
+        String trimmed = expression.trim();
+        return trimmed.length() == name.get().length() + 2
+            ? TemplateSourceScanner.resolveTemplateName("config", name.get()) : Optional.empty();
+    }
+
+    private static boolean isBlank(String source, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(source.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update(Digests.sha256().digest(bytes));
+    }
+
+    /**
+     * Outputs of rendered fragments, shared by all renders of a {@link FreemarkerEngine}
+     */
+    static final class FragmentCache {
+
+        private final Map<String, RenderedFragment> fragments = new ConcurrentHashMap<>();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        long hitCount() {
+            return hits.sum();
+        }
+
+        long missCount() {
+            return misses.sum();
+        }
+    }
+
+    /**
+     * A part of the config template, or an include of it
+     */
+    private static final class Segment {
+
+        private final String templateName;
+        private final String source;
+        private final String cacheKey;
+
+        private Segment(String templateName, String source, String cacheKey) {
+            this.templateName = templateName;
+            this.source = source;
+            this.cacheKey = cacheKey;
+        }
+
+        static Segment piece(int index, String source) {
+            return new Segment("config", source, "#" + index);
+        }
+
+        static Segment include(int index, String templateName) {
+            return new Segment(templateName, null, "#" + index + ':' + templateName);
+        }
+    }
+
+    /**
+     * What a fragment was rendered from
+     */
+    private static final class Inputs {
+
+        private final String source;
+        private final Set<String> includeNames;
+        private final String includesDigest;
+        private final String digest;
+
+        private Inputs(String source, Set<String> includeNames, String includesDigest, String digest) {
+            this.source = source;
+            this.includeNames = includeNames;
+            this.includesDigest = includesDigest;
+            this.digest = digest;
+        }
+    }
+
+    private static final class RenderedFragment {
+
+        private final Inputs inputs;
+        private final Template template;
+        private final String output;
+
+        private RenderedFragment(Inputs inputs, Template template, String output) {
+            this.inputs = inputs;
+            this.template = template;
+            this.output = output;
+        }
+    }
+}
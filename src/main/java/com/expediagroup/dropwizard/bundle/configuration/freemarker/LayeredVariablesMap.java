@@ -0,0 +1,136 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Read-only overlay of the variables of several providers sharing a namespace.
+ *
+ * <p>Nothing is copied: a lookup goes through the layers from the last to the first and returns the first value found,
+ * so later layers override earlier ones. The combined key set is only computed if the map is iterated or sized, and takes
+ * the names of lazy layers without resolving their values.
+ */
+final class LayeredVariablesMap extends AbstractMap<String, String> {
+
+    private final List<Map<String, String>> layers;
+    private volatile Set<String> keys;
+
+    private LayeredVariablesMap(List<Map<String, String>> layers) {
+        this.layers = layers;
+    }
+
+    /**
+     * Creates the variables of the given providers, in the order of precedence of {@link Providers#mergeProviders}.
+     *
+     * @param providers providers sharing a namespace, later ones overriding earlier ones
+     * @return overlay of the variables of all providers
+     */
+    static Map<String, String> of(List<? extends TemplateConfigVariablesProvider> providers) {
+        return of(providers, Optional.empty());
+    }
+
+    /**
+     * Creates the variables of the given providers, asking them only for the given keys.
+     *
+     * @param providers providers sharing a namespace, later ones overriding earlier ones
+     * @param requestedKeys keys to ask the providers for, or empty to ask for all variables
+     * @return overlay of the variables of all providers
+     */
+    static Map<String, String> of(List<? extends TemplateConfigVariablesProvider> providers,
+        Optional<Set<String>> requestedKeys) {
+        if (providers.size() == 1) {
+            return variables(providers.get(0), requestedKeys);
+        }
+        List<Map<String, String>> layers = new ArrayList<>(providers.size());
+        for (TemplateConfigVariablesProvider provider : providers) {
+            layers.add(variables(provider, requestedKeys));
+        }
+        return new LayeredVariablesMap(layers);
+    }
+
+    /**
+     * Overlays already resolved variables.
+     *
+     * @param layers variables of providers sharing a namespace, later ones overriding earlier ones
+     * @return overlay of all layers
+     */
+    static Map<String, String> overlay(List<Map<String, String>> layers) {
+        return layers.size() == 1 ? layers.get(0) : new LayeredVariablesMap(new ArrayList<>(layers));
+    }
+
+    private static Map<String, String> variables(TemplateConfigVariablesProvider provider,
+        Optional<Set<String>> requestedKeys) {
+        return requestedKeys.isPresent() ? provider.getVariables(requestedKeys.get()) : provider.getVariables();
+    }
+
+    @Override
+    public String get(Object key) {
+        for (int i = layers.size() - 1; i >= 0; i--) {
+            String value = layers.get(i).get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return keys();
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                Iterator<String> names = keys().iterator();
+                return new Iterator<Entry<String, String>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return names.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        String name = names.next();
+                        return new SimpleImmutableEntry<>(name, get(name));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys().size();
+            }
+        };
+    }
+
+    private Set<String> keys() {
+        Set<String> combinedKeys = keys;
+        if (combinedKeys == null) {
+            combinedKeys = new LinkedHashSet<>();
+            for (Map<String, String> layer : layers) {
+                // iterating the keys of a lazy layer would resolve all its variables
+                combinedKeys.addAll(
+                    layer instanceof LazyVariablesMap ? ((LazyVariablesMap) layer).names() : layer.keySet());
+            }
+            combinedKeys = Collections.unmodifiableSet(combinedKeys);
+            keys = combinedKeys;
+        }
+        return combinedKeys;
+    }
+}
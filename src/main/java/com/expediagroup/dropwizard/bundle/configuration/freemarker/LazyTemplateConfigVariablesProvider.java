@@ -0,0 +1,35 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link TemplateConfigVariablesProvider} resolving variables one by one, when the template dereferences them.
+ *
+ * <p>Implement this instead of {@link TemplateConfigVariablesProvider} if resolving a variable is expensive, e.g. if
+ * it means reading a file or decrypting a secret, and templates use only some of the variables.
+ */
+public interface LazyTemplateConfigVariablesProvider extends TemplateConfigVariablesProvider {
+
+    /**
+     * @param name name of the variable
+     * @return The value of the variable, or {@code null} if there's no such variable.
+     */
+    String getVariable(String name);
+
+    /**
+     * @return The names of all variables of this provider. Only needed if a template iterates over the variables
+     * or the whole data model has to be inspected, e.g. by a custom data model factory.
+     */
+    Set<String> getVariableNames();
+
+    /**
+     * @return A read-only view of the variables that resolves each variable on first access and remembers it for the
+     * lifetime of the view. A new view is returned on every call, so values are resolved again on every render.
+     */
+    @Override
+    default Map<String, String> getVariables() {
+        return new LazyVariablesMap(this);
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only map view of a {@link LazyTemplateConfigVariablesProvider}.
+ *
+ * <p>Freemarker wraps maps into adapters that look up values on access, so a variable is only resolved when the
+ * template dereferences it. Every resolved value, including a missing one, is memoized for the lifetime of the view.
+ */
+final class LazyVariablesMap extends AbstractMap<String, String> {
+
+    // compared by identity, so it can't be confused with a variable that is an empty string
+    private static final String MISSING = new String("");
+
+    private final LazyTemplateConfigVariablesProvider provider;
+    private final Map<String, String> resolved = new ConcurrentHashMap<>();
+    private volatile Set<String> names;
+
+    LazyVariablesMap(LazyTemplateConfigVariablesProvider provider) {
+        this.provider = provider;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        String value = resolved.computeIfAbsent((String) key, name -> {
+            String variable = provider.getVariable(name);
+            return variable == null ? MISSING : variable;
+        });
+        return value == MISSING ? null : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                Iterator<Entry<String, String>> entries = entrySet().iterator();
+                return new Iterator<String>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return entries.next().getKey();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return LazyVariablesMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        return new AbstractSet<Entry<String, String>>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new ResolvingIterator(names().iterator());
+            }
+
+            // counts the names without resolving them, as a provider only names variables it has
+            @Override
+            public int size() {
+                return names().size();
+            }
+        };
+    }
+
+    /**
+     * @return names of the variables of the provider, without resolving them
+     */
+    Set<String> names() {
+        Set<String> variableNames = names;
+        if (variableNames == null) {
+            variableNames = provider.getVariableNames();
+            names = variableNames;
+        }
+        return variableNames;
+    }
+
+    /**
+     * Iterates over the entries of all variable names that resolve to a value
+     */
+    private final class ResolvingIterator implements Iterator<Entry<String, String>> {
+
+        private final Iterator<String> names;
+        private Entry<String, String> next;
+
+        private ResolvingIterator(Iterator<String> names) {
+            this.names = names;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && names.hasNext()) {
+                String name = names.next();
+                String value = get(name);
+                if (value != null) {
+                    next = new SimpleImmutableEntry<>(name, value);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, String> entry = next;
+            next = null;
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,752 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Variables file that is memory-mapped instead of loaded onto the heap.
+ *
+ * <p>Opening the file scans it once and indexes the byte offsets of each key and value, along with the hash of the
+ * key. Keys are only decoded to compare them on a hash match, and values are only decoded when they are looked up, so
+ * heap use and lookup cost stay proportional to the variables a template actually uses, not to the size of the file.
+ * Later definitions of a key override earlier ones, as they do when the file is loaded as a whole.
+ *
+ * <p>Supported formats:
+ * <ul>
+ * <li>{@link Format#PROPERTIES}: the format of {@link java.util.Properties#load(java.io.InputStream)}, ISO 8859-1
+ * encoded with escapes and line continuations.</li>
+ * <li>{@link Format#YAML}: a flat YAML mapping of plain, single- or double-quoted scalars, UTF-8 encoded. Values that
+ * are empty, {@code ~} or {@code null} are missing.</li>
+ * <li>{@link Format#JSON}: a flat JSON object, UTF-8 encoded. Numbers and booleans are taken as written, {@code null}
+ * values are missing.</li>
+ * </ul>
+ * Nested mappings, sequences and any other structure are rejected with an {@link IllegalArgumentException}.
+ */
+final class MappedVariablesFile {
+
+    /**
+     * Formats of variables files
+     */
+    enum Format {
+        PROPERTIES,
+        YAML,
+        JSON
+    }
+
+    // entry slots store the entry index plus one, so zero marks an empty slot
+    private static final int EMPTY = 0;
+    // value start of keys with a null value
+    private static final int NULL_VALUE = -1;
+
+    private final Path path;
+    private final Format format;
+    private final ByteBuffer buffer;
+    private final int limit;
+
+    // key start, key end, value start and value end of each entry
+    private int[] spans = new int[64];
+    private int[] hashes = new int[16];
+    private int entryCount;
+
+    private int[] slots;
+    private int size;
+
+    private MappedVariablesFile(Path path, Format format, ByteBuffer buffer) {
+        this.path = path;
+        this.format = format;
+        this.buffer = buffer;
+        this.limit = buffer.limit();
+    }
+
+    /**
+     * Maps and indexes a variables file.
+     *
+     * @param path variables file
+     * @param format format of the file
+     * @return mapped variables
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the file is malformed, too large to be mapped or not flat
+     */
+    static MappedVariablesFile map(Path path, Format format) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Variables file " + path + " is larger than 2 GB.");
+            }
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        MappedVariablesFile file = new MappedVariablesFile(path, format, buffer);
+        switch (format) {
+            case PROPERTIES:
+                file.scanProperties();
+                break;
+            case YAML:
+                file.scanYaml();
+                break;
+            default:
+                file.scanJson();
+        }
+        file.buildSlots();
+        return file;
+    }
+
+    /**
+     * @param name name of the variable
+     * @return the decoded value of the variable, or {@code null} if the file doesn't define it
+     */
+    String get(String name) {
+        int entry = find(name);
+        if (entry < 0 || spans[entry * 4 + 2] == NULL_VALUE) {
+            return null;
+        }
+        StringBuilder value = new StringBuilder(spans[entry * 4 + 3] - spans[entry * 4 + 2]);
+        decode(spans[entry * 4 + 2], spans[entry * 4 + 3], value::append);
+        return value.toString();
+    }
+
+    /**
+     * Decodes the names of all variables, which is as expensive as loading the whole file.
+     *
+     * @return names of the variables with a value
+     */
+    Set<String> names() {
+        Set<String> names = new HashSet<>(size * 2);
+        for (int slot : slots) {
+            if (slot != EMPTY && spans[(slot - 1) * 4 + 2] != NULL_VALUE) {
+                names.add(key(slot - 1));
+            }
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+    /**
+     * @return number of variables with a value
+     */
+    int size() {
+        return size;
+    }
+
+    private int find(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = spread(hash) & mask; slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int entry = slots[slot] - 1;
+            if (hashes[entry] == hash && keyEquals(entry, name)) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int entry, String name) {
+        KeyComparison comparison = new KeyComparison(name);
+        decode(spans[entry * 4], spans[entry * 4 + 1], comparison);
+        return comparison.matches();
+    }
+
+    private String key(int entry) {
+        StringBuilder key = new StringBuilder();
+        decode(spans[entry * 4], spans[entry * 4 + 1], key::append);
+        return key.toString();
+    }
+
+    private void buildSlots() {
+        int capacity = Integer.highestOneBit(Math.max(entryCount, 2) * 2 - 1) << 1;
+        slots = new int[capacity];
+        int mask = capacity - 1;
+        for (int entry = 0; entry < entryCount; entry++) {
+            int slot = spread(hashes[entry]) & mask;
+            while (slots[slot] != EMPTY
+                && !(hashes[slots[slot] - 1] == hashes[entry] && key(slots[slot] - 1).equals(key(entry)))) {
+                slot = (slot + 1) & mask;
+            }
+            if (slots[slot] != EMPTY && spans[(slots[slot] - 1) * 4 + 2] != NULL_VALUE) {
+                size--;
+            }
+            slots[slot] = entry + 1;
+            if (spans[entry * 4 + 2] != NULL_VALUE) {
+                size++;
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void addEntry(int keyStart, int keyEnd, int valueStart, int valueEnd) {
+        if (entryCount == hashes.length) {
+            hashes = Arrays.copyOf(hashes, entryCount * 2);
+            spans = Arrays.copyOf(spans, entryCount * 8);
+        }
+        KeyHash hash = new KeyHash();
+        decode(keyStart, keyEnd, hash);
+        hashes[entryCount] = hash.hash;
+        spans[entryCount * 4] = keyStart;
+        spans[entryCount * 4 + 1] = keyEnd;
+        spans[entryCount * 4 + 2] = valueStart;
+        spans[entryCount * 4 + 3] = valueEnd;
+        entryCount++;
+    }
+
+    private int at(int position) {
+        return buffer.get(position) & 0xff;
+    }
+
+    private IllegalArgumentException malformed(String problem, int position) {
+        int line = 1;
+        for (int i = 0; i < position && i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                line++;
+            }
+        }
+        return new IllegalArgumentException(
+            "Malformed " + format.name().toLowerCase() + " variables file " + path + " at line " + line + ": "
+                + problem + ".");
+    }
+
+    // properties
+
+    private void scanProperties() {
+        int position = 0;
+        while (position < limit) {
+            position = skipPropertiesWhitespace(position);
+            if (position >= limit) {
+                break;
+            }
+            int c = at(position);
+            if (c == '\n' || c == '\r') {
+                position++;
+                continue;
+            }
+            if (c == '#' || c == '!') {
+                position = endOfLine(position);
+                continue;
+            }
+            int keyStart = position;
+            while (position < limit) {
+                c = at(position);
+                if (c == '\\') {
+                    position = skipPropertiesEscape(position);
+                } else if (c == '=' || c == ':' || isPropertiesWhitespace(c) || c == '\n' || c == '\r') {
+                    break;
+                } else {
+                    position++;
+                }
+            }
+            int keyEnd = position;
+            position = skipPropertiesWhitespace(position);
+            if (position < limit && (at(position) == '=' || at(position) == ':')) {
+                position = skipPropertiesWhitespace(position + 1);
+            }
+            int valueStart = position;
+            while (position < limit && at(position) != '\n' && at(position) != '\r') {
+                position = at(position) == '\\' ? skipPropertiesEscape(position) : position + 1;
+            }
+            addEntry(keyStart, keyEnd, valueStart, position);
+        }
+    }
+
+    private int skipPropertiesEscape(int position) {
+        position += 2;
+        if (position - 1 < limit) {
+            int escaped = at(position - 1);
+            if (escaped == '\r' || escaped == '\n') {
+                if (escaped == '\r' && position < limit && at(position) == '\n') {
+                    position++;
+                }
+                position = skipPropertiesWhitespace(position);
+            }
+        }
+        return Math.min(position, limit);
+    }
+
+    private int skipPropertiesWhitespace(int position) {
+        while (position < limit && isPropertiesWhitespace(at(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isPropertiesWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\f';
+    }
+
+    private void decodeProperties(int start, int end, CharSink sink) {
+        int position = start;
+        while (position < end) {
+            int c = at(position++);
+            if (c != '\\') {
+                sink.put((char) c);
+                continue;
+            }
+            if (position >= end) {
+                break;
+            }
+            c = at(position++);
+            switch (c) {
+                case '\r':
+                case '\n':
+                    if (c == '\r' && position < end && at(position) == '\n') {
+                        position++;
+                    }
+                    position = Math.min(skipPropertiesWhitespace(position), end);
+                    break;
+                case 'u':
+                    if (position + 4 > end) {
+                        throw malformed("malformed \\uxxxx encoding", position);
+                    }
+                    sink.put((char) hex(position, 4));
+                    position += 4;
+                    break;
+                case 't':
+                    sink.put('\t');
+                    break;
+                case 'r':
+                    sink.put('\r');
+                    break;
+                case 'n':
+                    sink.put('\n');
+                    break;
+                case 'f':
+                    sink.put('\f');
+                    break;
+                default:
+                    sink.put((char) c);
+            }
+        }
+    }
+
+    // yaml
+
+    private void scanYaml() {
+        int position = skipByteOrderMark();
+        while (position < limit) {
+            int lineEnd = endOfLine(position);
+            int c = at(position);
+            if (c == ' ' || c == '\t') {
+                int content = skipBlanks(position);
+                if (content < limit && at(content) != '\n' && at(content) != '\r' && at(content) != '#') {
+                    throw malformed("only flat mappings are supported", position);
+                }
+            } else if (c == '-' && startsWith(position, "---") || c == '.' && startsWith(position, "...")) {
+                if (position + 3 < limit && !isLineBreakOrBlank(at(position + 3))) {
+                    throw malformed("only flat mappings are supported", position);
+                }
+            } else if (c != '\n' && c != '\r' && c != '#') {
+                scanYamlEntry(position);
+            }
+            position = lineEnd;
+        }
+    }
+
+    private void scanYamlEntry(int position) {
+        int keyStart = position;
+        int keyEnd;
+        int c = at(position);
+        if (c == '"' || c == '\'') {
+            keyEnd = endOfYamlQuoted(position);
+            position = skipBlanks(keyEnd);
+            if (position >= limit || at(position) != ':') {
+                throw malformed("expected ':' after the key", position);
+            }
+        } else {
+            boolean indicator = c == '-' || c == '?';
+            if (indicator && (position + 1 >= limit || isLineBreakOrBlank(at(position + 1)))
+                || c == '[' || c == '{' || c == '%' || c == '&' || c == '*' || c == '!') {
+                throw malformed("only flat mappings are supported", position);
+            }
+            while (position < limit && !(at(position) == ':'
+                && (position + 1 >= limit || isLineBreakOrBlank(at(position + 1))))) {
+                if (at(position) == '\n' || at(position) == '\r') {
+                    throw malformed("expected ':' after the key", position);
+                }
+                position++;
+            }
+            if (position >= limit) {
+                throw malformed("expected ':' after the key", position);
+            }
+            keyEnd = position;
+            while (keyEnd > keyStart && (at(keyEnd - 1) == ' ' || at(keyEnd - 1) == '\t')) {
+                keyEnd--;
+            }
+        }
+        position = skipBlanks(position + 1);
+        int valueStart = position;
+        int valueEnd;
+        c = position < limit ? at(position) : '\n';
+        if (c == '"' || c == '\'') {
+            valueEnd = endOfYamlQuoted(position);
+            position = skipBlanks(valueEnd);
+            if (position < limit && at(position) != '#' && at(position) != '\n' && at(position) != '\r') {
+                throw malformed("unexpected characters after the value", position);
+            }
+        } else if (c == '\n' || c == '\r' || c == '#') {
+            valueStart = NULL_VALUE;
+            valueEnd = NULL_VALUE;
+        } else {
+            if (c == '[' || c == '{' || c == '|' || c == '>' || c == '&' || c == '*' || c == '!') {
+                throw malformed("only plain and quoted scalar values are supported", position);
+            }
+            valueEnd = position;
+            while (position < limit && at(position) != '\n' && at(position) != '\r'
+                && !(at(position) == '#' && (at(position - 1) == ' ' || at(position - 1) == '\t'))) {
+                position++;
+                if (at(position - 1) != ' ' && at(position - 1) != '\t') {
+                    valueEnd = position;
+                }
+            }
+            if (isYamlNull(valueStart, valueEnd)) {
+                valueStart = NULL_VALUE;
+                valueEnd = NULL_VALUE;
+            }
+        }
+        addEntry(keyStart, keyEnd, valueStart, valueEnd);
+    }
+
+    private int endOfYamlQuoted(int position) {
+        int quote = at(position++);
+        while (position < limit) {
+            int c = at(position);
+            if (c == '\n' || c == '\r') {
+                break;
+            } else if (quote == '"' && c == '\\') {
+                position += 2;
+            } else if (c == quote) {
+                if (quote == '\'' && position + 1 < limit && at(position + 1) == '\'') {
+                    position += 2;
+                } else {
+                    return position + 1;
+                }
+            } else {
+                position++;
+            }
+        }
+        throw malformed("quoted scalars must end on the same line", position);
+    }
+
+    private boolean isYamlNull(int start, int end) {
+        int length = end - start;
+        return length == 1 && at(start) == '~'
+            || length == 4 && (startsWith(start, "null") || startsWith(start, "Null") || startsWith(start, "NULL"));
+    }
+
+    private void decodeYaml(int start, int end, CharSink sink) {
+        int c = at(start);
+        if (c == '\'') {
+            int position = start + 1;
+            while (position < end - 1) {
+                if (at(position) == '\'') {
+                    position++;
+                }
+                position = decodeUtf8(position, sink);
+            }
+        } else if (c == '"') {
+            decodeEscaped(start + 1, end - 1, sink, true);
+        } else {
+            int position = start;
+            while (position < end) {
+                position = decodeUtf8(position, sink);
+            }
+        }
+    }
+
+    // json
+
+    private void scanJson() {
+        int position = skipJsonWhitespace(skipByteOrderMark());
+        if (position >= limit || at(position) != '{') {
+            throw malformed("expected an object", position);
+        }
+        position = skipJsonWhitespace(position + 1);
+        if (position < limit && at(position) == '}') {
+            position++;
+        } else {
+            while (true) {
+                if (position >= limit || at(position) != '"') {
+                    throw malformed("expected a key", position);
+                }
+                int keyStart = position;
+                int keyEnd = endOfJsonString(position);
+                position = skipJsonWhitespace(keyEnd);
+                if (position >= limit || at(position) != ':') {
+                    throw malformed("expected ':' after the key", position);
+                }
+                position = skipJsonWhitespace(position + 1);
+                int valueStart = position;
+                int c = position < limit ? at(position) : -1;
+                if (c == '"') {
+                    position = endOfJsonString(position);
+                } else if (c == '{' || c == '[') {
+                    throw malformed("only flat objects are supported", position);
+                } else {
+                    while (position < limit && (at(position) < 0x80 && Character.isLetterOrDigit(at(position))
+                        || at(position) == '-' || at(position) == '+' || at(position) == '.')) {
+                        position++;
+                    }
+                    if (position == valueStart) {
+                        throw malformed("expected a value", position);
+                    }
+                }
+                if (position - valueStart == 4 && startsWith(valueStart, "null")) {
+                    addEntry(keyStart, keyEnd, NULL_VALUE, NULL_VALUE);
+                } else {
+                    addEntry(keyStart, keyEnd, valueStart, position);
+                }
+                position = skipJsonWhitespace(position);
+                if (position < limit && at(position) == ',') {
+                    position = skipJsonWhitespace(position + 1);
+                } else if (position < limit && at(position) == '}') {
+                    position++;
+                    break;
+                } else {
+                    throw malformed("expected ',' or '}'", position);
+                }
+            }
+        }
+        if (skipJsonWhitespace(position) < limit) {
+            throw malformed("unexpected characters after the object", position);
+        }
+    }
+
+    private int endOfJsonString(int position) {
+        position++;
+        while (position < limit) {
+            int c = at(position);
+            if (c == '\\') {
+                position += 2;
+            } else if (c == '"') {
+                return position + 1;
+            } else {
+                position++;
+            }
+        }
+        throw malformed("unterminated string", position);
+    }
+
+    private int skipJsonWhitespace(int position) {
+        while (position < limit && (at(position) == ' ' || at(position) == '\t' || at(position) == '\n'
+            || at(position) == '\r')) {
+            position++;
+        }
+        return position;
+    }
+
+    private void decodeJson(int start, int end, CharSink sink) {
+        if (at(start) == '"') {
+            decodeEscaped(start + 1, end - 1, sink, false);
+        } else {
+            for (int position = start; position < end; position++) {
+                sink.put((char) at(position));
+            }
+        }
+    }
+
+    // shared
+
+    private void decode(int start, int end, CharSink sink) {
+        switch (format) {
+            case PROPERTIES:
+                decodeProperties(start, end, sink);
+                break;
+            case YAML:
+                decodeYaml(start, end, sink);
+                break;
+            default:
+                decodeJson(start, end, sink);
+        }
+    }
+
+    /**
+     * Decodes the content of a double-quoted YAML scalar or JSON string, which share their common escapes
+     */
+    private void decodeEscaped(int start, int end, CharSink sink, boolean yaml) {
+        int position = start;
+        while (position < end) {
+            if (at(position) != '\\') {
+                position = decodeUtf8(position, sink);
+                continue;
+            }
+            int c = at(position + 1);
+            position += 2;
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    sink.put((char) c);
+                    break;
+                case 'b':
+                    sink.put('\b');
+                    break;
+                case 'f':
+                    sink.put('\f');
+                    break;
+                case 'n':
+                    sink.put('\n');
+                    break;
+                case 'r':
+                    sink.put('\r');
+                    break;
+                case 't':
+                    sink.put('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > end) {
+                        throw malformed("malformed \\u escape", position);
+                    }
+                    sink.put((char) hex(position, 4));
+                    position += 4;
+                    break;
+                default:
+                    if (yaml && c == '0') {
+                        sink.put('\0');
+                    } else if (yaml && c == ' ') {
+                        sink.put(' ');
+                    } else if (yaml && c == 'x' && position + 2 <= end) {
+                        sink.put((char) hex(position, 2));
+                        position += 2;
+                    } else if (yaml && c == 'U' && position + 8 <= end) {
+                        putCodePoint(hex(position, 8), sink);
+                        position += 8;
+                    } else {
+                        throw malformed("unsupported escape \\" + (char) c, position);
+                    }
+            }
+        }
+    }
+
+    private int hex(int position, int digits) {
+        int value = 0;
+        for (int i = position; i < position + digits; i++) {
+            int digit = Character.digit(at(i), 16);
+            if (digit < 0) {
+                throw malformed("malformed hexadecimal escape", i);
+            }
+            value = value * 16 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes the UTF-8 character at the given position, replacing malformed sequences like {@link String} does
+     *
+     * @return position of the next character
+     */
+    private int decodeUtf8(int position, CharSink sink) {
+        int c = at(position);
+        int length = c < 0x80 ? 1 : c >= 0xf0 && c < 0xf8 ? 4 : c >= 0xe0 ? 3 : c >= 0xc0 ? 2 : 0;
+        if (length == 1) {
+            sink.put((char) c);
+            return position + 1;
+        }
+        if (length == 0 || position + length > limit) {
+            sink.put('\uFFFD');
+            return position + 1;
+        }
+        int codePoint = c & (0xff >> (length + 1));
+        for (int i = 1; i < length; i++) {
+            int continuation = at(position + i);
+            if ((continuation & 0xc0) != 0x80) {
+                sink.put('\uFFFD');
+                return position + i;
+            }
+            codePoint = codePoint << 6 | continuation & 0x3f;
+        }
+        putCodePoint(codePoint, sink);
+        return position + length;
+    }
+
+    private static void putCodePoint(int codePoint, CharSink sink) {
+        if (!Character.isValidCodePoint(codePoint)) {
+            sink.put('\uFFFD');
+        } else if (Character.isBmpCodePoint(codePoint)) {
+            sink.put((char) codePoint);
+        } else {
+            sink.put(Character.highSurrogate(codePoint));
+            sink.put(Character.lowSurrogate(codePoint));
+        }
+    }
+
+    private int skipByteOrderMark() {
+        return limit >= 3 && at(0) == 0xef && at(1) == 0xbb && at(2) == 0xbf ? 3 : 0;
+    }
+
+    private int skipBlanks(int position) {
+        while (position < limit && (at(position) == ' ' || at(position) == '\t')) {
+            position++;
+        }
+        return position;
+    }
+
+    private int endOfLine(int position) {
+        while (position < limit && at(position) != '\n' && at(position) != '\r') {
+            position++;
+        }
+        return position < limit ? position + 1 : position;
+    }
+
+    private boolean startsWith(int position, String prefix) {
+        if (position + prefix.length() > limit) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (at(position + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLineBreakOrBlank(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Receives decoded characters, so keys can be hashed and compared without creating strings
+     */
+    private interface CharSink {
+
+        void put(char c);
+    }
+
+    private static final class KeyHash implements CharSink {
+
+        private int hash;
+
+        @Override
+        public void put(char c) {
+            hash = 31 * hash + c;
+        }
+    }
+
+    private static final class KeyComparison implements CharSink {
+
+        private final String name;
+        private int length;
+        private boolean mismatch;
+
+        private KeyComparison(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void put(char c) {
+            if (length >= name.length() || name.charAt(length) != c) {
+                mismatch = true;
+            }
+            length++;
+        }
+
+        private boolean matches() {
+            return !mismatch && length == name.length();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Provider backed by a memory-mapped variables file, see {@link MappedVariablesFile}.
+ *
+ * <p>The file is mapped and indexed on first access. Before every render, and before every direct lookup with
+ * {@link #getVariable(String)}, the size, modification time and identity of the file are checked, and the file is
+ * mapped again if any of them changed. A render reads the snapshot that was current when it started, so a file that
+ * is replaced by renaming a new file over it, like config agents usually do, is picked up by the next render. A file
+ * rewritten or truncated in place while it's mapped can't be read safely: reads past its new end fail with an
+ * {@link InternalError}.
+ */
+final class MappedVariablesProvider implements LazyTemplateConfigVariablesProvider {
+
+    private final String namespace;
+    private final Path file;
+    private final MappedVariablesFile.Format format;
+    private volatile Snapshot snapshot;
+
+    MappedVariablesProvider(String namespace, Path file, MappedVariablesFile.Format format) {
+        if (namespace.trim().isEmpty()) {
+            throw new IllegalArgumentException("Namespace cannot be blank.");
+        }
+        if (file == null) {
+            throw new NullPointerException("Provided variables file must not be null.");
+        }
+        this.namespace = namespace;
+        this.file = file;
+        this.format = format;
+    }
+
+    @Override
+    public String getNamespace() {
+        return namespace;
+    }
+
+    @Override
+    public String getVariable(String name) {
+        return current().getVariable(name);
+    }
+
+    @Override
+    public Set<String> getVariableNames() {
+        return current().getVariableNames();
+    }
+
+    @Override
+    public Map<String, String> getVariables() {
+        // one snapshot for the whole render
+        return new LazyVariablesMap(current());
+    }
+
+    private Snapshot current() {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read variables from " + file, e);
+        }
+        Snapshot current = snapshot;
+        if (current != null && current.isCurrent(attributes)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || !current.isCurrent(attributes)) {
+                try {
+                    current = new Snapshot(MappedVariablesFile.map(file, format), attributes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not read variables from " + file, e);
+                }
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Variables of the file as it was when it was mapped
+     */
+    private final class Snapshot implements LazyTemplateConfigVariablesProvider {
+
+        private final MappedVariablesFile variables;
+        private final Object fileKey;
+        private final FileTime lastModified;
+        private final long size;
+
+        private Snapshot(MappedVariablesFile variables, BasicFileAttributes attributes) {
+            this.variables = variables;
+            this.fileKey = attributes.fileKey();
+            this.lastModified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+        }
+
+        private boolean isCurrent(BasicFileAttributes attributes) {
+            return Objects.equals(fileKey, attributes.fileKey()) && lastModified.equals(attributes.lastModifiedTime())
+                && size == attributes.size();
+        }
+
+        @Override
+        public String getNamespace() {
+            return namespace;
+        }
+
+        @Override
+        public String getVariable(String name) {
+            return variables.get(name);
+        }
+
+        @Override
+        public Set<String> getVariableNames() {
+            return variables.names();
+        }
+    }
+}
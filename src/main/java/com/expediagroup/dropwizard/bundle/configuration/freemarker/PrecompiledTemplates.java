@@ -0,0 +1,159 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Config templates validated at build time by {@link TemplatePrecompiler}, keyed by the SHA-256 of their source.
+ * Templates that only use plain interpolations come with their {@link SubstitutionPlan}, so they don't need to be
+ * parsed at all.
+ *
+ * <p>The artifact starts with a magic number and a format version, followed by the number of templates. Each template
+ * is its source digest, whether a plan follows, and the plan. Artifacts of every jar on the class path are merged.
+ */
+final class PrecompiledTemplates {
+
+    static final String RESOURCE = "META-INF/dropwizard-template-config/precompiled-templates.bin";
+
+    static final PrecompiledTemplates NONE = new PrecompiledTemplates(Collections.emptyMap());
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrecompiledTemplates.class);
+
+    private static final int MAGIC = 0x44575443;
+    private static final int FORMAT_VERSION = 1;
+    private static final int DIGEST_LENGTH = 32;
+    private static final byte[] NO_PLAN = new byte[0];
+
+    // plans are kept serialized and only read for templates that are actually opened
+    private final Map<String, byte[]> plans;
+
+    private PrecompiledTemplates(Map<String, byte[]> plans) {
+        this.plans = plans;
+    }
+
+    /**
+     * Loads and merges the artifacts of the class path. Artifacts that cannot be read are logged and skipped, their
+     * templates are then parsed at runtime as usual.
+     *
+     * @param classLoader class loader to look up the artifacts with
+     * @return precompiled templates, empty if there's no artifact
+     */
+    static PrecompiledTemplates load(ClassLoader classLoader) {
+        Map<String, byte[]> plans = new HashMap<>();
+        try {
+            Enumeration<URL> resources = classLoader.getResources(RESOURCE);
+            while (resources.hasMoreElements()) {
+                URL resource = resources.nextElement();
+                try (InputStream in = resource.openStream()) {
+                    read(new DataInputStream(new BufferedInputStream(in)), plans);
+                } catch (IOException e) {
+                    LOGGER.warn("Ignoring precompiled templates {} that cannot be read", resource, e);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not look up precompiled templates", e);
+        }
+        if (plans.isEmpty()) {
+            return NONE;
+        }
+        LOGGER.debug("Loaded {} precompiled templates", plans.size());
+        return new PrecompiledTemplates(plans);
+    }
+
+    private static void read(DataInputStream in, Map<String, byte[]> plans) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a precompiled templates artifact.");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported format version " + version + ", expected " + FORMAT_VERSION + ".");
+        }
+        int count = in.readInt();
+        Map<String, byte[]> read = new HashMap<>();
+        byte[] digest = new byte[DIGEST_LENGTH];
+        for (int i = 0; i < count; i++) {
+            in.readFully(digest);
+            byte[] plan = NO_PLAN;
+            if (in.readBoolean()) {
+                plan = new byte[in.readInt()];
+                in.readFully(plan);
+            }
+            read.put(Digests.toHex(digest), plan);
+        }
+        // only add artifacts that could be read completely
+        plans.putAll(read);
+    }
+
+    /**
+     * Writes an artifact.
+     *
+     * @param plans serialized plans, or empty arrays for templates without plan, by the hex encoded SHA-256 of their
+     *     source
+     * @param out output to write to
+     * @throws IOException if writing fails
+     */
+    static void write(Map<String, byte[]> plans, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(plans.size());
+        for (Map.Entry<String, byte[]> plan : plans.entrySet()) {
+            data.write(fromHex(plan.getKey()));
+            data.writeBoolean(plan.getValue().length > 0);
+            if (plan.getValue().length > 0) {
+                data.writeInt(plan.getValue().length);
+                data.write(plan.getValue());
+            }
+        }
+        data.flush();
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() != DIGEST_LENGTH * 2) {
+            throw new IllegalArgumentException("Not a SHA-256 digest: " + hex);
+        }
+        byte[] bytes = new byte[DIGEST_LENGTH];
+        for (int i = 0; i < DIGEST_LENGTH; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    /**
+     * Looks up a template validated at build time.
+     *
+     * @param source the template source
+     * @param freemarkerTemplate template to delegate renders to that cannot be handled by the plan
+     * @return empty if the template wasn't precompiled, otherwise its substitution plan, or the freemarker template if
+     *     it needs freemarker. The freemarker template isn't parsed in either case.
+     * @throws IOException if the plan cannot be read
+     */
+    Optional<CompiledTemplate> find(String source, CompiledTemplate freemarkerTemplate) throws IOException {
+        if (plans.isEmpty()) {
+            return Optional.empty();
+        }
+        byte[] plan = plans.get(Digests.sha256Hex(source));
+        if (plan == null) {
+            return Optional.empty();
+        }
+        if (plan.length == 0) {
+            return Optional.of(freemarkerTemplate);
+        }
+        return Optional.of(
+            SubstitutionPlan.read(new DataInputStream(new ByteArrayInputStream(plan)), source, freemarkerTemplate));
+    }
+}
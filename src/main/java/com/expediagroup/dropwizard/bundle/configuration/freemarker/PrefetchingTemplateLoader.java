@@ -0,0 +1,210 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import freemarker.cache.TemplateLoader;
+
+/**
+ * {@link TemplateLoader} serving templates that were loaded ahead of rendering from memory.
+ *
+ * <p>Every render prefetches into its own {@link Prefetch}, whose {@link Prefetch#prefetch(String, String)} may be
+ * called concurrently. While a template wrapped by {@link Prefetch#serving(CompiledTemplate)} renders, lookups of
+ * prefetched names, including names known to be missing, don't touch the underlying loader. Everything else, and
+ * every lookup outside of such a render, is delegated, so concurrent renders never see each other's prefetches.
+ * Prefetched templates are equal if their name, source and modification time are, so freemarker's template cache
+ * keeps the parsed includes between renders.
+ */
+final class PrefetchingTemplateLoader implements TemplateLoader {
+
+    private static final Object MISSING = new Object();
+
+    private final TemplateLoader delegate;
+    private final ThreadLocal<Prefetch> active = new ThreadLocal<>();
+
+    PrefetchingTemplateLoader(TemplateLoader delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return new, empty prefetch for one render
+     */
+    Prefetch newPrefetch() {
+        return new Prefetch();
+    }
+
+    @Override
+    public Object findTemplateSource(String name) throws IOException {
+        Prefetch prefetch = active.get();
+        Object cached = prefetch != null ? prefetch.templates.get(name) : null;
+        if (cached == null) {
+            return delegate.findTemplateSource(name);
+        }
+        return cached == MISSING ? null : cached;
+    }
+
+    @Override
+    public long getLastModified(Object templateSource) {
+        return templateSource instanceof PrefetchedTemplate
+            ? ((PrefetchedTemplate) templateSource).lastModified : delegate.getLastModified(templateSource);
+    }
+
+    @Override
+    public Reader getReader(Object templateSource, String encoding) throws IOException {
+        if (!(templateSource instanceof PrefetchedTemplate)) {
+            return delegate.getReader(templateSource, encoding);
+        }
+        PrefetchedTemplate template = (PrefetchedTemplate) templateSource;
+        if (template.encoding.equalsIgnoreCase(encoding)) {
+            return new StringReader(template.source);
+        }
+        // e.g. an include with an explicit encoding, read it again
+        Object delegateSource = delegate.findTemplateSource(template.name);
+        if (delegateSource == null) {
+            throw new IOException("Template " + template.name + " disappeared while rendering.");
+        }
+        return new ClosingReader(delegate.getReader(delegateSource, encoding), delegateSource);
+    }
+
+    @Override
+    public void closeTemplateSource(Object templateSource) throws IOException {
+        if (!(templateSource instanceof PrefetchedTemplate)) {
+            delegate.closeTemplateSource(templateSource);
+        }
+    }
+
+    /**
+     * Templates prefetched for one render
+     */
+    final class Prefetch {
+
+        private final Map<String, Object> templates = new ConcurrentHashMap<>();
+
+        private Prefetch() {
+        }
+
+        /**
+         * Loads a template from the underlying loader and keeps it in memory.
+         *
+         * @param name template name
+         * @param encoding encoding to read the template with
+         * @return the template source, or {@code null} if there's no such template
+         * @throws IOException if the template cannot be read
+         */
+        String prefetch(String name, String encoding) throws IOException {
+            Object cached = templates.get(name);
+            if (cached != null) {
+                return cached == MISSING ? null : ((PrefetchedTemplate) cached).source;
+            }
+            Object templateSource = delegate.findTemplateSource(name);
+            if (templateSource == null) {
+                templates.put(name, MISSING);
+                return null;
+            }
+            try (Reader reader = delegate.getReader(templateSource, encoding)) {
+                StringBuilder source = new StringBuilder();
+                char[] buffer = new char[4096];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    source.append(buffer, 0, read);
+                }
+                PrefetchedTemplate template = new PrefetchedTemplate(name, source.toString(), encoding,
+                    delegate.getLastModified(templateSource));
+                templates.put(name, template);
+                return template.source;
+            } finally {
+                delegate.closeTemplateSource(templateSource);
+            }
+        }
+
+        /**
+         * Wraps a template so the templates of this prefetch are served while it renders, on whatever thread that is.
+         *
+         * @param template the template to render
+         * @return the wrapped template
+         */
+        CompiledTemplate serving(CompiledTemplate template) {
+            return (dataModel, out) -> {
+                Prefetch previous = active.get();
+                active.set(this);
+                try {
+                    template.render(dataModel, out);
+                } finally {
+                    if (previous != null) {
+                        active.set(previous);
+                    } else {
+                        active.remove();
+                    }
+                }
+            };
+        }
+    }
+
+    private static final class PrefetchedTemplate {
+
+        private final String name;
+        private final String source;
+        private final String encoding;
+        private final long lastModified;
+        private final int hashCode;
+
+        private PrefetchedTemplate(String name, String source, String encoding, long lastModified) {
+            this.name = name;
+            this.source = source;
+            this.encoding = encoding;
+            this.lastModified = lastModified;
+            this.hashCode = Objects.hash(name, source, encoding, lastModified);
+        }
+
+        // freemarker compares sources to tell whether a cached template is still current
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PrefetchedTemplate)) {
+                return false;
+            }
+            PrefetchedTemplate that = (PrefetchedTemplate) o;
+            return hashCode == that.hashCode && lastModified == that.lastModified && name.equals(that.name)
+                && encoding.equals(that.encoding) && source.equals(that.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Closes the template source of the underlying loader together with the reader
+     */
+    private final class ClosingReader extends Reader {
+
+        private final Reader reader;
+        private final Object delegateSource;
+
+        private ClosingReader(Reader reader, Object delegateSource) {
+            this.reader = reader;
+            this.delegateSource = delegateSource;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            return reader.read(buffer, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } finally {
+                delegate.closeTemplateSource(delegateSource);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.time.Duration;
+
+/**
+ * Snapshot of the counters of a {@link CachingVariablesProvider}.
+ */
+public final class ProviderCacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long loadCount;
+    private final long loadFailureCount;
+    private final long refreshCount;
+    private final Duration totalLoadTime;
+
+    ProviderCacheStats(long hitCount, long missCount, long loadCount, long loadFailureCount, long refreshCount,
+        Duration totalLoadTime) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadCount = loadCount;
+        this.loadFailureCount = loadFailureCount;
+        this.refreshCount = refreshCount;
+        this.totalLoadTime = totalLoadTime;
+    }
+
+    /**
+     * @return number of times variables were served from the cache
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of times variables had to be loaded, or waited for while another caller loaded them
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of times the underlying provider was called, including background refreshes and failures
+     */
+    public long getLoadCount() {
+        return loadCount;
+    }
+
+    /**
+     * @return number of times the underlying provider failed
+     */
+    public long getLoadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * @return number of background refreshes started before the variables expired
+     */
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     * @return time spent in the underlying provider
+     */
+    public Duration getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * @return average time of a call to the underlying provider, or zero if it hasn't been called yet
+     */
+    public Duration getAverageLoadTime() {
+        return loadCount == 0 ? Duration.ZERO : totalLoadTime.dividedBy(loadCount);
+    }
+
+    @Override
+    public String toString() {
+        return "ProviderCacheStats{"
+            + "hitCount=" + hitCount
+            + ", missCount=" + missCount
+            + ", loadCount=" + loadCount
+            + ", loadFailureCount=" + loadFailureCount
+            + ", refreshCount=" + refreshCount
+            + ", totalLoadTime=" + totalLoadTime
+            + '}';
+    }
+}
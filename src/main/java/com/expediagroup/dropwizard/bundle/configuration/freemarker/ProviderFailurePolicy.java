@@ -0,0 +1,19 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+/**
+ * What to do when a {@link TemplateConfigVariablesProvider} fails or doesn't return its variables in time.
+ */
+public enum ProviderFailurePolicy {
+
+    /**
+     * Fails the render. Failures are rethrown, timeouts are reported as an {@link IllegalStateException}.
+     */
+    FAIL_FAST,
+
+    /**
+     * Logs the failure and renders the template without the variables of the provider, so defaults in the template
+     * or variables of other providers of the same namespace apply.
+     */
+    FALLBACK
+
+}
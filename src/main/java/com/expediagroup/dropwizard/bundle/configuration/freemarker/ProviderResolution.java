@@ -0,0 +1,72 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.time.Duration;
+
+/**
+ * How resolving the variables of a {@link TemplateConfigVariablesProvider} went during the last render.
+ */
+public final class ProviderResolution {
+
+    private final TemplateConfigVariablesProvider provider;
+    private final Duration duration;
+    private final Outcome outcome;
+
+    ProviderResolution(TemplateConfigVariablesProvider provider, Duration duration, Outcome outcome) {
+        this.provider = provider;
+        this.duration = duration;
+        this.outcome = outcome;
+    }
+
+    /**
+     * @return the provider
+     */
+    public TemplateConfigVariablesProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * @return time it took the provider to return its variables, or the time waited for it if it timed out
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return whether the provider returned its variables
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    @Override
+    public String toString() {
+        return "ProviderResolution{"
+            + "namespace=" + provider.getNamespace()
+            + ", provider=" + provider.getClass().getName()
+            + ", duration=" + duration
+            + ", outcome=" + outcome
+            + '}';
+    }
+
+    /**
+     * Outcomes of resolving a provider
+     */
+    public enum Outcome {
+
+        /**
+         * The provider returned its variables
+         */
+        RESOLVED,
+
+        /**
+         * The provider threw an exception
+         */
+        FAILED,
+
+        /**
+         * The provider didn't return its variables within its timeout
+         */
+        TIMED_OUT
+
+    }
+}
@@ -0,0 +1,212 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves the variables of several providers concurrently.
+ *
+ * <p>Every provider is resolved on the executor of the bundle configuration, or on a shared executor using virtual
+ * threads where the JVM has them. Results are returned in the order of the providers, regardless of the order they
+ * complete in. Each provider is subject to its own timeout, counted from the start of the resolution, and failure
+ * policy. A provider that times out, or is still running when the resolution fails, is cancelled: the thread resolving
+ * it is interrupted, and a provider that hasn't started yet doesn't run at all. Providers ignoring interrupts keep
+ * their thread until they return.
+ */
+final class ProviderResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProviderResolver.class);
+
+    private ProviderResolver() {
+    }
+
+    /**
+     * Resolves the variables of the given providers.
+     *
+     * @param providers the providers, in merge order
+     * @param resolver function resolving the variables of a provider
+     * @param configuration configuration with the executor, timeouts and failure policies
+     * @return variables of the providers in the given order, empty for providers that fell back
+     * @throws IllegalStateException if a provider times out or fails with a checked exception and fails fast
+     */
+    static Result resolve(List<TemplateConfigVariablesProvider> providers,
+        Function<TemplateConfigVariablesProvider, Map<String, String>> resolver,
+        TemplateConfigBundleConfiguration configuration) {
+        int count = providers.size();
+        long[] durations = new long[count];
+        List<Future<Map<String, String>>> futures = new ArrayList<>(count);
+        long start = System.nanoTime();
+        if (count == 1 && !configuration.timeoutOf(providers.get(0)).isPresent()) {
+            // nothing to run concurrently with, and nothing to time out
+            futures.add(resolveInline(providers.get(0), resolver, durations));
+        } else {
+            Executor executor = configuration.providerExecutor().orElseGet(ProviderResolver::defaultExecutor);
+            for (int i = 0; i < count; i++) {
+                TemplateConfigVariablesProvider provider = providers.get(i);
+                int index = i;
+                // a future task interrupts the thread resolving the provider when it's cancelled
+                FutureTask<Map<String, String>> task =
+                    new FutureTask<>(() -> timed(provider, resolver, durations, index));
+                futures.add(task);
+                executor.execute(task);
+            }
+        }
+
+        List<Map<String, String>> variables = new ArrayList<>(count);
+        List<ProviderResolution> resolutions = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                TemplateConfigVariablesProvider provider = providers.get(i);
+                Optional<Duration> timeout = configuration.timeoutOf(provider);
+                try {
+                    Map<String, String> providerVariables = timeout.isPresent()
+                        ? futures.get(i).get(Math.max(0, start + timeout.get().toNanos() - System.nanoTime()),
+                            TimeUnit.NANOSECONDS)
+                        : futures.get(i).get();
+                    resolutions.add(resolution(provider, Duration.ofNanos(durations[i]),
+                        ProviderResolution.Outcome.RESOLVED));
+                    variables.add(providerVariables);
+                } catch (TimeoutException e) {
+                    futures.get(i).cancel(true);
+                    resolutions.add(resolution(provider, Duration.ofNanos(System.nanoTime() - start),
+                        ProviderResolution.Outcome.TIMED_OUT));
+                    if (configuration.failurePolicyOf(provider) == ProviderFailurePolicy.FAIL_FAST) {
+                        throw new IllegalStateException("Provider for namespace '" + provider.getNamespace()
+                            + "' did not return its variables within " + timeout.get() + ".", e);
+                    }
+                    LOGGER.warn("Provider for namespace '{}' did not return its variables within {}, rendering "
+                        + "without them", provider.getNamespace(), timeout.get());
+                    variables.add(Collections.emptyMap());
+                } catch (ExecutionException e) {
+                    resolutions.add(resolution(provider, Duration.ofNanos(durations[i]),
+                        ProviderResolution.Outcome.FAILED));
+                    if (configuration.failurePolicyOf(provider) == ProviderFailurePolicy.FAIL_FAST) {
+                        throw rethrow(provider, e.getCause());
+                    }
+                    LOGGER.warn("Provider for namespace '{}' failed, rendering without its variables",
+                        provider.getNamespace(), e.getCause());
+                    variables.add(Collections.emptyMap());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futures.forEach(f -> f.cancel(true));
+            throw new IllegalStateException("Interrupted while resolving variables.", e);
+        } catch (RuntimeException | Error e) {
+            futures.forEach(f -> f.cancel(true));
+            throw e;
+        }
+        return new Result(variables, resolutions);
+    }
+
+    /**
+     * @return shared executor running each task on a virtual thread where available, on a daemon thread otherwise
+     */
+    static Executor defaultExecutor() {
+        return DefaultExecutorHolder.executor();
+    }
+
+    private static CompletableFuture<Map<String, String>> resolveInline(TemplateConfigVariablesProvider provider,
+        Function<TemplateConfigVariablesProvider, Map<String, String>> resolver, long[] durations) {
+        CompletableFuture<Map<String, String>> future = new CompletableFuture<>();
+        try {
+            future.complete(timed(provider, resolver, durations, 0));
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private static Map<String, String> timed(TemplateConfigVariablesProvider provider,
+        Function<TemplateConfigVariablesProvider, Map<String, String>> resolver, long[] durations, int index) {
+        long start = System.nanoTime();
+        try {
+            return resolver.apply(provider);
+        } finally {
+            durations[index] = System.nanoTime() - start;
+        }
+    }
+
+    private static ProviderResolution resolution(TemplateConfigVariablesProvider provider, Duration duration,
+        ProviderResolution.Outcome outcome) {
+        ProviderResolution resolution = new ProviderResolution(provider, duration, outcome);
+        LOGGER.debug("{}", resolution);
+        return resolution;
+    }
+
+    private static RuntimeException rethrow(TemplateConfigVariablesProvider provider, Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException("Provider for namespace '" + provider.getNamespace() + "' failed.", cause);
+    }
+
+    /**
+     * Variables and resolution reports of all providers, in provider order
+     */
+    static final class Result {
+
+        private final List<Map<String, String>> variables;
+        private final List<ProviderResolution> resolutions;
+
+        private Result(List<Map<String, String>> variables, List<ProviderResolution> resolutions) {
+            this.variables = variables;
+            this.resolutions = Collections.unmodifiableList(resolutions);
+        }
+
+        List<Map<String, String>> variables() {
+            return variables;
+        }
+
+        List<ProviderResolution> resolutions() {
+            return resolutions;
+        }
+    }
+
+    /**
+     * Holder of the shared default executor, created on first use
+     */
+    private static final class DefaultExecutorHolder {
+
+        private static final Executor EXECUTOR = createExecutor();
+
+        static Executor executor() {
+            return EXECUTOR;
+        }
+
+        private static Executor createExecutor() {
+            try {
+                Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (Executor) newVirtualThreadPerTaskExecutor.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                AtomicInteger threadCount = new AtomicInteger();
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "template-config-provider-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+}
@@ -17,12 +17,20 @@ limitations under the License.
 package com.expediagroup.dropwizard.bundle.configuration.freemarker;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -95,13 +103,201 @@ public class Providers {
      */
     public static TemplateConfigVariablesProvider fromProperties(String namespace, URL propertiesURL) throws IOException {
         Properties properties = new Properties();
-        properties.load(propertiesURL.openStream());
+        try (InputStream propertiesStream = propertiesURL.openStream()) {
+            properties.load(propertiesStream);
+        }
         return fromProperties(namespace, properties);
     }
 
+    /**
+     * Creates {@link LazyTemplateConfigVariablesProvider} looking up system properties when they are accessed
+     *
+     * @return lazy provider with system properties
+     */
+    public static LazyTemplateConfigVariablesProvider lazyFromSystemProperties() {
+        return new LazyVariablesProvider(SYS_NAMESPACE, System::getProperty,
+            () -> System.getProperties().stringPropertyNames());
+    }
+
+    /**
+     * Creates {@link LazyTemplateConfigVariablesProvider} looking up environment properties when they are accessed
+     *
+     * @return lazy provider with environment properties
+     */
+    public static LazyTemplateConfigVariablesProvider lazyFromEnvironmentProperties() {
+        return new LazyVariablesProvider(ENV_NAMESPACE, System::getenv, () -> System.getenv().keySet());
+    }
+
+    /**
+     * Wraps a map into a {@link LazyTemplateConfigVariablesProvider} with given namespace. Values are looked up in the
+     * map when they are accessed, so it may be backed by e.g. a lazily loading map.
+     *
+     * @param namespace to use for provider
+     * @param variables to wrap into provider
+     * @return lazy provider with given namespace and map
+     */
+    public static LazyTemplateConfigVariablesProvider lazyFromMap(String namespace, Map<String, String> variables) {
+        Map<String, String> unmodifiableVariables = Collections.unmodifiableMap(variables);
+        return new LazyVariablesProvider(namespace, unmodifiableVariables::get, unmodifiableVariables::keySet);
+    }
+
+    /**
+     * Wraps properties into a {@link LazyTemplateConfigVariablesProvider} with given namespace, without copying them
+     *
+     * @param namespace to use for provider
+     * @param properties to wrap into provider
+     * @return lazy provider with given namespace and properties
+     */
+    public static LazyTemplateConfigVariablesProvider lazyFromProperties(String namespace, Properties properties) {
+        return new LazyVariablesProvider(namespace, properties::getProperty, properties::stringPropertyNames);
+    }
+
+    /**
+     * Creates {@link LazyTemplateConfigVariablesProvider} with given namespace that loads properties on first access
+     *
+     * @param namespace to use for provider
+     * @param propertiesURL URL to properties to wrap into provider
+     * @return lazy provider with given namespace and properties
+     * @throws UncheckedIOException on first access, if the properties cannot be loaded
+     */
+    public static LazyTemplateConfigVariablesProvider lazyFromProperties(String namespace, URL propertiesURL) {
+        Supplier<Properties> properties = memoize(() -> {
+            Properties loaded = new Properties();
+            try (InputStream propertiesStream = propertiesURL.openStream()) {
+                loaded.load(propertiesStream);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load properties from " + propertiesURL, e);
+            }
+            return loaded;
+        });
+        return new LazyVariablesProvider(namespace, name -> properties.get().getProperty(name),
+            () -> properties.get().stringPropertyNames());
+    }
+
+    /**
+     * Creates {@link LazyTemplateConfigVariablesProvider} with given namespace backed by a memory-mapped properties
+     * file. The file is indexed on first access, and values are only decoded when they are accessed, so heap use stays
+     * proportional to the variables the template uses, even for files with many thousands of them. The file is mapped
+     * again once its size, modification time or identity changed; replace it by renaming a new file over it rather
+     * than rewriting it in place.
+     *
+     * @param namespace to use for provider
+     * @param propertiesFile properties file, ISO 8859-1 encoded like {@link Properties#load(InputStream)} expects
+     * @return lazy provider with given namespace and properties
+     * @throws UncheckedIOException on access, if the file cannot be read
+     * @throws IllegalArgumentException on access, if the file is malformed
+     */
+    public static LazyTemplateConfigVariablesProvider lazyFromPropertiesFile(String namespace, Path propertiesFile) {
+        return lazyFromFile(namespace, propertiesFile, MappedVariablesFile.Format.PROPERTIES);
+    }
+
+    /**
+     * Creates {@link LazyTemplateConfigVariablesProvider} with given namespace backed by a memory-mapped YAML file
+     * holding a flat mapping of variables. The file is indexed on first access, and values are only decoded when they
+     * are accessed. Empty and {@code null} values are treated as missing. Changes are picked up like
+     * {@link #lazyFromPropertiesFile(String, Path)} picks them up.
+     *
+     * @param namespace to use for provider
+     * @param yamlFile UTF-8 encoded YAML file with a flat mapping of scalars
+     * @return lazy provider with given namespace and variables
+     * @throws UncheckedIOException on access, if the file cannot be read
+     * @throws IllegalArgumentException on access, if the file is malformed or not a flat mapping
+     */
+    public static LazyTemplateConfigVariablesProvider lazyFromYamlFile(String namespace, Path yamlFile) {
+        return lazyFromFile(namespace, yamlFile, MappedVariablesFile.Format.YAML);
+    }
+
+    /**
+     * Creates {@link LazyTemplateConfigVariablesProvider} with given namespace backed by a memory-mapped JSON file
+     * holding a flat object. The file is indexed on first access, and values are only decoded when they are accessed.
+     * Numbers and booleans are taken as written, {@code null} values are treated as missing. Changes are picked up like
+     * {@link #lazyFromPropertiesFile(String, Path)} picks them up.
+     *
+     * @param namespace to use for provider
+     * @param jsonFile UTF-8 encoded JSON file with a flat object
+     * @return lazy provider with given namespace and variables
+     * @throws UncheckedIOException on access, if the file cannot be read
+     * @throws IllegalArgumentException on access, if the file is malformed or not a flat object
+     */
+    public static LazyTemplateConfigVariablesProvider lazyFromJsonFile(String namespace, Path jsonFile) {
+        return lazyFromFile(namespace, jsonFile, MappedVariablesFile.Format.JSON);
+    }
+
+    /**
+     * Creates {@link LazyTemplateConfigVariablesProvider} with given namespace reading one variable per file from a
+     * directory, like the volumes Kubernetes mounts for secrets and config maps. File names are the variable names,
+     * and the file contents, without a trailing line break, their values. Hidden files are skipped. Listing the
+     * variables only reads the directory, and files are only read when the template dereferences their variable.
+     *
+     * @param namespace to use for provider
+     * @param directory directory with one file per variable
+     * @return lazy provider with given namespace reading the files on every render
+     * @throws UncheckedIOException on access, if the directory or a file cannot be read
+     */
+    public static LazyTemplateConfigVariablesProvider fromDirectory(String namespace, Path directory) {
+        return fromDirectory(namespace, directory, false);
+    }
+
+    /**
+     * Creates {@link LazyTemplateConfigVariablesProvider} with given namespace reading one variable per file from a
+     * directory, optionally caching the values. Cached values are only read again once the modification time or size
+     * of their file changed, so renders on reload don't reread unchanged files.
+     *
+     * @param namespace to use for provider
+     * @param directory directory with one file per variable
+     * @param cacheValues whether to cache the values until their file changes
+     * @return lazy provider with given namespace
+     * @throws UncheckedIOException on access, if the directory or a file cannot be read
+     * @see #fromDirectory(String, Path)
+     */
+    public static LazyTemplateConfigVariablesProvider fromDirectory(String namespace, Path directory,
+        boolean cacheValues) {
+        return new DirectoryVariablesProvider(namespace, directory, cacheValues);
+    }
+
+    private static LazyTemplateConfigVariablesProvider lazyFromFile(String namespace, Path file,
+        MappedVariablesFile.Format format) {
+        return new MappedVariablesProvider(namespace, file, format);
+    }
+
+    /**
+     * Caches the variables of a provider for the given time. Concurrent renders share a single load of the provider.
+     *
+     * @param provider provider to cache
+     * @param ttl time the variables are cached for
+     * @return caching provider with the namespace of the given provider
+     * @throws IllegalArgumentException if {@code ttl} is not positive
+     */
+    public static CachingVariablesProvider cached(TemplateConfigVariablesProvider provider, Duration ttl) {
+        return CachingVariablesProvider.create(provider, ttl, null);
+    }
+
+    /**
+     * Caches the variables of a provider for the given time, reloading them in the background once they are older
+     * than {@code refreshAfter}. As long as the provider keeps up, renders never wait for it after the first load.
+     *
+     * @param provider provider to cache
+     * @param ttl time the variables are cached for
+     * @param refreshAfter age of the variables after which they are reloaded in the background
+     * @return caching provider with the namespace of the given provider
+     * @throws IllegalArgumentException if {@code ttl} is not positive or {@code refreshAfter} is not less than it
+     */
+    public static CachingVariablesProvider refreshingAhead(TemplateConfigVariablesProvider provider, Duration ttl,
+        Duration refreshAfter) {
+        if (refreshAfter == null) {
+            throw new NullPointerException("Provided refresh time must not be null.");
+        }
+        return CachingVariablesProvider.create(provider, ttl, refreshAfter);
+    }
+
     /**
      * Merges two providers into a new provider with combined variables. Right provider may override variables of left
-     * provider
+     * provider. Variables are not copied: the merged provider looks them up in the right provider first and then in the
+     * left one, so merging many providers stays cheap. Providers that aren't lazy are asked for their variables once,
+     * on the first lookup, and the returned map is reused from then on: a map passed to {@link #fromMap} stays live,
+     * while a provider computing a new map on every call is effectively snapshotted. Lazy providers, and caching
+     * providers created with {@link #cached} or {@link #refreshingAhead}, are asked on every lookup, so the latter keep
+     * expiring and refreshing their variables.
      *
      * @param left variables provider
      * @param right variables provider
@@ -109,11 +305,37 @@ public class Providers {
      */
     public static TemplateConfigVariablesProvider mergeProviders(TemplateConfigVariablesProvider left,
         TemplateConfigVariablesProvider right) {
-        Map<String, String> mergedVariables = new HashMap<>();
-        mergedVariables.putAll(left.getVariables());
-        mergedVariables.putAll(right.getVariables());
+        List<TemplateConfigVariablesProvider> layers = new ArrayList<>();
+        addLayers(layers, left);
+        addLayers(layers, right);
+        return new LayeredVariablesProvider(right.getNamespace(), layers);
+    }
 
-        return fromMap(right.getNamespace(), mergedVariables);
+    private static void addLayers(List<TemplateConfigVariablesProvider> layers, TemplateConfigVariablesProvider provider) {
+        if (provider instanceof LayeredVariablesProvider) {
+            layers.addAll(((LayeredVariablesProvider) provider).layers);
+        } else if (provider instanceof LazyTemplateConfigVariablesProvider || provider instanceof MemoizedVariablesProvider
+            || provider instanceof CachingVariablesProvider) {
+            // a caching provider decides itself for how long its variables are reused
+            layers.add(provider);
+        } else {
+            // looking variables up one by one mustn't ask the provider for all of them every time
+            layers.add(new MemoizedVariablesProvider(provider));
+        }
+    }
+
+    private static <T> Supplier<T> memoize(Supplier<T> supplier) {
+        return new Supplier<T>() {
+            private T value;
+
+            @Override
+            public synchronized T get() {
+                if (value == null) {
+                    value = supplier.get();
+                }
+                return value;
+            }
+        };
     }
 
     /**
@@ -151,4 +373,118 @@ public class Providers {
         }
 
     }
+
+    /**
+     * Adapting variable lookups to a {@link LazyTemplateConfigVariablesProvider}.
+     * Namespace cannot be blank
+     */
+    private static class LazyVariablesProvider implements LazyTemplateConfigVariablesProvider {
+
+        private final String namespace;
+
+        private final Function<String, String> lookup;
+
+        private final Supplier<Set<String>> names;
+
+        private LazyVariablesProvider(String namespace, Function<String, String> lookup, Supplier<Set<String>> names) {
+            this.namespace = namespace;
+            if (namespace.trim().isEmpty()) {
+                throw new IllegalArgumentException("Namespace cannot be blank.");
+            }
+            this.lookup = lookup;
+            this.names = names;
+        }
+
+        @Override
+        public String getNamespace() {
+            return namespace;
+        }
+
+        @Override
+        public String getVariable(String name) {
+            return lookup.apply(name);
+        }
+
+        @Override
+        public Set<String> getVariableNames() {
+            return Collections.unmodifiableSet(names.get());
+        }
+
+    }
+
+    /**
+     * Asks a provider for its variables once and returns the same map from then on
+     */
+    private static class MemoizedVariablesProvider implements TemplateConfigVariablesProvider {
+
+        private final String namespace;
+
+        private final Supplier<Map<String, String>> variables;
+
+        private MemoizedVariablesProvider(TemplateConfigVariablesProvider provider) {
+            this.namespace = provider.getNamespace();
+            this.variables = memoize(provider::getVariables);
+        }
+
+        @Override
+        public String getNamespace() {
+            return namespace;
+        }
+
+        @Override
+        public Map<String, String> getVariables() {
+            return variables.get();
+        }
+
+    }
+
+    /**
+     * Overlay of several providers. Later providers override earlier ones
+     */
+    private static class LayeredVariablesProvider implements LazyTemplateConfigVariablesProvider {
+
+        private final String namespace;
+
+        private final List<TemplateConfigVariablesProvider> layers;
+
+        private LayeredVariablesProvider(String namespace, List<TemplateConfigVariablesProvider> layers) {
+            this.namespace = namespace;
+            this.layers = layers;
+        }
+
+        @Override
+        public String getNamespace() {
+            return namespace;
+        }
+
+        @Override
+        public String getVariable(String name) {
+            for (int i = layers.size() - 1; i >= 0; i--) {
+                TemplateConfigVariablesProvider layer = layers.get(i);
+                String value = layer instanceof LazyTemplateConfigVariablesProvider
+                    ? ((LazyTemplateConfigVariablesProvider) layer).getVariable(name)
+                    : layer.getVariables().get(name);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Set<String> getVariableNames() {
+            return getVariables().keySet();
+        }
+
+        @Override
+        public Map<String, String> getVariables() {
+            return LayeredVariablesMap.of(layers);
+        }
+
+        @Override
+        public Map<String, String> getVariables(Set<String> requestedKeys) {
+            return LayeredVariablesMap.of(layers, Optional.of(requestedKeys));
+        }
+
+    }
 }
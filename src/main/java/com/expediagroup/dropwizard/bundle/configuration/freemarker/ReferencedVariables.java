@@ -0,0 +1,397 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The variables a config template and its includes may reference, found by a static pre-pass over their sources.
+ *
+ * <p>The analysis is conservative: a namespace that is accessed dynamically, e.g. with {@code env[name]},
+ * {@code env?keys} or by passing {@code env} around as a whole, is requested as a whole. If the analysis cannot be
+ * trusted at all, e.g. because of computed include names, {@code ?eval} or {@code .vars}, everything is requested.
+ * Bare keys like {@code ${PORT}} are requested from every namespace.
+ */
+final class ReferencedVariables {
+
+    /**
+     * Requests all variables of all namespaces
+     */
+    static final ReferencedVariables ALL = new ReferencedVariables(true);
+
+    private static final Set<String> KEYWORDS =
+        new HashSet<>(Arrays.asList("true", "false", "gt", "gte", "lt", "lte", "as", "in", "using"));
+    private static final Set<String> DATA_MODEL_SPECIAL_VARIABLES =
+        new HashSet<>(Arrays.asList("vars", "data_model", "globals"));
+    private static final Set<String> DYNAMIC_BUILT_INS = new HashSet<>(Arrays.asList("eval", "interpret"));
+
+    private final boolean all;
+    private final Map<String, Set<String>> namespaceKeys = new HashMap<>();
+    private final Set<String> bareKeys = new LinkedHashSet<>();
+    private final Set<String> wholeNamespaces = new HashSet<>();
+
+    private ReferencedVariables(boolean all) {
+        this.all = all;
+    }
+
+    /**
+     * Analyzes a config template and everything it includes.
+     *
+     * @param source the template source
+     * @param engine engine to load included templates with
+     * @return the referenced variables
+     * @throws IOException if an included template cannot be read
+     */
+    static ReferencedVariables analyze(String source, FreemarkerEngine engine) throws IOException {
+        return analyze(source, TemplateIncludes.resolve("config", source, engine));
+    }
+
+    /**
+     * Analyzes a template and its already resolved includes.
+     *
+     * @param source the template source
+     * @param includes the includes of the template
+     * @return the referenced variables
+     */
+    static ReferencedVariables analyze(String source, TemplateIncludes includes) {
+        if (!includes.isComplete()) {
+            return ALL;
+        }
+        ReferencedVariables referenced = new ReferencedVariables(false);
+        if (!referenced.analyzeTemplate(source)) {
+            return ALL;
+        }
+        for (String includedSource : includes.sources().values()) {
+            if (includedSource != null && !referenced.analyzeTemplate(includedSource)) {
+                return ALL;
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * Analyzes a single template source, ignoring its includes.
+     *
+     * @param source the template source
+     * @return the referenced variables
+     */
+    static ReferencedVariables analyzeSource(String source) {
+        ReferencedVariables referenced = new ReferencedVariables(false);
+        return referenced.analyzeTemplate(source) ? referenced : ALL;
+    }
+
+    /**
+     * @param namespace namespace of a provider
+     * @return the keys that may be referenced in the namespace, or empty if all of them may be
+     */
+    Optional<Set<String>> keys(String namespace) {
+        if (all || wholeNamespaces.contains(namespace)) {
+            return Optional.empty();
+        }
+        Set<String> keys = new LinkedHashSet<>(namespaceKeys.getOrDefault(namespace, Collections.emptySet()));
+        keys.addAll(bareKeys);
+        return Optional.of(Collections.unmodifiableSet(keys));
+    }
+
+    /**
+     * @return the top level names the template may reference other than by accessing one of their keys, including
+     *     namespaces used as a whole, or empty if they're unknown
+     */
+    Optional<Set<String>> bareKeys() {
+        return all ? Optional.empty() : Optional.of(Collections.unmodifiableSet(bareKeys));
+    }
+
+    /**
+     * Picks the values of the variables that may be referenced out of a data model, without resolving any other
+     * variable of its namespaces, e.g. to fingerprint what a render depends on.
+     *
+     * @param dataModel the data model
+     * @return the data model with each namespace that isn't referenced as a whole narrowed to the referenced keys
+     */
+    Object select(Object dataModel) {
+        if (all || !(dataModel instanceof Map)) {
+            return dataModel;
+        }
+        Map<Object, Object> values = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) dataModel).entrySet()) {
+            Optional<Set<String>> keys = keys(String.valueOf(entry.getKey()));
+            if (keys.isPresent() && entry.getValue() instanceof Map) {
+                Map<?, ?> namespace = (Map<?, ?>) entry.getValue();
+                Map<String, Object> namespaceValues = new LinkedHashMap<>();
+                for (String key : keys.get()) {
+                    namespaceValues.put(key, namespace.get(key));
+                }
+                values.put(entry.getKey(), namespaceValues);
+            } else {
+                values.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return {@code true} if nothing could be ruled out
+     */
+    boolean isAll() {
+        return all;
+    }
+
+    private boolean analyzeTemplate(String source) {
+        TemplateSourceScanner.ScannedTemplate scanned = TemplateSourceScanner.scan(source);
+        if (!scanned.isComplete()) {
+            return false;
+        }
+        for (TemplateSourceScanner.Token token : scanned.tokens()) {
+            switch (token.kind) {
+                case INTERPOLATION:
+                case DIRECTIVE:
+                case USER_DIRECTIVE:
+                    if (!analyzeExpression(token.expression)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the references of a freemarker expression, or of the parameters of a directive.
+     *
+     * @return {@code false} if the expression may access variables in ways that can't be analyzed
+     */
+    private boolean analyzeExpression(String expression) {
+        int length = expression.length();
+        // last two significant characters before the current position, identifiers are represented by 'a'
+        char previous = 0;
+        char beforePrevious = 0;
+        int i = 0;
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (c == 'r' && i + 1 < length && isQuote(expression.charAt(i + 1))) {
+                i = skipRawString(expression, i + 1);
+            } else if (isQuote(c)) {
+                int end = analyzeStringLiteral(expression, i);
+                if (end < 0) {
+                    return false;
+                }
+                i = end;
+            } else if (Character.isDigit(c)) {
+                i = skipNumber(expression, i);
+            } else if (isIdentifierStart(c)) {
+                int end = identifierEnd(expression, i);
+                String name = unescape(expression.substring(i, end));
+                // a dot preceded by another dot is part of a range operator like 1..n
+                boolean afterDot = previous == '.' && beforePrevious != '.';
+                if (previous == '?') {
+                    if (DYNAMIC_BUILT_INS.contains(name)) {
+                        return false;
+                    }
+                    i = end;
+                } else if (afterDot && isOperandEnd(beforePrevious)) {
+                    // member of something that isn't a plain variable, e.g. the result of a call
+                    i = end;
+                } else if (afterDot) {
+                    if (DATA_MODEL_SPECIAL_VARIABLES.contains(name)) {
+                        return false;
+                    }
+                    i = end;
+                } else if (KEYWORDS.contains(name)) {
+                    i = end;
+                } else {
+                    i = analyzeVariable(expression, name, end);
+                }
+                beforePrevious = previous;
+                previous = 'a';
+                continue;
+            } else {
+                i++;
+            }
+            beforePrevious = previous;
+            previous = isQuote(c) || c == 'r' || Character.isDigit(c) ? 'a' : c;
+        }
+        return true;
+    }
+
+    /**
+     * Records the access to a top level variable and returns the position after the access.
+     */
+    private int analyzeVariable(String expression, String name, int from) {
+        int i = skipWhitespace(expression, from);
+        int length = expression.length();
+        char next = i < length ? expression.charAt(i) : 0;
+        if (next == '.' && !(i + 1 < length && expression.charAt(i + 1) == '.')) {
+            int keyStart = skipWhitespace(expression, i + 1);
+            if (keyStart < length && isIdentifierStart(expression.charAt(keyStart))) {
+                int keyEnd = identifierEnd(expression, keyStart);
+                // a member access names a namespace, not a bare key
+                addKey(name, unescape(expression.substring(keyStart, keyEnd)));
+                return keyEnd;
+            }
+        } else if (next == '[') {
+            int literalStart = skipWhitespace(expression, i + 1);
+            Optional<String> key = literalStart < length && isQuote(expression.charAt(literalStart))
+                ? plainStringLiteral(expression, literalStart) : Optional.empty();
+            if (key.isPresent()) {
+                int close = skipWhitespace(expression, skipString(expression, literalStart));
+                if (close < length && expression.charAt(close) == ']') {
+                    addKey(name, key.get());
+                    return close + 1;
+                }
+            }
+        } else if (next == '(' || next == '!' || (next == '?' && i + 1 < length && expression.charAt(i + 1) == '?')) {
+            bareKeys.add(name);
+            return from;
+        }
+        // used as a whole, or accessed in a way that can't be analyzed
+        bareKeys.add(name);
+        wholeNamespaces.add(name);
+        return from;
+    }
+
+    private void addKey(String namespace, String key) {
+        namespaceKeys.computeIfAbsent(namespace, n -> new LinkedHashSet<>()).add(key);
+    }
+
+    /**
+     * Analyzes the interpolations of a string literal and returns the position after it, or -1 if it's unterminated.
+     */
+    private int analyzeStringLiteral(String expression, int quoteIndex) {
+        char quote = expression.charAt(quoteIndex);
+        int i = quoteIndex + 1;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else if ((c == '$' || c == '#') && i + 1 < expression.length() && expression.charAt(i + 1) == '{') {
+                int end = interpolationEnd(expression, i + 2);
+                if (end < 0 || !analyzeExpression(expression.substring(i + 2, end))) {
+                    return -1;
+                }
+                i = end + 1;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static Optional<String> plainStringLiteral(String expression, int quoteIndex) {
+        char quote = expression.charAt(quoteIndex);
+        StringBuilder value = new StringBuilder();
+        for (int i = quoteIndex + 1; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == quote) {
+                return Optional.of(value.toString());
+            }
+            if (c == '\\' || ((c == '$' || c == '#') && i + 1 < expression.length() && expression.charAt(i + 1) == '{')) {
+                return Optional.empty();
+            }
+            value.append(c);
+        }
+        return Optional.empty();
+    }
+
+    private static int interpolationEnd(String expression, int from) {
+        int depth = 0;
+        for (int i = from; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (isQuote(c)) {
+                i = skipString(expression, i) - 1;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipString(String expression, int quoteIndex) {
+        char quote = expression.charAt(quoteIndex);
+        int i = quoteIndex + 1;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return expression.length();
+    }
+
+    private static int skipRawString(String expression, int quoteIndex) {
+        int close = expression.indexOf(expression.charAt(quoteIndex), quoteIndex + 1);
+        return close < 0 ? expression.length() : close + 1;
+    }
+
+    private static int skipNumber(String expression, int from) {
+        int i = from;
+        while (i < expression.length() && (Character.isDigit(expression.charAt(i))
+            || (expression.charAt(i) == '.' && i + 1 < expression.length()
+            && Character.isDigit(expression.charAt(i + 1))))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(String expression, int from) {
+        int i = from;
+        while (i < expression.length() && Character.isWhitespace(expression.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int identifierEnd(String expression, int from) {
+        int i = from;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            if (c == '\\' && i + 1 < expression.length() && "-.:".indexOf(expression.charAt(i + 1)) >= 0) {
+                i += 2;
+            } else if (isIdentifierStart(c) || Character.isDigit(c)) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    private static String unescape(String identifier) {
+        return identifier.indexOf('\\') < 0 ? identifier : identifier.replaceAll("\\\\([-.:])", "$1");
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_' || c == '$' || c == '@';
+    }
+
+    private static boolean isQuote(char c) {
+        return c == '"' || c == '\'';
+    }
+
+    private static boolean isOperandEnd(char c) {
+        return c == 'a' || c == ')' || c == ']';
+    }
+}
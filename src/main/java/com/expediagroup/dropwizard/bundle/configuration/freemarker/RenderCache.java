@@ -0,0 +1,328 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent cache of rendered config templates.
+ *
+ * <p>Every entry is stored as two files named after the digest of the config path: the rendered bytes and a manifest
+ * with the fingerprints of the template, its includes and the variables of the data model they may reference, see
+ * {@link ReferencedVariables#select(Object)}. A render is served from the cache only if all fingerprints still match.
+ */
+final class RenderCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenderCache.class);
+
+    private static final String TEMPLATE_KEY = "template";
+    private static final String INCLUDES_KEY = "includes";
+    private static final String DATA_MODEL_KEY = "dataModel";
+    private static final String OUTPUT_KEY = "output";
+
+    private final Path directory;
+    private final LongAdder hits = new LongAdder();
+    private final Map<RenderCacheMissReason, LongAdder> misses = new ConcurrentHashMap<>();
+
+    RenderCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the fingerprint of a render.
+     *
+     * @param path the config path
+     * @param source the template source
+     * @param charset charset the template is rendered with
+     * @param dataModel the data model the template is rendered with
+     * @param engine engine used to resolve includes
+     * @return fingerprint of the render
+     * @throws IOException if an include cannot be read
+     */
+    Fingerprint fingerprint(String path, String source, Charset charset, Object dataModel, FreemarkerEngine engine)
+        throws IOException {
+        String entryName = Digests.sha256Hex(path);
+        TemplateIncludes includes = TemplateIncludes.resolve("config", source, engine);
+        if (!includes.isComplete()) {
+            return new Fingerprint(entryName, RenderCacheMissReason.DYNAMIC_INCLUDES);
+        }
+        // only what the template may reference, so variables that aren't rendered aren't resolved either
+        Optional<String> dataModelDigest =
+            Digests.dataModelSha256Hex(ReferencedVariables.analyze(source, includes).select(dataModel));
+        if (!dataModelDigest.isPresent()) {
+            return new Fingerprint(entryName, RenderCacheMissReason.UNSUPPORTED_DATA_MODEL);
+        }
+        String templateDigest = Digests.sha256Hex(charset.name() + '\n' + source);
+        MessageDigest includesDigest = Digests.sha256();
+        for (Map.Entry<String, String> include : includes.sources().entrySet()) {
+            includesDigest.update(Digests.sha256().digest(include.getKey().getBytes(StandardCharsets.UTF_8)));
+            includesDigest.update(Digests.sha256().digest(include.getValue() == null
+                ? new byte[0] : include.getValue().getBytes(StandardCharsets.UTF_8)));
+            includesDigest.update((byte) (include.getValue() == null ? 0 : 1));
+        }
+        return new Fingerprint(entryName, templateDigest, Digests.toHex(includesDigest.digest()),
+            dataModelDigest.get());
+    }
+
+    /**
+     * Looks up the rendered output for a fingerprint and records a hit or a miss.
+     *
+     * @param path the config path, used for reporting only
+     * @param fingerprint fingerprint of the render
+     * @return the cached output if the fingerprint matches, the reason of the miss otherwise
+     */
+    Lookup get(String path, Fingerprint fingerprint) {
+        if (fingerprint.uncacheableReason != null) {
+            return miss(path, fingerprint.uncacheableReason);
+        }
+        Properties manifest = new Properties();
+        try (InputStream manifestStream = Files.newInputStream(manifestPath(fingerprint))) {
+            manifest.load(manifestStream);
+        } catch (NoSuchFileException e) {
+            return miss(path, RenderCacheMissReason.NO_ENTRY);
+        } catch (IOException e) {
+            LOGGER.warn("Could not read render cache manifest for {}", path, e);
+            return miss(path, RenderCacheMissReason.ENTRY_CORRUPTED);
+        }
+        if (!fingerprint.templateDigest.equals(manifest.getProperty(TEMPLATE_KEY))) {
+            return miss(path, RenderCacheMissReason.TEMPLATE_CHANGED);
+        }
+        if (!fingerprint.includesDigest.equals(manifest.getProperty(INCLUDES_KEY))) {
+            return miss(path, RenderCacheMissReason.INCLUDES_CHANGED);
+        }
+        if (!fingerprint.dataModelDigest.equals(manifest.getProperty(DATA_MODEL_KEY))) {
+            return miss(path, RenderCacheMissReason.DATA_MODEL_CHANGED);
+        }
+        byte[] output;
+        try {
+            output = Files.readAllBytes(outputPath(fingerprint));
+        } catch (IOException e) {
+            return miss(path, RenderCacheMissReason.ENTRY_CORRUPTED);
+        }
+        if (!Digests.sha256Hex(output).equals(manifest.getProperty(OUTPUT_KEY))) {
+            return miss(path, RenderCacheMissReason.ENTRY_CORRUPTED);
+        }
+        hits.increment();
+        LOGGER.info("Serving config {} from render cache", path);
+        return new Lookup(output, null);
+    }
+
+    /**
+     * Stores the rendered output for a fingerprint. Failures are logged and otherwise ignored, as the cache is only an
+     * optimization.
+     *
+     * @param path the config path, used for reporting only
+     * @param fingerprint fingerprint of the render
+     * @param output rendered output
+     */
+    void put(String path, Fingerprint fingerprint, byte[] output) {
+        Optional<EntryWriter> entryWriter = openEntry(path, fingerprint);
+        if (!entryWriter.isPresent()) {
+            return;
+        }
+        entryWriter.get().write(output, 0, output.length);
+        entryWriter.get().commit();
+    }
+
+    /**
+     * Opens a stream to write the rendered output for a fingerprint to while it's being rendered. The entry becomes
+     * visible only once it's {@link EntryWriter#commit() committed}.
+     *
+     * @param path the config path, used for reporting only
+     * @param fingerprint fingerprint of the render
+     * @return entry writer, or empty if the render can't be cached or the entry can't be created
+     */
+    Optional<EntryWriter> openEntry(String path, Fingerprint fingerprint) {
+        if (fingerprint.uncacheableReason != null) {
+            return Optional.empty();
+        }
+        try {
+            Files.createDirectories(directory);
+            Path outputTemp = Files.createTempFile(directory, fingerprint.entryName, ".tmp");
+            return Optional.of(new EntryWriter(path, fingerprint, outputTemp));
+        } catch (IOException e) {
+            LOGGER.warn("Could not write render cache entry for {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    RenderCacheStats stats() {
+        Map<RenderCacheMissReason, Long> missCounts = new EnumMap<>(RenderCacheMissReason.class);
+        misses.forEach((reason, count) -> missCounts.put(reason, count.sum()));
+        return new RenderCacheStats(hits.sum(), missCounts);
+    }
+
+    private Lookup miss(String path, RenderCacheMissReason reason) {
+        misses.computeIfAbsent(reason, r -> new LongAdder()).increment();
+        LOGGER.info("Rendering config {}, render cache miss: {}", path, reason);
+        return new Lookup(null, reason);
+    }
+
+    private Path outputPath(Fingerprint fingerprint) {
+        return directory.resolve(fingerprint.entryName + ".rendered");
+    }
+
+    private Path manifestPath(Fingerprint fingerprint) {
+        return directory.resolve(fingerprint.entryName + ".properties");
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Fingerprint of a render: digests of the template, its includes and the data model
+     */
+    static final class Fingerprint {
+
+        private final String entryName;
+        private final String templateDigest;
+        private final String includesDigest;
+        private final String dataModelDigest;
+        private final RenderCacheMissReason uncacheableReason;
+
+        private Fingerprint(String entryName, String templateDigest, String includesDigest, String dataModelDigest) {
+            this.entryName = entryName;
+            this.templateDigest = templateDigest;
+            this.includesDigest = includesDigest;
+            this.dataModelDigest = dataModelDigest;
+            this.uncacheableReason = null;
+        }
+
+        private Fingerprint(String entryName, RenderCacheMissReason uncacheableReason) {
+            this.entryName = entryName;
+            this.templateDigest = null;
+            this.includesDigest = null;
+            this.dataModelDigest = null;
+            this.uncacheableReason = uncacheableReason;
+        }
+    }
+
+    /**
+     * Result of a render cache lookup
+     */
+    static final class Lookup {
+
+        private final byte[] output;
+        private final RenderCacheMissReason missReason;
+
+        private Lookup(byte[] output, RenderCacheMissReason missReason) {
+            this.output = output;
+            this.missReason = missReason;
+        }
+
+        Optional<byte[]> output() {
+            return Optional.ofNullable(output);
+        }
+
+        Optional<RenderCacheMissReason> missReason() {
+            return Optional.ofNullable(missReason);
+        }
+    }
+
+    /**
+     * Stream writing a cache entry while the config is rendered
+     */
+    final class EntryWriter extends OutputStream {
+
+        private final String path;
+        private final Fingerprint fingerprint;
+        private final Path outputTemp;
+        private final MessageDigest outputDigest = Digests.sha256();
+        private final OutputStream output;
+        private boolean failed;
+
+        private EntryWriter(String path, Fingerprint fingerprint, Path outputTemp) throws IOException {
+            this.path = path;
+            this.fingerprint = fingerprint;
+            this.outputTemp = outputTemp;
+            this.output = new BufferedOutputStream(Files.newOutputStream(outputTemp));
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            if (failed) {
+                return;
+            }
+            try {
+                output.write(bytes, offset, length);
+                outputDigest.update(bytes, offset, length);
+            } catch (IOException e) {
+                // the cache is only an optimization, so a failing entry must not fail the render
+                LOGGER.warn("Could not write render cache entry for {}", path, e);
+                failed = true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            output.close();
+        }
+
+        /**
+         * Publishes the written output together with its manifest.
+         */
+        void commit() {
+            if (failed) {
+                abort();
+                return;
+            }
+            Properties manifest = new Properties();
+            manifest.setProperty(TEMPLATE_KEY, fingerprint.templateDigest);
+            manifest.setProperty(INCLUDES_KEY, fingerprint.includesDigest);
+            manifest.setProperty(DATA_MODEL_KEY, fingerprint.dataModelDigest);
+            manifest.setProperty(OUTPUT_KEY, Digests.toHex(outputDigest.digest()));
+            try {
+                output.close();
+                move(outputTemp, outputPath(fingerprint));
+                Path manifestTemp = Files.createTempFile(directory, fingerprint.entryName, ".tmp");
+                try (OutputStream manifestStream = Files.newOutputStream(manifestTemp)) {
+                    manifest.store(manifestStream, "dropwizard-template-config render cache entry for " + path);
+                }
+                move(manifestTemp, manifestPath(fingerprint));
+            } catch (IOException e) {
+                LOGGER.warn("Could not write render cache entry for {}", path, e);
+                abort();
+            }
+        }
+
+        /**
+         * Discards the written output.
+         */
+        void abort() {
+            try {
+                output.close();
+                Files.deleteIfExists(outputTemp);
+            } catch (IOException e) {
+                LOGGER.debug("Could not delete temporary render cache file {}", outputTemp, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+/**
+ * Reasons for a config template having to be rendered although a render cache is configured.
+ */
+public enum RenderCacheMissReason {
+
+    /**
+     * Nothing has been cached for the config path yet
+     */
+    NO_ENTRY,
+
+    /**
+     * The config template itself or the charset changed
+     */
+    TEMPLATE_CHANGED,
+
+    /**
+     * One of the included snippets changed, was added or was removed
+     */
+    INCLUDES_CHANGED,
+
+    /**
+     * The data model returned by the data model factory changed
+     */
+    DATA_MODEL_CHANGED,
+
+    /**
+     * The cached output is missing or doesn't match its recorded checksum
+     */
+    ENTRY_CORRUPTED,
+
+    /**
+     * The template includes snippets whose names are only known while rendering, so it can't be fingerprinted
+     */
+    DYNAMIC_INCLUDES,
+
+    /**
+     * The data model contains values that can't be fingerprinted
+     */
+    UNSUPPORTED_DATA_MODEL
+
+}
@@ -0,0 +1,48 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Snapshot of the counters of a {@link TemplateConfigurationSourceProvider}'s render cache.
+ */
+public final class RenderCacheStats {
+
+    private final long hitCount;
+    private final Map<RenderCacheMissReason, Long> missCounts;
+
+    RenderCacheStats(long hitCount, Map<RenderCacheMissReason, Long> missCounts) {
+        this.hitCount = hitCount;
+        this.missCounts = Collections.unmodifiableMap(new EnumMap<>(missCounts));
+    }
+
+    /**
+     * @return number of renders served from the render cache
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return number of renders that had to be processed by freemarker
+     */
+    public long getMissCount() {
+        return missCounts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @return number of misses per reason. Reasons without misses are absent.
+     */
+    public Map<RenderCacheMissReason, Long> getMissCounts() {
+        return missCounts;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderCacheStats{" +
+            "hitCount=" + hitCount +
+            ", missCounts=" + missCounts +
+            '}';
+    }
+}
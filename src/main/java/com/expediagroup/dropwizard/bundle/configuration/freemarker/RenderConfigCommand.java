@@ -0,0 +1,306 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.dropwizard.cli.Command;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+/**
+ * Dropwizard {@link Command} rendering config templates against many variable sets in parallel, e.g. to validate the
+ * configs of all environments in a CI build without starting the application for each of them.
+ *
+ * <p>Each template is rendered once per properties file given with {@code --variables}, whose variables are added
+ * under the namespace given with {@code --namespace}, on top of the bundle's providers. By default that's {@code env},
+ * so the properties stand in for environment variables. All renders share the bundle's freemarker engine, and the
+ * bundle's providers are resolved only once. Outputs are written to {@code <output>/<variable set>/<template>}, and a
+ * summary with the timing and outcome of each render to {@code <output>/render-summary.tsv}. The command fails if any
+ * render failed. Templates and properties files can be given as glob patterns like {@code 'envs/**.properties'}.
+ *
+ * <p>Registered by {@link TemplateConfigBundle} if {@link TemplateConfigBundleConfiguration#renderCommand(boolean)}
+ * is enabled.
+ */
+class RenderConfigCommand extends Command {
+
+    static final String SUMMARY_FILE = "render-summary.tsv";
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    private final TemplateConfigBundleConfiguration configuration;
+    private final PrintStream out;
+
+    RenderConfigCommand(TemplateConfigBundleConfiguration configuration) {
+        this(configuration, System.out);
+    }
+
+    RenderConfigCommand(TemplateConfigBundleConfiguration configuration, PrintStream out) {
+        super("render-config", "Renders config templates against sets of variables");
+        this.configuration = configuration;
+        this.out = out;
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        subparser.addArgument("templates")
+            .nargs("+")
+            .metavar("TEMPLATE")
+            .help("config templates to render, or glob patterns matching them");
+        subparser.addArgument("-v", "--variables")
+            .nargs("+")
+            .metavar("PROPERTIES")
+            .dest("variables")
+            .help("properties files with one set of variables each, or glob patterns matching them");
+        subparser.addArgument("-n", "--namespace")
+            .setDefault(Providers.ENV_NAMESPACE)
+            .dest("namespace")
+            .help("namespace of the variables from the properties files (default: env)");
+        subparser.addArgument("-o", "--output")
+            .required(true)
+            .dest("output")
+            .help("directory to write the rendered configs and the summary to");
+        subparser.addArgument("-t", "--threads")
+            .type(Integer.class)
+            .setDefault(Runtime.getRuntime().availableProcessors())
+            .dest("threads")
+            .help("number of configs rendered in parallel (default: number of processors)");
+    }
+
+    @Override
+    public void run(Bootstrap<?> bootstrap, Namespace namespace) throws Exception {
+        List<Path> templates = expand(namespace.getList("templates"));
+        List<String> variableArguments = namespace.getList("variables");
+        List<Path> variableFiles = variableArguments == null
+            ? Collections.emptyList() : expand(variableArguments);
+        Path output = Paths.get(namespace.getString("output"));
+        int threads = namespace.getInt("threads");
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive.");
+        }
+        List<RenderResult> results = render(templates, variableFiles, namespace.getString("namespace"), output,
+            threads);
+        report(results, output);
+    }
+
+    private List<RenderResult> render(List<Path> templates, List<Path> variableFiles, String variablesNamespace,
+        Path output, int threads) throws IOException, InterruptedException, ExecutionException {
+        if (!(configuration.dataModelFactory() instanceof DefaultDataModelFactory)) {
+            throw new IllegalStateException("render-config can't add variables to a custom data model factory.");
+        }
+        List<TemplateConfigVariablesProvider> providers = new ArrayList<>(configuration.customProviders());
+        List<Map<String, String>> variables = ProviderResolver.resolve(providers,
+            TemplateConfigVariablesProvider::getVariables, configuration).variables();
+
+        List<VariableSet> variableSets = new ArrayList<>();
+        if (variableFiles.isEmpty()) {
+            variableSets.add(new VariableSet("", DefaultDataModelFactory.dataModel(providers, variables,
+                Optional.empty())));
+        }
+        List<String> variableSetNames = relativeNames(variableFiles);
+        for (int i = 0; i < variableFiles.size(); i++) {
+            TemplateConfigVariablesProvider properties = Providers.lazyFromPropertiesFile(variablesNamespace,
+                variableFiles.get(i));
+            List<TemplateConfigVariablesProvider> setProviders = new ArrayList<>(providers);
+            setProviders.add(properties);
+            List<Map<String, String>> setVariables = new ArrayList<>(variables);
+            setVariables.add(properties.getVariables());
+            String name = variableSetNames.get(i).replaceFirst("\\.properties$", "");
+            variableSets.add(new VariableSet(name,
+                DefaultDataModelFactory.dataModel(setProviders, setVariables, Optional.empty())));
+        }
+
+        FreemarkerEngine engine = configuration.engine();
+        List<String> templateNames = relativeNames(templates);
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "render-config-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<RenderResult>> renders = new ArrayList<>();
+            for (int t = 0; t < templates.size(); t++) {
+                Path template = templates.get(t);
+                String templateName = templateNames.get(t);
+                for (VariableSet variableSet : variableSets) {
+                    Path target = output.resolve(variableSet.name).resolve(templateName);
+                    renders.add(executor.submit(() -> render(engine, template, templateName, variableSet, target)));
+                }
+            }
+            List<RenderResult> results = new ArrayList<>(renders.size());
+            for (Future<RenderResult> render : renders) {
+                results.add(render.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private RenderResult render(FreemarkerEngine engine, Path template, String templateName, VariableSet variableSet,
+        Path target) {
+        long start = System.nanoTime();
+        try {
+            String source = new String(Files.readAllBytes(template), configuration.charset());
+            CompiledTemplate compiled = engine.getTemplate(template.toString(), source);
+            ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+            Writer writer = new OutputStreamWriter(rendered, configuration.charset());
+            compiled.render(variableSet.dataModel, writer);
+            writer.flush();
+            ConfigFileWriter.write(target, rendered.toByteArray(), configuration.fsyncOutput());
+            return new RenderResult(templateName, variableSet.name, since(start), rendered.size(), null);
+        } catch (Exception e) {
+            return new RenderResult(templateName, variableSet.name, since(start), 0, e);
+        }
+    }
+
+    private void report(List<RenderResult> results, Path output) throws IOException {
+        StringBuilder summary = new StringBuilder("status\ttemplate\tvariables\tmillis\tbytes\terror\n");
+        long failed = 0;
+        Duration total = Duration.ZERO;
+        for (RenderResult result : results) {
+            summary.append(result.error == null ? "OK" : "FAILED").append('\t')
+                .append(result.template).append('\t')
+                .append(result.variableSet).append('\t')
+                .append(result.duration.toMillis()).append('\t')
+                .append(result.bytes).append('\t')
+                .append(result.error == null ? "" : singleLine(result.error)).append('\n');
+            total = total.plus(result.duration);
+            if (result.error != null) {
+                failed++;
+                out.println("FAILED " + result.template + " with " + result.variableSet + ": "
+                    + singleLine(result.error));
+            }
+        }
+        Path summaryFile = output.resolve(SUMMARY_FILE);
+        ConfigFileWriter.write(summaryFile, summary.toString().getBytes(StandardCharsets.UTF_8), false);
+        out.println("Rendered " + (results.size() - failed) + " of " + results.size() + " configs in "
+            + total.toMillis() + " ms of render time, see " + summaryFile);
+        if (failed > 0) {
+            throw new IllegalStateException(failed + " of " + results.size() + " configs failed to render.");
+        }
+    }
+
+    /**
+     * Expands glob patterns among the given paths, leaving other paths as they are.
+     */
+    static List<Path> expand(List<String> arguments) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (String argument : arguments) {
+            int firstGlob = -1;
+            for (char c : GLOB_CHARACTERS.toCharArray()) {
+                int index = argument.indexOf(c);
+                if (index >= 0 && (firstGlob < 0 || index < firstGlob)) {
+                    firstGlob = index;
+                }
+            }
+            if (firstGlob < 0) {
+                paths.add(Paths.get(argument));
+                continue;
+            }
+            int baseEnd = argument.lastIndexOf('/', firstGlob);
+            Path base = baseEnd < 0 ? Paths.get("") : Paths.get(baseEnd == 0 ? "/" : argument.substring(0, baseEnd));
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + argument);
+            Path walkBase = base.toString().isEmpty() ? Paths.get(".") : base;
+            List<Path> matches = Collections.emptyList();
+            if (Files.isDirectory(walkBase)) {
+                try (Stream<Path> files = Files.walk(walkBase)) {
+                    matches = files
+                        .map(path -> base.toString().isEmpty() ? path.normalize() : path)
+                        .filter(path -> matcher.matches(path) && Files.isRegularFile(path))
+                        .sorted()
+                        .collect(Collectors.toList());
+                }
+            }
+            if (matches.isEmpty()) {
+                throw new IllegalArgumentException("No files match " + argument + ".");
+            }
+            paths.addAll(matches);
+        }
+        return paths;
+    }
+
+    /**
+     * Names the paths relative to their common parent directory, or by their file name if there's only one.
+     */
+    static List<String> relativeNames(List<Path> paths) {
+        List<Path> absolutePaths = paths.stream()
+            .map(path -> path.toAbsolutePath().normalize())
+            .collect(Collectors.toList());
+        Path commonParent = null;
+        for (Path path : absolutePaths) {
+            Path parent = path.getParent();
+            if (commonParent == null) {
+                commonParent = parent;
+            }
+            while (commonParent != null && !parent.startsWith(commonParent)) {
+                commonParent = commonParent.getParent();
+            }
+        }
+        List<String> names = new ArrayList<>(absolutePaths.size());
+        for (Path path : absolutePaths) {
+            names.add(commonParent == null ? path.toString() : commonParent.relativize(path).toString());
+        }
+        return names;
+    }
+
+    private static Duration since(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
+    }
+
+    private static String singleLine(Exception e) {
+        String message = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+        return message.replaceAll("\\s+", " ").trim();
+    }
+
+    private static final class VariableSet {
+
+        private final String name;
+        private final Object dataModel;
+
+        private VariableSet(String name, Object dataModel) {
+            this.name = name;
+            this.dataModel = dataModel;
+        }
+    }
+
+    private static final class RenderResult {
+
+        private final String template;
+        private final String variableSet;
+        private final Duration duration;
+        private final long bytes;
+        private final Exception error;
+
+        private RenderResult(String template, String variableSet, Duration duration, long bytes, Exception error) {
+            this.template = template;
+            this.variableSet = variableSet;
+            this.duration = duration;
+            this.bytes = bytes;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory pipe connecting a rendering thread to the consumer of the rendered config.
+ *
+ * <p>The rendering thread writes to {@link #sink()} and blocks while the buffer is full, the consumer reads from
+ * {@link #source()} and blocks while it's empty. Closing the sink signals the end of the config, {@link #fail(Throwable)}
+ * makes the consumer fail instead. Closing the source aborts the rendering thread on its next write.
+ */
+final class RenderPipe {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final byte[] buffer;
+    private final Sink sink = new Sink();
+    private final Source source = new Source();
+    private int readPosition;
+    private int count;
+    private boolean sinkClosed;
+    private boolean sourceClosed;
+    private Throwable failure;
+
+    RenderPipe(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive.");
+        }
+        this.buffer = new byte[bufferSize];
+    }
+
+    OutputStream sink() {
+        return sink;
+    }
+
+    InputStream source() {
+        return source;
+    }
+
+    /**
+     * Makes the consumer fail with the given cause once it has read everything written so far.
+     *
+     * @param cause reason the render failed
+     */
+    void fail(Throwable cause) {
+        lock.lock();
+        try {
+            failure = cause;
+            sinkClosed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class Sink extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            lock.lock();
+            try {
+                int written = 0;
+                while (written < length) {
+                    if (sourceClosed) {
+                        throw new IOException("Consumer of the rendered config has closed the stream.");
+                    }
+                    if (sinkClosed) {
+                        throw new IOException("Stream closed.");
+                    }
+                    if (count == buffer.length) {
+                        awaitSpace(notFull);
+                        continue;
+                    }
+                    int writePosition = (readPosition + count) % buffer.length;
+                    int chunk = Math.min(length - written,
+                        Math.min(buffer.length - count, buffer.length - writePosition));
+                    System.arraycopy(bytes, offset + written, buffer, writePosition, chunk);
+                    count += chunk;
+                    written += chunk;
+                    notEmpty.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                sinkClosed = true;
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void awaitSpace(Condition condition) throws InterruptedIOException {
+            try {
+                condition.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while rendering config.");
+            }
+        }
+    }
+
+    private final class Source extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            lock.lock();
+            try {
+                while (count == 0) {
+                    if (failure != null) {
+                        throw new IOException("Could not render template.", failure);
+                    }
+                    if (sinkClosed || sourceClosed) {
+                        return -1;
+                    }
+                    try {
+                        notEmpty.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for the rendered config.");
+                    }
+                }
+                int chunk = Math.min(length, Math.min(count, buffer.length - readPosition));
+                System.arraycopy(buffer, readPosition, bytes, offset, chunk);
+                readPosition = (readPosition + chunk) % buffer.length;
+                count -= chunk;
+                notFull.signalAll();
+                return chunk;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int available() {
+            lock.lock();
+            try {
+                return Math.min(count, buffer.length - readPosition);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                sourceClosed = true;
+                count = 0;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import freemarker.template.TemplateException;
+
+/**
+ * Time spent and bytes emitted by the includes and top level directives of one render of a config template, see
+ * {@link RenderProfiler}. Times and sizes are inclusive: an include within a profiled loop counts for both.
+ */
+final class RenderProfile {
+
+    private static final ThreadLocal<RenderProfile> CURRENT = new ThreadLocal<>();
+
+    private final String path;
+    private final Charset charset;
+    private final Map<RenderProfiler.Point, Entry> entries = new HashMap<>();
+    private Duration total = Duration.ZERO;
+    private long totalBytes;
+
+    RenderProfile(String path, Charset charset) {
+        this.path = path;
+        this.charset = charset;
+    }
+
+    /**
+     * @return the profile of the render in progress on this thread, or {@code null} if it isn't profiled
+     */
+    static RenderProfile current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Renders a template while recording into this profile.
+     *
+     * @param template the template to render
+     * @param dataModel the data model
+     * @param out writer to render to
+     * @throws IOException if rendering fails
+     * @throws TemplateException if rendering fails
+     */
+    void render(CompiledTemplate template, Object dataModel, Writer out) throws IOException, TemplateException {
+        RenderProfile previous = CURRENT.get();
+        CURRENT.set(this);
+        ByteCountingWriter counting = countingWriter(out);
+        long start = System.nanoTime();
+        try {
+            template.render(dataModel, counting);
+        } finally {
+            total = Duration.ofNanos(System.nanoTime() - start);
+            totalBytes = counting.bytes();
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Wraps a writer to count the bytes written to it in the charset of the rendered config.
+     *
+     * @param out writer to wrap
+     * @return counting writer
+     */
+    ByteCountingWriter countingWriter(Writer out) {
+        return new ByteCountingWriter(out, charset);
+    }
+
+    void record(RenderProfiler.Point point, long nanos, long bytes) {
+        Entry entry = entries.computeIfAbsent(point, Entry::new);
+        entry.count++;
+        entry.nanos += nanos;
+        entry.bytes += bytes;
+    }
+
+    String path() {
+        return path;
+    }
+
+    /**
+     * @return recorded entries, the slowest first
+     */
+    private List<Entry> entries() {
+        List<Entry> sorted = new ArrayList<>(entries.values());
+        sorted.sort(Comparator.comparingLong((Entry entry) -> entry.nanos).reversed()
+            .thenComparing(entry -> entry.point.name()));
+        return sorted;
+    }
+
+    /**
+     * Summarizes the slowest entries in a single line, e.g. for a log message.
+     *
+     * @param limit maximum number of entries
+     * @return summary
+     */
+    String summary(int limit) {
+        StringBuilder summary = new StringBuilder()
+            .append(total.toMillis()).append(" ms, ").append(totalBytes).append(" bytes");
+        List<Entry> sorted = entries();
+        for (int i = 0; i < Math.min(limit, sorted.size()); i++) {
+            Entry entry = sorted.get(i);
+            summary.append(i == 0 ? ": " : ", ").append(entry.point.name())
+                .append(' ').append(Duration.ofNanos(entry.nanos).toMillis()).append(" ms")
+                .append(' ').append(entry.bytes).append(" bytes");
+            if (entry.count > 1) {
+                summary.append(" (").append(entry.count).append("x)");
+            }
+        }
+        if (sorted.size() > limit) {
+            summary.append(", ").append(sorted.size() - limit).append(" more");
+        }
+        return summary.toString();
+    }
+
+    /**
+     * @return the whole profile as maps and lists to be written as JSON
+     */
+    Map<String, Object> toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("path", path);
+        json.put("nanos", total.toNanos());
+        json.put("bytes", totalBytes);
+        List<Map<String, Object>> jsonEntries = new ArrayList<>();
+        for (Entry entry : entries()) {
+            Map<String, Object> jsonEntry = new LinkedHashMap<>();
+            jsonEntry.put("kind", entry.point.kind().name().toLowerCase(Locale.ROOT));
+            jsonEntry.put("name", entry.point.name());
+            jsonEntry.put("count", entry.count);
+            jsonEntry.put("nanos", entry.nanos);
+            jsonEntry.put("bytes", entry.bytes);
+            jsonEntries.add(jsonEntry);
+        }
+        json.put("entries", jsonEntries);
+        return json;
+    }
+
+    /**
+     * Totals of a profiled include or directive over all its executions in a render
+     */
+    private static final class Entry {
+
+        private final RenderProfiler.Point point;
+        private long count;
+        private long nanos;
+        private long bytes;
+
+        private Entry(RenderProfiler.Point point) {
+            this.point = point;
+        }
+    }
+
+    /**
+     * Writer passing everything on to another writer, counting how many bytes it takes in the given charset.
+     */
+    static final class ByteCountingWriter extends Writer {
+
+        private final Writer out;
+        private final CharsetEncoder encoder;
+        private final boolean utf8;
+        private ByteBuffer scratch;
+        private int pendingSurrogate = -1;
+        private long bytes;
+
+        private ByteCountingWriter(Writer out, Charset charset) {
+            this.out = out;
+            this.utf8 = charset.equals(StandardCharsets.UTF_8);
+            this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            out.write(chars, offset, length);
+            count(CharBuffer.wrap(chars, offset, length));
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            out.write(string, offset, length);
+            count(CharBuffer.wrap(string, offset, offset + length));
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            out.write(c);
+            count(CharBuffer.wrap(new char[] {(char) c}));
+        }
+
+        private void count(CharBuffer chars) {
+            if (utf8) {
+                countUtf8(chars);
+                return;
+            }
+            if (pendingSurrogate >= 0) {
+                char[] joined = new char[chars.remaining() + 1];
+                joined[0] = (char) pendingSurrogate;
+                chars.get(joined, 1, joined.length - 1);
+                chars = CharBuffer.wrap(joined);
+                pendingSurrogate = -1;
+            }
+            if (scratch == null) {
+                scratch = ByteBuffer.allocate(1024);
+            }
+            CoderResult result;
+            do {
+                scratch.clear();
+                result = encoder.encode(chars, scratch, false);
+                bytes += scratch.position();
+            } while (result.isOverflow());
+            if (chars.hasRemaining()) {
+                // a surrogate whose pair is yet to be written
+                pendingSurrogate = chars.get();
+            }
+        }
+
+        private void countUtf8(CharBuffer chars) {
+            while (chars.hasRemaining()) {
+                char c = chars.get();
+                if (c < 0x80) {
+                    bytes++;
+                } else if (c < 0x800) {
+                    bytes += 2;
+                } else if (Character.isSurrogate(c)) {
+                    // a pair takes 4 bytes
+                    bytes += 2;
+                } else {
+                    bytes += 3;
+                }
+            }
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
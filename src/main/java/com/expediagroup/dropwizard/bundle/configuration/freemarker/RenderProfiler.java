@@ -0,0 +1,373 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import freemarker.cache.TemplateLoader;
+import freemarker.core.Environment;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateDirectiveBody;
+import freemarker.template.TemplateDirectiveModel;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+import freemarker.template.TemplateNumberModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Instruments templates so renders record how long each include and each top level directive of the config template
+ * takes and how much output it emits, see {@link RenderProfile}.
+ *
+ * <p>Freemarker has no hooks into rendering, so the sources are rewritten instead: every include of every template,
+ * and every top level directive and macro call of the config template, is wrapped in a call of this directive, which
+ * times and counts the output of its body. The wrapping tags are put on the lines of the tags they wrap, so line
+ * numbers and white-space stripping stay the same. A template whose instrumented source cannot be parsed is used as
+ * is.
+ */
+final class RenderProfiler implements TemplateDirectiveModel {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RenderProfiler.class);
+
+    static final String DIRECTIVE_NAME = "_templateConfigProfile";
+
+    private static final Set<String> BLOCK_DIRECTIVES = new HashSet<>(Arrays.asList("if", "list", "items", "switch",
+        "compress", "attempt", "macro", "function", "escape", "noescape"));
+    private static final Set<String> CAPTURING_DIRECTIVES = new HashSet<>(Arrays.asList("assign", "global", "local"));
+    private static final Set<String> PROFILED_DIRECTIVES = new HashSet<>(Arrays.asList("include", "import", "list",
+        "if", "switch", "attempt", "compress", "escape", "assign", "global", "visit", "recurse"));
+
+    private final Configuration freemarkerConfiguration;
+    private final List<Point> points = new CopyOnWriteArrayList<>();
+    private final Map<Point, Integer> pointIds = new HashMap<>();
+
+    RenderProfiler(Configuration freemarkerConfiguration) {
+        this.freemarkerConfiguration = freemarkerConfiguration;
+    }
+
+    /**
+     * Kinds of profiled parts of a render
+     */
+    enum Kind {
+        INCLUDE,
+        DIRECTIVE
+    }
+
+    /**
+     * A profiled part of a render, e.g. an included template or a loop of the config template. Includes of the same
+     * template are the same point, wherever they are.
+     */
+    static final class Point {
+
+        private final Kind kind;
+        private final String name;
+
+        private Point(Kind kind, String name) {
+            this.kind = kind;
+            this.name = name;
+        }
+
+        Kind kind() {
+            return kind;
+        }
+
+        String name() {
+            return name;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Point)) {
+                return false;
+            }
+            Point that = (Point) o;
+            return kind == that.kind && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, name);
+        }
+    }
+
+    /**
+     * Compiles the config template with its includes and top level directives instrumented.
+     *
+     * @param path the path the template source was opened from, used to name its directives
+     * @param templateName the name the template is rendered as
+     * @param source the template source
+     * @return parsed template
+     * @throws IOException if the template cannot be parsed
+     */
+    FreemarkerCompiledTemplate compile(String path, String templateName, String source) throws IOException {
+        String instrumented = instrument(path, templateName, source, true);
+        if (!instrumented.equals(source)) {
+            FreemarkerCompiledTemplate template =
+                new FreemarkerCompiledTemplate(templateName, instrumented, freemarkerConfiguration);
+            try {
+                template.template();
+                return template;
+            } catch (IOException e) {
+                LOGGER.debug("Could not profile config template {}, rendering it without profiling", path, e);
+            }
+        }
+        FreemarkerCompiledTemplate template =
+            new FreemarkerCompiledTemplate(templateName, source, freemarkerConfiguration);
+        template.template();
+        return template;
+    }
+
+    /**
+     * Wraps the template loader, so included templates have their includes instrumented.
+     *
+     * @param loader loader to wrap
+     * @return instrumenting loader
+     */
+    TemplateLoader loader(TemplateLoader loader) {
+        return new InstrumentingTemplateLoader(loader);
+    }
+
+    /**
+     * Wraps includes, and for the config template also its top level directives, in calls of this directive.
+     */
+    String instrument(String path, String templateName, String source, boolean topLevelDirectives) {
+        TemplateSourceScanner.ScannedTemplate scanned = TemplateSourceScanner.scan(source);
+        if (!scanned.isComplete()) {
+            return source;
+        }
+        StringBuilder instrumented = new StringBuilder(source.length() + 256);
+        int copied = 0;
+        int depth = 0;
+        int line = 1;
+        int lineCounted = 0;
+        // whether a top level block directive is wrapped, closed once its end tag is reached
+        boolean wrappingBlock = false;
+        for (TemplateSourceScanner.Token token : scanned.tokens()) {
+            boolean block = isBlock(source, token);
+            boolean end = isBlockEnd(token);
+            Optional<Point> point = Optional.empty();
+            if (depth == 0 && topLevelDirectives && !end) {
+                point = directivePoint(templateName, token);
+                if (point.isPresent() && !point.get().kind.equals(Kind.INCLUDE)) {
+                    for (; lineCounted < token.start; lineCounted++) {
+                        line += source.charAt(lineCounted) == '\n' ? 1 : 0;
+                    }
+                    point = Optional.of(new Point(Kind.DIRECTIVE, path + ":" + line + " " + point.get().name));
+                }
+            } else if (token.isDirective("include")) {
+                point = directivePoint(templateName, token);
+            }
+            if (point.isPresent()) {
+                instrumented.append(source, copied, token.start).append(openTag(id(point.get())));
+                copied = token.start;
+                if (block) {
+                    wrappingBlock = depth == 0;
+                } else {
+                    instrumented.append(source, copied, token.end).append(closeTag());
+                    copied = token.end;
+                }
+            }
+            if (block) {
+                depth++;
+            } else if (end) {
+                depth--;
+                if (depth < 0) {
+                    return source;
+                }
+                if (depth == 0 && wrappingBlock) {
+                    instrumented.append(source, copied, token.end).append(closeTag());
+                    copied = token.end;
+                    wrappingBlock = false;
+                }
+            }
+        }
+        if (depth != 0) {
+            return source;
+        }
+        return instrumented.append(source, copied, source.length()).toString();
+    }
+
+    private static Optional<Point> directivePoint(String templateName, TemplateSourceScanner.Token token) {
+        if (token.isDirective("include") || token.isDirective("import")) {
+            Optional<String> name = TemplateSourceScanner.leadingStringLiteral(token.expression)
+                .flatMap(literal -> TemplateSourceScanner.resolveTemplateName(templateName, literal));
+            return Optional.of(new Point(Kind.INCLUDE,
+                name.orElseGet(() -> token.name + " " + token.expression.trim())));
+        }
+        if (token.kind == TemplateSourceScanner.Kind.DIRECTIVE && PROFILED_DIRECTIVES.contains(token.name)) {
+            return Optional.of(new Point(Kind.DIRECTIVE, "#" + token.name));
+        }
+        if (token.kind == TemplateSourceScanner.Kind.USER_DIRECTIVE && !token.name.equals(DIRECTIVE_NAME)) {
+            return Optional.of(new Point(Kind.DIRECTIVE, "@" + token.name));
+        }
+        return Optional.empty();
+    }
+
+    private static boolean isBlock(String source, TemplateSourceScanner.Token token) {
+        if (token.kind != TemplateSourceScanner.Kind.DIRECTIVE
+            && token.kind != TemplateSourceScanner.Kind.USER_DIRECTIVE) {
+            return false;
+        }
+        if (source.charAt(token.end - 2) == '/') {
+            return false;
+        }
+        if (token.kind == TemplateSourceScanner.Kind.USER_DIRECTIVE) {
+            return true;
+        }
+        // <#assign x>...</#assign> captures its body, <#assign x = 1> doesn't have one
+        return BLOCK_DIRECTIVES.contains(token.name)
+            || (CAPTURING_DIRECTIVES.contains(token.name) && token.expression.indexOf('=') < 0
+            && !token.expression.contains("++") && !token.expression.contains("--"));
+    }
+
+    private static boolean isBlockEnd(TemplateSourceScanner.Token token) {
+        if (token.kind == TemplateSourceScanner.Kind.USER_DIRECTIVE_END) {
+            return true;
+        }
+        return token.kind == TemplateSourceScanner.Kind.DIRECTIVE_END
+            && (BLOCK_DIRECTIVES.contains(token.name) || CAPTURING_DIRECTIVES.contains(token.name));
+    }
+
+    private synchronized int id(Point point) {
+        Integer id = pointIds.get(point);
+        if (id == null) {
+            id = points.size();
+            points.add(point);
+            pointIds.put(point, id);
+        }
+        return id;
+    }
+
+    private static String openTag(int id) {
+        return "<@" + DIRECTIVE_NAME + " id=" + id + ">";
+    }
+
+    private static String closeTag() {
+        return "</@" + DIRECTIVE_NAME + ">";
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void execute(Environment env, Map params, TemplateModel[] loopVars, TemplateDirectiveBody body)
+        throws TemplateException, IOException {
+        if (body == null) {
+            return;
+        }
+        RenderProfile profile = RenderProfile.current();
+        if (profile == null) {
+            body.render(env.getOut());
+            return;
+        }
+        Object id = params.get("id");
+        if (!(id instanceof TemplateNumberModel)) {
+            throw new TemplateModelException("Missing id of profiled directive.");
+        }
+        Point point = points.get(((TemplateNumberModel) id).getAsNumber().intValue());
+        RenderProfile.ByteCountingWriter out = profile.countingWriter(env.getOut());
+        long start = System.nanoTime();
+        try {
+            body.render(out);
+        } finally {
+            profile.record(point, System.nanoTime() - start, out.bytes());
+        }
+    }
+
+    /**
+     * Instruments the includes of included templates while they're loaded.
+     */
+    private final class InstrumentingTemplateLoader implements TemplateLoader {
+
+        private final TemplateLoader delegate;
+
+        private InstrumentingTemplateLoader(TemplateLoader delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Object findTemplateSource(String name) throws IOException {
+            Object source = delegate.findTemplateSource(name);
+            return source == null ? null : new NamedSource(name, source);
+        }
+
+        @Override
+        public long getLastModified(Object templateSource) {
+            return delegate.getLastModified(((NamedSource) templateSource).source);
+        }
+
+        @Override
+        public Reader getReader(Object templateSource, String encoding) throws IOException {
+            NamedSource named = (NamedSource) templateSource;
+            String source;
+            try (Reader reader = delegate.getReader(named.source, encoding)) {
+                StringBuilder read = new StringBuilder();
+                char[] buffer = new char[4096];
+                int length;
+                while ((length = reader.read(buffer)) != -1) {
+                    read.append(buffer, 0, length);
+                }
+                source = read.toString();
+            }
+            String instrumented = instrument(named.name, named.name, source, false);
+            if (!instrumented.equals(source)) {
+                try {
+                    new Template(named.name, instrumented, freemarkerConfiguration);
+                    return new StringReader(instrumented);
+                } catch (IOException e) {
+                    LOGGER.debug("Could not profile template {}, including it without profiling", named.name, e);
+                }
+            }
+            return new StringReader(source);
+        }
+
+        @Override
+        public void closeTemplateSource(Object templateSource) throws IOException {
+            delegate.closeTemplateSource(((NamedSource) templateSource).source);
+        }
+    }
+
+    /**
+     * Template source of the wrapped loader along with the name it was found by, which includes are resolved against.
+     */
+    private static final class NamedSource {
+
+        private final String name;
+        private final Object source;
+
+        private NamedSource(String name, Object source) {
+            this.name = name;
+            this.source = source;
+        }
+
+        // freemarker compares sources to tell whether a cached template is still current
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof NamedSource)) {
+                return false;
+            }
+            NamedSource that = (NamedSource) o;
+            return name.equals(that.name) && source.equals(that.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, source);
+        }
+    }
+}
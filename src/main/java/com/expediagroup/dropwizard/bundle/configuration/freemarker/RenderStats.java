@@ -0,0 +1,119 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * How long each phase of a render of a {@link TemplateConfigurationSourceProvider} took, and how big its output was.
+ *
+ * <p>Phases that didn't happen are empty: includes are only prefetched if that's enabled, parsing and rendering are
+ * skipped if the output is served from the render cache, and writing the output file isn't measured separately when
+ * streaming, as it's interleaved with rendering.
+ */
+public final class RenderStats {
+
+    private final Duration engineInit;
+    private final Optional<Duration> includePrefetch;
+    private final Optional<Duration> templateParse;
+    private final Duration dataModelBuild;
+    private final List<ProviderResolution> providerResolutions;
+    private final Optional<Duration> render;
+    private final Optional<Duration> outputWrite;
+    private final long outputBytes;
+    private final long variableCount;
+
+    RenderStats(Duration engineInit, Optional<Duration> includePrefetch, Optional<Duration> templateParse,
+        Duration dataModelBuild, List<ProviderResolution> providerResolutions, Optional<Duration> render,
+        Optional<Duration> outputWrite, long outputBytes, long variableCount) {
+        this.engineInit = engineInit;
+        this.includePrefetch = includePrefetch;
+        this.templateParse = templateParse;
+        this.dataModelBuild = dataModelBuild;
+        this.providerResolutions = Collections.unmodifiableList(providerResolutions);
+        this.render = render;
+        this.outputWrite = outputWrite;
+        this.outputBytes = outputBytes;
+        this.variableCount = variableCount;
+    }
+
+    /**
+     * @return time it took to get the freemarker engine, which is only significant for the first render
+     */
+    public Duration getEngineInit() {
+        return engineInit;
+    }
+
+    /**
+     * @return time it took to prefetch the includes, or empty if prefetching is disabled
+     */
+    public Optional<Duration> getIncludePrefetch() {
+        return includePrefetch;
+    }
+
+    /**
+     * @return time it took to get the compiled config template, or empty if the output came from the render cache
+     */
+    public Optional<Duration> getTemplateParse() {
+        return templateParse;
+    }
+
+    /**
+     * @return time it took to create the data model, including resolving the custom providers
+     */
+    public Duration getDataModelBuild() {
+        return dataModelBuild;
+    }
+
+    /**
+     * @return how resolving each custom provider went, or an empty list if a custom data model factory is used
+     */
+    public List<ProviderResolution> getProviderResolutions() {
+        return providerResolutions;
+    }
+
+    /**
+     * @return time it took to render the template, or empty if the output came from the render cache
+     */
+    public Optional<Duration> getRender() {
+        return render;
+    }
+
+    /**
+     * @return time it took to write the output file, or empty if no output path is configured, when streaming or if
+     *     the file is written in the background
+     */
+    public Optional<Duration> getOutputWrite() {
+        return outputWrite;
+    }
+
+    /**
+     * @return size of the rendered config in bytes
+     */
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    /**
+     * @return number of variables in the data model, or 0 if a custom data model factory doesn't create a map
+     */
+    public long getVariableCount() {
+        return variableCount;
+    }
+
+    @Override
+    public String toString() {
+        return "RenderStats{" +
+            "engineInit=" + engineInit +
+            ", includePrefetch=" + includePrefetch +
+            ", templateParse=" + templateParse +
+            ", dataModelBuild=" + dataModelBuild +
+            ", providerResolutions=" + providerResolutions +
+            ", render=" + render +
+            ", outputWrite=" + outputWrite +
+            ", outputBytes=" + outputBytes +
+            ", variableCount=" + variableCount +
+            '}';
+    }
+}
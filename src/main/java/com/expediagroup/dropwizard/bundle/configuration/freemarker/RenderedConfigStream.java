@@ -0,0 +1,108 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Stream of a rendered config that also exposes the rendered characters, so
+ * {@link TemplateConfigurationFactoryFactory}'s parsers can read them without decoding. The characters are only
+ * encoded once something needs the bytes, e.g. the output file or a parser reading the stream.
+ */
+final class RenderedConfigStream extends InputStream {
+
+    private final char[] chars;
+    private final int length;
+    private final Charset charset;
+    private byte[] bytes;
+    private ByteArrayInputStream byteStream;
+
+    RenderedConfigStream(char[] chars, int length, Charset charset) {
+        this.chars = chars;
+        this.length = length;
+        this.charset = charset;
+    }
+
+    /**
+     * @return buffer holding the rendered characters, only the first {@link #length()} of which are valid
+     */
+    char[] chars() {
+        return chars;
+    }
+
+    /**
+     * @return number of rendered characters
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * @return the rendered config encoded with the configured charset
+     */
+    synchronized byte[] bytes() {
+        if (bytes == null) {
+            ByteBuffer encoded = charset.encode(CharBuffer.wrap(chars, 0, length));
+            bytes = new byte[encoded.remaining()];
+            encoded.get(bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the size of the encoded config, without encoding it if it's UTF-8.
+     *
+     * @return size in bytes
+     */
+    synchronized long byteLength() {
+        if (bytes != null || !StandardCharsets.UTF_8.equals(charset)) {
+            return bytes().length;
+        }
+        long byteLength = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                byteLength++;
+            } else if (c < 0x800) {
+                byteLength += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(chars[i + 1])) {
+                byteLength += 4;
+                i++;
+            } else {
+                // unpaired surrogates are encoded as a single replacement byte
+                byteLength += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return byteLength;
+    }
+
+    @Override
+    public int read() {
+        return byteStream().read();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) {
+        return byteStream().read(buffer, offset, length);
+    }
+
+    @Override
+    public long skip(long n) {
+        return byteStream().skip(n);
+    }
+
+    @Override
+    public int available() {
+        return byteStream().available();
+    }
+
+    private synchronized ByteArrayInputStream byteStream() {
+        if (byteStream == null) {
+            byteStream = new ByteArrayInputStream(bytes());
+        }
+        return byteStream;
+    }
+}
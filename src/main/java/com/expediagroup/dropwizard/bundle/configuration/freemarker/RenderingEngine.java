@@ -0,0 +1,27 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Service provider interface for engines rendering config templates.
+ *
+ * <p>An engine may handle only a subset of the freemarker template language. For every template it declines, and for
+ * every render it cannot handle, freemarker is used instead. Use {@link RenderingEngines} for the built-in engines and
+ * {@link TemplateConfigBundleConfiguration#renderingEngine(RenderingEngine)} to select one.
+ */
+public interface RenderingEngine {
+
+    /**
+     * Compiles a config template into a reusable form. Compiled templates are cached and shared between renders and
+     * threads, so they must be thread-safe.
+     *
+     * @param source the template source
+     * @param freemarkerTemplate the template compiled by freemarker, parsed lazily on first render. Compiled templates
+     *     should delegate to it for any render they cannot handle, so users get freemarker's output and errors.
+     * @return the compiled template, or empty if this engine cannot handle the template at all
+     * @throws IOException if the template is invalid
+     */
+    Optional<CompiledTemplate> compile(String source, CompiledTemplate freemarkerTemplate) throws IOException;
+
+}
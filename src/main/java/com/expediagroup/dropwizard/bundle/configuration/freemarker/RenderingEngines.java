@@ -0,0 +1,40 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.Optional;
+
+/**
+ * Utility class with the built-in {@link RenderingEngine} implementations
+ */
+public class RenderingEngines {
+
+    private static final RenderingEngine FREEMARKER = (source, freemarkerTemplate) -> Optional.of(freemarkerTemplate);
+
+    private static final RenderingEngine SUBSTITUTION =
+        (source, freemarkerTemplate) -> SubstitutionPlan.compile(source, freemarkerTemplate);
+
+    private RenderingEngines() {
+    }
+
+    /**
+     * Engine rendering every template with freemarker. This is the default.
+     *
+     * @return freemarker rendering engine
+     */
+    public static RenderingEngine freemarker() {
+        return FREEMARKER;
+    }
+
+    /**
+     * Engine rendering templates that only use plain interpolations like {@code ${env.PORT}},
+     * {@code ${sys['http.port']}} or {@code ${PORT!8080}} without freemarker.
+     *
+     * <p>Such templates are compiled once into a list of text and variable segments, which are rendered without
+     * allocating anything beyond the output. Templates using any other feature, and renders whose data model doesn't
+     * consist of maps of strings, are rendered by freemarker.
+     *
+     * @return substitution rendering engine
+     */
+    public static RenderingEngine substitution() {
+        return SUBSTITUTION;
+    }
+}
@@ -0,0 +1,82 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Collapses concurrent computations of the same key into one. The first caller computes the value, and callers
+ * arriving while the computation is in flight wait for it and get the same value or failure. Nothing is kept once
+ * the computation completed, so the next call computes again.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the computed values
+ */
+final class SingleFlight<K, V> {
+
+    /**
+     * Computation that may fail with a checked exception
+     *
+     * @param <V> type of the computed value
+     * @param <E> type of the checked exception
+     */
+    @FunctionalInterface
+    interface Computation<V, E extends Exception> {
+
+        V compute() throws E;
+    }
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Computes the value of the given key, or waits for the computation already in flight for an equal key.
+     *
+     * @param key key identifying the computation
+     * @param computation computes the value if no computation of the key is in flight
+     * @param <E> type of the checked exception of the computation
+     * @return the computed value
+     * @throws E if the computation failed, also for the callers that waited for it
+     */
+    <E extends Exception> V run(K key, Computation<V, E> computation) throws E {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            return SingleFlight.<V, E>await(existing);
+        }
+        try {
+            V value = computation.compute();
+            flight.complete(value);
+            return value;
+        } catch (Throwable e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return number of computations in flight
+     */
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V, E extends Exception> V await(CompletableFuture<V> flight) throws E {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            // the computation only throws unchecked exceptions and E
+            throw (E) cause;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.Map;
+
+import freemarker.ext.util.WrapperTemplateModel;
+import freemarker.template.AdapterTemplateModel;
+import freemarker.template.Configuration;
+import freemarker.template.DefaultObjectWrapperBuilder;
+import freemarker.template.ObjectWrapper;
+import freemarker.template.SimpleCollection;
+import freemarker.template.SimpleScalar;
+import freemarker.template.TemplateCollectionModel;
+import freemarker.template.TemplateHashModelEx;
+import freemarker.template.TemplateModel;
+import freemarker.template.TemplateModelException;
+
+/**
+ * {@link ObjectWrapper} for data models made of maps and strings, like the one of the default data model factory.
+ *
+ * <p>Maps are wrapped into hashes looking up their values on access and strings into scalars, without the class
+ * introspection freemarker's default wrapper sets up for beans. Any other object, e.g. from a custom
+ * {@code dataModelFactory}, is wrapped by freemarker's default wrapper, which is only created when first needed.
+ */
+final class StringMapObjectWrapper implements ObjectWrapper {
+
+    private volatile ObjectWrapper fallback;
+
+    @Override
+    public TemplateModel wrap(Object object) throws TemplateModelException {
+        if (object == null) {
+            return null;
+        }
+        if (object instanceof TemplateModel) {
+            return (TemplateModel) object;
+        }
+        if (object instanceof String) {
+            return new SimpleScalar((String) object);
+        }
+        if (object instanceof Map) {
+            return new MapModel((Map<?, ?>) object);
+        }
+        return fallback().wrap(object);
+    }
+
+    private ObjectWrapper fallback() {
+        ObjectWrapper wrapper = fallback;
+        if (wrapper == null) {
+            // a race only creates the wrapper twice, it's stateless apart from its caches
+            wrapper = new DefaultObjectWrapperBuilder(Configuration.VERSION_2_3_22).build();
+            fallback = wrapper;
+        }
+        return wrapper;
+    }
+
+    /**
+     * Read-only hash view of a map, wrapping values as they're looked up.
+     */
+    private final class MapModel implements TemplateHashModelEx, AdapterTemplateModel, WrapperTemplateModel {
+
+        private final Map<?, ?> map;
+
+        private MapModel(Map<?, ?> map) {
+            this.map = map;
+        }
+
+        @Override
+        public TemplateModel get(String key) throws TemplateModelException {
+            return wrap(map.get(key));
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public TemplateCollectionModel keys() {
+            return new SimpleCollection(map.keySet(), StringMapObjectWrapper.this);
+        }
+
+        @Override
+        public TemplateCollectionModel values() {
+            return new SimpleCollection(map.values(), StringMapObjectWrapper.this);
+        }
+
+        @Override
+        public Object getAdaptedObject(Class hint) {
+            return map;
+        }
+
+        @Override
+        public Object getWrappedObject() {
+            return map;
+        }
+    }
+}
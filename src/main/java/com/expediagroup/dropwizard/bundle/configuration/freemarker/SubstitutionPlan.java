@@ -0,0 +1,367 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import freemarker.template.TemplateException;
+
+/**
+ * A config template compiled into a list of text and variable segments.
+ *
+ * <p>Only templates consisting of text and plain interpolations are supported: {@code ${name}}, {@code ${ns.name}}
+ * and {@code ${ns['name']}}, each optionally followed by {@code !} and a string or integer default value. Values are
+ * looked up in a data model of maps of strings. Whenever a value cannot be resolved that way, e.g. because it's
+ * missing without a default, the whole render is delegated to freemarker, so output and errors are the same as
+ * freemarker's.
+ */
+final class SubstitutionPlan implements CompiledTemplate {
+
+    private static final Set<String> RESERVED_NAMES =
+        new HashSet<>(Arrays.asList("true", "false", "gt", "gte", "lt", "lte", "as", "in", "using"));
+
+    private final char[] text;
+    private final int[] textStarts;
+    private final int[] textEnds;
+    private final String[] namespaces;
+    private final String[] names;
+    private final String[] defaults;
+    private final CompiledTemplate freemarkerTemplate;
+
+    private SubstitutionPlan(char[] text, List<Segment> segments, CompiledTemplate freemarkerTemplate) {
+        this.text = text;
+        this.textStarts = new int[segments.size()];
+        this.textEnds = new int[segments.size()];
+        this.namespaces = new String[segments.size()];
+        this.names = new String[segments.size()];
+        this.defaults = new String[segments.size()];
+        for (int i = 0; i < segments.size(); i++) {
+            Segment segment = segments.get(i);
+            textStarts[i] = segment.textStart;
+            textEnds[i] = segment.textEnd;
+            namespaces[i] = segment.namespace;
+            names[i] = segment.name;
+            defaults[i] = segment.defaultValue;
+        }
+        this.freemarkerTemplate = freemarkerTemplate;
+    }
+
+    /**
+     * Compiles a template into a substitution plan.
+     *
+     * @param source the template source
+     * @param freemarkerTemplate template to delegate renders to that cannot be handled by the plan
+     * @return the plan, or empty if the template uses anything but plain interpolations
+     */
+    static Optional<CompiledTemplate> compile(String source, CompiledTemplate freemarkerTemplate) {
+        TemplateSourceScanner.ScannedTemplate scanned = TemplateSourceScanner.scan(source);
+        if (!scanned.isComplete()) {
+            return Optional.empty();
+        }
+        List<Segment> segments = new ArrayList<>();
+        for (TemplateSourceScanner.Token token : scanned.tokens()) {
+            if (token.kind == TemplateSourceScanner.Kind.TEXT) {
+                segments.add(Segment.text(token.start, token.end));
+            } else if (token.kind == TemplateSourceScanner.Kind.INTERPOLATION && source.charAt(token.start) == '$') {
+                Optional<Segment> variable = parseInterpolation(token.expression);
+                if (!variable.isPresent()) {
+                    return Optional.empty();
+                }
+                segments.add(variable.get());
+            } else {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new SubstitutionPlan(source.toCharArray(), segments, freemarkerTemplate));
+    }
+
+    /**
+     * Writes the segments of this plan. The text itself isn't written, text segments refer to the template source.
+     *
+     * @param out output to write to
+     * @throws IOException if writing fails
+     * @see #read(DataInput, String, CompiledTemplate)
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null) {
+                out.writeBoolean(false);
+                out.writeInt(textStarts[i]);
+                out.writeInt(textEnds[i]);
+            } else {
+                out.writeBoolean(true);
+                writeString(out, namespaces[i]);
+                writeString(out, names[i]);
+                writeString(out, defaults[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads a plan written by {@link #write(DataOutput)}.
+     *
+     * @param in input to read from
+     * @param source the source of the template the plan was compiled from
+     * @param freemarkerTemplate template to delegate renders to that cannot be handled by the plan
+     * @return the plan
+     * @throws IOException if reading fails or the segments don't fit the source
+     */
+    static CompiledTemplate read(DataInput in, String source, CompiledTemplate freemarkerTemplate) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid substitution plan with " + count + " segments.");
+        }
+        List<Segment> segments = new ArrayList<>(Math.min(count, 1024));
+        for (int i = 0; i < count; i++) {
+            if (in.readBoolean()) {
+                String namespace = readString(in);
+                String name = readString(in);
+                if (name == null) {
+                    throw new IOException("Invalid substitution plan with a variable segment without name.");
+                }
+                segments.add(Segment.variable(namespace, name, readString(in)));
+            } else {
+                int start = in.readInt();
+                int end = in.readInt();
+                if (start < 0 || end < start || end > source.length()) {
+                    throw new IOException("Invalid substitution plan with text segment " + start + "-" + end
+                        + " in a template of " + source.length() + " characters.");
+                }
+                segments.add(Segment.text(start, end));
+            }
+        }
+        return new SubstitutionPlan(source.toCharArray(), segments, freemarkerTemplate);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        // not writeUTF, which is limited to 64 KB
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(value.length());
+            out.writeChars(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public void render(Object dataModel, Writer out) throws IOException, TemplateException {
+        if (!(dataModel instanceof Map) || !isResolvable((Map<?, ?>) dataModel)) {
+            freemarkerTemplate.render(dataModel, out);
+            return;
+        }
+        Map<?, ?> model = (Map<?, ?>) dataModel;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null) {
+                out.write(text, textStarts[i], textEnds[i] - textStarts[i]);
+            } else {
+                out.write(resolve(model, i));
+            }
+        }
+        out.flush();
+    }
+
+    private boolean isResolvable(Map<?, ?> model) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] != null && resolve(model, i) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String resolve(Map<?, ?> model, int segment) {
+        Object value;
+        if (namespaces[segment] == null) {
+            value = model.get(names[segment]);
+        } else {
+            Object namespace = model.get(namespaces[segment]);
+            if (!(namespace instanceof Map)) {
+                return null;
+            }
+            value = ((Map<?, ?>) namespace).get(names[segment]);
+        }
+        if (value == null) {
+            return defaults[segment];
+        }
+        return value instanceof String ? (String) value : null;
+    }
+
+    private static Optional<Segment> parseInterpolation(String expression) {
+        Cursor cursor = new Cursor(expression);
+        String first = cursor.identifier();
+        if (first == null) {
+            return Optional.empty();
+        }
+        String namespace = null;
+        String name = first;
+        cursor.skipWhitespace();
+        if (cursor.consume('.')) {
+            cursor.skipWhitespace();
+            namespace = first;
+            name = cursor.identifier();
+        } else if (cursor.consume('[')) {
+            cursor.skipWhitespace();
+            namespace = first;
+            name = cursor.stringLiteral();
+            cursor.skipWhitespace();
+            if (!cursor.consume(']')) {
+                return Optional.empty();
+            }
+        }
+        if (name == null) {
+            return Optional.empty();
+        }
+        cursor.skipWhitespace();
+        String defaultValue = null;
+        if (cursor.consume('!')) {
+            cursor.skipWhitespace();
+            if (cursor.atEnd()) {
+                defaultValue = "";
+            } else {
+                defaultValue = cursor.peekDigit() ? cursor.integerLiteral() : cursor.stringLiteral();
+                if (defaultValue == null) {
+                    return Optional.empty();
+                }
+            }
+            cursor.skipWhitespace();
+        }
+        if (!cursor.atEnd()) {
+            return Optional.empty();
+        }
+        return Optional.of(Segment.variable(namespace, name, defaultValue));
+    }
+
+    private static final class Segment {
+
+        private final int textStart;
+        private final int textEnd;
+        private final String namespace;
+        private final String name;
+        private final String defaultValue;
+
+        private Segment(int textStart, int textEnd, String namespace, String name, String defaultValue) {
+            this.textStart = textStart;
+            this.textEnd = textEnd;
+            this.namespace = namespace;
+            this.name = name;
+            this.defaultValue = defaultValue;
+        }
+
+        static Segment text(int start, int end) {
+            return new Segment(start, end, null, null, null);
+        }
+
+        static Segment variable(String namespace, String name, String defaultValue) {
+            return new Segment(0, 0, namespace, name, defaultValue);
+        }
+    }
+
+    /**
+     * Minimal parser for the supported subset of freemarker expressions
+     */
+    private static final class Cursor {
+
+        private final String expression;
+        private int position;
+
+        private Cursor(String expression) {
+            this.expression = expression;
+            skipWhitespace();
+        }
+
+        boolean atEnd() {
+            return position >= expression.length();
+        }
+
+        void skipWhitespace() {
+            while (!atEnd() && Character.isWhitespace(expression.charAt(position))) {
+                position++;
+            }
+        }
+
+        boolean consume(char c) {
+            if (!atEnd() && expression.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        boolean peekDigit() {
+            return !atEnd() && expression.charAt(position) >= '0' && expression.charAt(position) <= '9';
+        }
+
+        String identifier() {
+            StringBuilder identifier = new StringBuilder();
+            while (!atEnd()) {
+                char c = expression.charAt(position);
+                if (c == '\\' && position + 1 < expression.length()
+                    && "-.:".indexOf(expression.charAt(position + 1)) >= 0) {
+                    identifier.append(expression.charAt(position + 1));
+                    position += 2;
+                } else if (Character.isLetter(c) || c == '_' || c == '$' || c == '@'
+                    || (identifier.length() > 0 && Character.isDigit(c))) {
+                    identifier.append(c);
+                    position++;
+                } else {
+                    break;
+                }
+            }
+            String name = identifier.toString();
+            return name.isEmpty() || RESERVED_NAMES.contains(name) ? null : name;
+        }
+
+        String integerLiteral() {
+            int start = position;
+            while (peekDigit()) {
+                position++;
+            }
+            if (!atEnd() && (expression.charAt(position) == '.' || Character.isLetter(expression.charAt(position)))) {
+                return null;
+            }
+            return new BigInteger(expression.substring(start, position)).toString();
+        }
+
+        String stringLiteral() {
+            if (atEnd() || (expression.charAt(position) != '"' && expression.charAt(position) != '\'')) {
+                return null;
+            }
+            char quote = expression.charAt(position++);
+            StringBuilder value = new StringBuilder();
+            while (!atEnd()) {
+                char c = expression.charAt(position++);
+                if (c == quote) {
+                    return value.toString();
+                }
+                if (c == '\\' || ((c == '$' || c == '#') && !atEnd() && expression.charAt(position) == '{')) {
+                    // escapes and string interpolation are left to freemarker
+                    return null;
+                }
+                value.append(c);
+            }
+            return null;
+        }
+    }
+}
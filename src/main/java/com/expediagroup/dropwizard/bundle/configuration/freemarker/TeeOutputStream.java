@@ -0,0 +1,39 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link OutputStream} writing everything to several streams at once.
+ */
+final class TeeOutputStream extends OutputStream {
+
+    private final List<OutputStream> targets;
+
+    TeeOutputStream(List<OutputStream> targets) {
+        this.targets = new ArrayList<>(targets);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        for (OutputStream target : targets) {
+            target.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        for (OutputStream target : targets) {
+            target.write(bytes, offset, length);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        for (OutputStream target : targets) {
+            target.flush();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import freemarker.cache.CacheStorage;
+import freemarker.cache.MruCacheStorage;
+import freemarker.cache.NullCacheStorage;
+
+/**
+ * Eviction policies for the template cache shared by all renders of a {@link TemplateConfigBundleConfiguration}.
+ * The policy applies to the main config template as well as to included snippets.
+ */
+public enum TemplateCacheEviction {
+
+    /**
+     * Keeps up to the configured number of templates strongly referenced, evicting the least recently used one.
+     */
+    LRU {
+        @Override
+        CacheStorage createStorage(int size) {
+            return new MruCacheStorage(size, 0);
+        }
+    },
+
+    /**
+     * Keeps up to the configured number of templates softly referenced, so they may be reclaimed under memory pressure.
+     */
+    SOFT {
+        @Override
+        CacheStorage createStorage(int size) {
+            return new MruCacheStorage(0, size);
+        }
+    },
+
+    /**
+     * Disables caching, every template is parsed again on each render.
+     */
+    NONE {
+        @Override
+        CacheStorage createStorage(int size) {
+            return NullCacheStorage.INSTANCE;
+        }
+    };
+
+    abstract CacheStorage createStorage(int size);
+
+}
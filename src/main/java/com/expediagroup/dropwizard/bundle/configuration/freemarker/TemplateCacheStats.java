@@ -0,0 +1,79 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+/**
+ * Snapshot of the hit and miss counters of the template cache shared by all renders of a
+ * {@link TemplateConfigBundleConfiguration}.
+ */
+public final class TemplateCacheStats {
+
+    private final long templateHitCount;
+    private final long templateMissCount;
+    private final long includeHitCount;
+    private final long includeMissCount;
+    private final long fragmentHitCount;
+    private final long fragmentMissCount;
+
+    TemplateCacheStats(long templateHitCount, long templateMissCount, long includeHitCount, long includeMissCount,
+        long fragmentHitCount, long fragmentMissCount) {
+        this.templateHitCount = templateHitCount;
+        this.templateMissCount = templateMissCount;
+        this.includeHitCount = includeHitCount;
+        this.includeMissCount = includeMissCount;
+        this.fragmentHitCount = fragmentHitCount;
+        this.fragmentMissCount = fragmentMissCount;
+    }
+
+    /**
+     * @return number of times a main config template was served from the cache
+     */
+    public long getTemplateHitCount() {
+        return templateHitCount;
+    }
+
+    /**
+     * @return number of times a main config template had to be parsed
+     */
+    public long getTemplateMissCount() {
+        return templateMissCount;
+    }
+
+    /**
+     * @return number of times an included snippet was served from the cache
+     */
+    public long getIncludeHitCount() {
+        return includeHitCount;
+    }
+
+    /**
+     * @return number of times an included snippet had to be loaded and parsed
+     */
+    public long getIncludeMissCount() {
+        return includeMissCount;
+    }
+
+    /**
+     * @return number of times the output of a fragment was reused by incremental rendering
+     */
+    public long getFragmentHitCount() {
+        return fragmentHitCount;
+    }
+
+    /**
+     * @return number of times a fragment had to be rendered by incremental rendering
+     */
+    public long getFragmentMissCount() {
+        return fragmentMissCount;
+    }
+
+    @Override
+    public String toString() {
+        return "TemplateCacheStats{" +
+            "templateHitCount=" + templateHitCount +
+            ", templateMissCount=" + templateMissCount +
+            ", includeHitCount=" + includeHitCount +
+            ", includeMissCount=" + includeMissCount +
+            ", fragmentHitCount=" + fragmentHitCount +
+            ", fragmentMissCount=" + fragmentMissCount +
+            '}';
+    }
+}
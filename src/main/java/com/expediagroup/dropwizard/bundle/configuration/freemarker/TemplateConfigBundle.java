@@ -1,9 +1,32 @@
 package com.expediagroup.dropwizard.bundle.configuration.freemarker;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import io.dropwizard.Configuration;
 import io.dropwizard.ConfiguredBundle;
+import io.dropwizard.configuration.ConfigurationException;
+import io.dropwizard.configuration.ConfigurationFactory;
+import io.dropwizard.configuration.ConfigurationFactoryFactory;
+import io.dropwizard.configuration.DefaultConfigurationFactoryFactory;
 import io.dropwizard.setup.Bootstrap;
 import io.dropwizard.setup.Environment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Dropwizard {@link ConfiguredBundle} that wraps the currently configured
@@ -11,10 +34,19 @@ import io.dropwizard.setup.Environment;
  * {@link TemplateConfigurationSourceProvider}
  * that allows you to write your {@code config.yaml} as a
  * <a href="http://freemarker.org/">Freemarker</a> template.
+ *
+ * <p>When the application runs, timers for each phase of the config render and gauges for its output size and
+ * variable count are registered in the application's metrics under
+ * {@code com.expediagroup.dropwizard.bundle.configuration.freemarker.TemplateConfigBundle.render}.
  */
 public class TemplateConfigBundle<T extends Configuration> implements ConfiguredBundle<T> {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TemplateConfigBundle.class);
+
     private final TemplateConfigBundleConfiguration configuration;
+    private final List<ConfigReloadListener<T>> reloadListeners = new CopyOnWriteArrayList<>();
+    private Bootstrap<?> bootstrap;
+    private TemplateConfigurationSourceProvider sourceProvider;
 
     /**
      * Create a {@link TemplateConfigBundle} using the default configuration.
@@ -32,17 +64,149 @@ public class TemplateConfigBundle<T extends Configuration> implements Configured
         this.configuration = configuration;
     }
 
+    /**
+     * Register a listener for configs re-rendered by the hot reload, see
+     * {@link TemplateConfigBundleConfiguration#hotReload(boolean)}.
+     *
+     * @param listener the listener
+     * @return this bundle
+     */
+    public TemplateConfigBundle<T> addReloadListener(final ConfigReloadListener<T> listener) {
+        if (listener == null) {
+            throw new NullPointerException("Provided listener must not be null.");
+        }
+        reloadListeners.add(listener);
+        return this;
+    }
+
     @Override
     public void initialize(final Bootstrap<?> bootstrap) {
-        bootstrap.setConfigurationSourceProvider(new TemplateConfigurationSourceProvider(
+        this.bootstrap = bootstrap;
+        sourceProvider = new TemplateConfigurationSourceProvider(
                 bootstrap.getConfigurationSourceProvider(),
                 configuration
-        ));
+        );
+        bootstrap.setConfigurationSourceProvider(sourceProvider);
+        if (configuration.directParsing()) {
+            registerConfigurationFactoryFactory(bootstrap);
+        }
+        if (configuration.renderCommand()) {
+            bootstrap.addCommand(new RenderConfigCommand(configuration));
+        }
+        if (configuration.eagerRendering()) {
+            sourceProvider.startEagerRendering();
+        }
+    }
+
+    private static <C extends Configuration> void registerConfigurationFactoryFactory(Bootstrap<C> bootstrap) {
+        if (bootstrap.getConfigurationFactoryFactory() instanceof DefaultConfigurationFactoryFactory) {
+            bootstrap.setConfigurationFactoryFactory(new TemplateConfigurationFactoryFactory<>());
+        } else {
+            LOGGER.info("Keeping the custom {}, the rendered config is parsed from bytes",
+                    ConfigurationFactoryFactory.class.getSimpleName());
+        }
     }
 
     @Override
     public void run(T configuration, Environment environment) {
-        // intentionally left empty
+        if (sourceProvider != null) {
+            sourceProvider.awaitOutputWrites();
+            registerRenderMetrics(environment.metrics(), sourceProvider);
+            if (this.configuration.hotReload() && sourceProvider.lastOpenedPath().isPresent()) {
+                String path = sourceProvider.lastOpenedPath().get();
+                environment.lifecycle().manage(new TemplateWatcher(
+                        configFile(path),
+                        this.configuration.fileIncludePath().map(Paths::get),
+                        this.configuration.hotReloadDebounce(),
+                        () -> reload(path)
+                ));
+            }
+        }
+    }
+
+    private void reload(String path) {
+        try {
+            // included snippets are re-read even if their modification time didn't change
+            configuration.engine().clearIncludeCache();
+            byte[] renderedConfig;
+            try (InputStream config = sourceProvider.open(path)) {
+                renderedConfig = readAll(config);
+            }
+            T parsedConfig = parse(path, renderedConfig);
+            LOGGER.info("Reloaded config {}", path);
+            for (ConfigReloadListener<T> listener : reloadListeners) {
+                listener.configReloaded(renderedConfig, parsedConfig);
+            }
+        } catch (IOException | ConfigurationException | RuntimeException e) {
+            LOGGER.warn("Could not reload config {}, keeping the previous one", path, e);
+            for (ConfigReloadListener<T> listener : reloadListeners) {
+                listener.reloadFailed(e);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T parse(String path, byte[] renderedConfig) throws IOException, ConfigurationException {
+        Class<T> configurationClass = (Class<T>) bootstrap.getApplication().getConfigurationClass();
+        ConfigurationFactory<T> factory = ((ConfigurationFactoryFactory<T>) bootstrap.getConfigurationFactoryFactory())
+                .create(configurationClass, bootstrap.getValidatorFactory().getValidator(), bootstrap.getObjectMapper(),
+                        "dw");
+        return factory.build(ignored -> new ByteArrayInputStream(renderedConfig), path);
+    }
+
+    private static Optional<Path> configFile(String path) {
+        try {
+            return Optional.of(Paths.get(path)).filter(Files::isRegularFile);
+        } catch (InvalidPathException e) {
+            // not a file, e.g. a classpath resource
+            return Optional.empty();
+        }
+    }
+
+    private static byte[] readAll(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void registerRenderMetrics(MetricRegistry metrics, TemplateConfigurationSourceProvider provider) {
+        registerGauge(metrics, "outputBytes", provider, RenderStats::getOutputBytes);
+        registerGauge(metrics, "variableCount", provider, RenderStats::getVariableCount);
+        // the config was rendered during bootstrap, later renders are recorded as they happen
+        provider.lastRenderStats().ifPresent(stats -> recordRender(metrics, stats));
+        provider.addRenderListener(stats -> recordRender(metrics, stats));
+    }
+
+    private static void registerGauge(MetricRegistry metrics, String name,
+        TemplateConfigurationSourceProvider provider, ToLongFunction<RenderStats> value) {
+        metrics.register(metricName(name),
+            (Gauge<Long>) () -> provider.lastRenderStats().map(value::applyAsLong).orElse(0L));
+    }
+
+    private static void recordRender(MetricRegistry metrics, RenderStats stats) {
+        record(metrics, "engineInit", Optional.of(stats.getEngineInit()));
+        record(metrics, "includePrefetch", stats.getIncludePrefetch());
+        record(metrics, "templateParse", stats.getTemplateParse());
+        record(metrics, "dataModelBuild", Optional.of(stats.getDataModelBuild()));
+        record(metrics, "render", stats.getRender());
+        record(metrics, "outputWrite", stats.getOutputWrite());
+        for (ProviderResolution resolution : stats.getProviderResolutions()) {
+            // providers sharing a namespace share a timer
+            record(metrics, "providers." + resolution.getProvider().getNamespace(),
+                Optional.of(resolution.getDuration()));
+        }
+    }
+
+    private static void record(MetricRegistry metrics, String name, Optional<Duration> duration) {
+        duration.ifPresent(d -> metrics.timer(metricName(name)).update(d.toNanos(), TimeUnit.NANOSECONDS));
+    }
+
+    private static String metricName(String name) {
+        return MetricRegistry.name(TemplateConfigBundle.class, "render", name);
     }
 
 }
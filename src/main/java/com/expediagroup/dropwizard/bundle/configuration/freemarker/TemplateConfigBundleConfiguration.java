@@ -2,32 +2,67 @@ package com.expediagroup.dropwizard.bundle.configuration.freemarker;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 /**
  * The configuration for a {@link TemplateConfigBundle}
  */
 public class TemplateConfigBundleConfiguration {
 
+    /**
+     * Default number of templates kept by the template cache
+     */
+    public static final int DEFAULT_TEMPLATE_CACHE_SIZE = 64;
+
+    /**
+     * Default size in bytes of the buffer between the rendering thread and the reader in streaming mode
+     */
+    public static final int DEFAULT_STREAMING_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Default time a hot reload waits for further changes before re-rendering
+     */
+    public static final Duration DEFAULT_HOT_RELOAD_DEBOUNCE = Duration.ofMillis(500);
+
     private Charset charset = StandardCharsets.UTF_8;
     private String resourceIncludePath;
     private String fileIncludePath;
     private String outputPath;
+    private boolean fsyncOutput;
+    private boolean asyncOutputWrite;
+    private boolean directParsing;
+    private String renderCacheDirectory;
+    private boolean streaming;
+    private int streamingBufferSize = DEFAULT_STREAMING_BUFFER_SIZE;
+    private boolean hotReload;
+    private Duration hotReloadDebounce = DEFAULT_HOT_RELOAD_DEBOUNCE;
+    private int templateCacheSize = DEFAULT_TEMPLATE_CACHE_SIZE;
+    private TemplateCacheEviction templateCacheEviction = TemplateCacheEviction.LRU;
+    private RenderingEngine renderingEngine = RenderingEngines.freemarker();
+    private boolean incrementalRendering;
+    private boolean prefetchIncludes;
+    private boolean precompiledTemplates = true;
+    private boolean profiling;
+    private DataModelWrapping dataModelWrapping = DataModelWrapping.DEFAULT;
+    private boolean eagerRendering;
+    private boolean renderCommand;
+    private String eagerRenderingPath;
+    private FreemarkerEngine engine;
     private Set<TemplateConfigVariablesProvider> customProviders = new LinkedHashSet<>();
-    private Supplier<Object> factory = () -> customProviders().stream()
-        .collect(Collectors.toMap(TemplateConfigVariablesProvider::getNamespace,
-            Function.identity(),
-            Providers::mergeProviders))
-        .entrySet()
-        .stream()
-        .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getVariables()));
+    private Executor providerExecutor;
+    private Duration providerTimeout;
+    private ProviderFailurePolicy providerFailurePolicy = ProviderFailurePolicy.FAIL_FAST;
+    private final Map<TemplateConfigVariablesProvider, Duration> providerTimeouts = new HashMap<>();
+    private final Map<TemplateConfigVariablesProvider, ProviderFailurePolicy> providerFailurePolicies = new HashMap<>();
+    private Supplier<Object> factory = new DefaultDataModelFactory(this);
 
     /**
      * Initialize the {@link TemplateConfigBundle} with a custom set of {@link TemplateConfigVariablesProvider} instances.
@@ -92,6 +127,7 @@ public class TemplateConfigBundleConfiguration {
      */
     public TemplateConfigBundleConfiguration charset(Charset charset) {
         this.charset = charset;
+        resetEngine();
         return this;
     }
 
@@ -122,6 +158,177 @@ public class TemplateConfigBundleConfiguration {
         return Optional.ofNullable(outputPath);
     }
 
+    /**
+     * Get whether the output file is forced to the storage device before it replaces the previous one (Default: false)
+     *
+     * @return true if the output file is synced
+     */
+    public boolean fsyncOutput() {
+        return fsyncOutput;
+    }
+
+    /**
+     * Get whether the output file is written in the background (Default: false)
+     *
+     * @return true if the output file is written asynchronously
+     */
+    public boolean asyncOutputWrite() {
+        return asyncOutputWrite;
+    }
+
+    /**
+     * Get whether the rendered config is handed to Dropwizard's parser as characters (Default: false)
+     *
+     * @return true if the rendered config is parsed without encoding it
+     */
+    public boolean directParsing() {
+        return directParsing;
+    }
+
+    /**
+     * Get the configured render cache directory (Default: None)
+     *
+     * @return Optional of render cache directory
+     */
+    public Optional<String> renderCacheDirectory() {
+        return Optional.ofNullable(renderCacheDirectory);
+    }
+
+    /**
+     * Get whether configs are streamed to the reader while being rendered (Default: false)
+     *
+     * @return true if streaming is enabled
+     */
+    public boolean streaming() {
+        return streaming;
+    }
+
+    /**
+     * Get the configured size of the buffer used in streaming mode (Default: {@value #DEFAULT_STREAMING_BUFFER_SIZE})
+     *
+     * @return streaming buffer size in bytes
+     */
+    public int streamingBufferSize() {
+        return streamingBufferSize;
+    }
+
+    /**
+     * Get whether the config template and the {@code fileIncludePath} are watched for changes (Default: false)
+     *
+     * @return true if hot reload is enabled
+     */
+    public boolean hotReload() {
+        return hotReload;
+    }
+
+    /**
+     * Get the time a hot reload waits for further changes before re-rendering (Default: 500ms)
+     *
+     * @return hot reload debounce time
+     */
+    public Duration hotReloadDebounce() {
+        return hotReloadDebounce;
+    }
+
+    /**
+     * Get the configured maximum number of templates kept by the template cache (Default: {@value #DEFAULT_TEMPLATE_CACHE_SIZE})
+     *
+     * @return template cache size
+     */
+    public int templateCacheSize() {
+        return templateCacheSize;
+    }
+
+    /**
+     * Get the configured eviction policy of the template cache (Default: {@link TemplateCacheEviction#LRU})
+     *
+     * @return template cache eviction policy
+     */
+    public TemplateCacheEviction templateCacheEviction() {
+        return templateCacheEviction;
+    }
+
+    /**
+     * Get the configured engine rendering config templates (Default: {@link RenderingEngines#freemarker()})
+     *
+     * @return rendering engine
+     */
+    public RenderingEngine renderingEngine() {
+        return renderingEngine;
+    }
+
+    /**
+     * Get whether unchanged fragments of a config template are reused from the previous render (Default: false)
+     *
+     * @return true if incremental rendering is enabled
+     */
+    public boolean incrementalRendering() {
+        return incrementalRendering;
+    }
+
+    /**
+     * Get whether statically known includes are loaded concurrently before rendering (Default: false)
+     *
+     * @return true if includes are prefetched
+     */
+    public boolean prefetchIncludes() {
+        return prefetchIncludes;
+    }
+
+    /**
+     * Get whether templates precompiled at build time by {@link TemplatePrecompiler} are used (Default: true)
+     *
+     * @return true if precompiled templates are used
+     */
+    public boolean precompiledTemplates() {
+        return precompiledTemplates;
+    }
+
+    /**
+     * Get whether renders record the time spent and bytes emitted per include and top level directive (Default: false)
+     *
+     * @return true if renders are profiled
+     */
+    public boolean profiling() {
+        return profiling;
+    }
+
+    /**
+     * Get how the data model is exposed to templates (Default: {@link DataModelWrapping#DEFAULT})
+     *
+     * @return data model wrapping
+     */
+    public DataModelWrapping dataModelWrapping() {
+        return dataModelWrapping;
+    }
+
+    /**
+     * Get whether {@link TemplateConfigBundle} registers the {@code render-config} command (Default: false)
+     *
+     * @return true if the command is registered
+     */
+    public boolean renderCommand() {
+        return renderCommand;
+    }
+
+    /**
+     * Get whether {@link TemplateConfigBundle} starts rendering while the application is initialized (Default: false)
+     *
+     * @return true if rendering starts eagerly
+     */
+    public boolean eagerRendering() {
+        return eagerRendering;
+    }
+
+    /**
+     * Get the config path rendered eagerly by {@link TemplateConfigBundle} (Default: None)
+     *
+     * @return Optional of the eagerly rendered config path
+     */
+    public Optional<String> eagerRenderingPath() {
+        return Optional.ofNullable(eagerRenderingPath);
+    }
+
     /**
      * Get the set of custom providers used to add variables to the configuration template (Default: Empty Set)
      *
@@ -131,6 +338,35 @@ public class TemplateConfigBundleConfiguration {
         return customProviders;
     }
 
+    /**
+     * Get the configured executor custom providers are resolved on (Default: None, meaning a shared executor using
+     * virtual threads where available)
+     *
+     * @return Optional of provider executor
+     */
+    public Optional<Executor> providerExecutor() {
+        return Optional.ofNullable(providerExecutor);
+    }
+
+    /**
+     * Get the configured time to wait for a custom provider's variables (Default: None, meaning no timeout)
+     *
+     * @return Optional of provider timeout
+     */
+    public Optional<Duration> providerTimeout() {
+        return Optional.ofNullable(providerTimeout);
+    }
+
+    /**
+     * Get the configured policy for custom providers failing or timing out (Default:
+     * {@link ProviderFailurePolicy#FAIL_FAST})
+     *
+     * @return provider failure policy
+     */
+    public ProviderFailurePolicy providerFailurePolicy() {
+        return providerFailurePolicy;
+    }
+
     /**
      * Set the resource path from which config snippets will be included
      *
@@ -154,6 +390,7 @@ public class TemplateConfigBundleConfiguration {
             );
         }
         this.resourceIncludePath = path;
+        resetEngine();
         return this;
     }
 
@@ -180,6 +417,7 @@ public class TemplateConfigBundleConfiguration {
             );
         }
         this.fileIncludePath = path;
+        resetEngine();
         return this;
     }
 
@@ -200,6 +438,140 @@ public class TemplateConfigBundleConfiguration {
         return this;
     }
 
+    /**
+     * Enable or disable forcing the output file to the storage device before it replaces the previous one
+     *
+     * <p>The output file is always written to a temporary file first, which then atomically replaces the previous
+     * output, so readers never see a partially written config. It's not written at all if it already has the rendered
+     * content. Syncing additionally makes sure the new content survives a crash of the machine.
+     *
+     * @param fsync whether to sync the output file
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration fsyncOutput(boolean fsync) {
+        this.fsyncOutput = fsync;
+        return this;
+    }
+
+    /**
+     * Enable or disable writing the output file in the background
+     *
+     * <p>The config is then handed to Dropwizard without waiting for the output file, which is written on the
+     * {@code providerExecutor}. {@link TemplateConfigBundle} waits for the write when the application runs, so a
+     * failing write still fails the startup. Doesn't apply to streaming, which writes the output file while rendering.
+     *
+     * @param asyncOutputWrite whether to write the output file in the background
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration asyncOutputWrite(boolean asyncOutputWrite) {
+        this.asyncOutputWrite = asyncOutputWrite;
+        return this;
+    }
+
+    /**
+     * Enable or disable handing the rendered config to Dropwizard's parser as characters
+     *
+     * <p>The config is rendered to characters, which are normally encoded with the {@code charset} only for Dropwizard
+     * to decode them again. With direct parsing, {@link TemplateConfigBundle} registers a
+     * {@link TemplateConfigurationFactoryFactory}, whose YAML parsers read the rendered characters directly, and the
+     * config is only encoded if the {@code outputPath} or the render cache needs the bytes. The bundle keeps any
+     * custom {@link io.dropwizard.configuration.ConfigurationFactoryFactory} set before it was added, in which case
+     * the config is encoded as usual. Doesn't apply to streaming.
+     *
+     * @param directParsing whether to parse the rendered characters directly
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration directParsing(boolean directParsing) {
+        this.directParsing = directParsing;
+        return this;
+    }
+
+    /**
+     * Set the directory in which rendered configs are cached between restarts
+     *
+     * <p>Must not be {@code null}. By default there's no value set and every config is rendered on startup.
+     * When set, a render is skipped if the template, its includes and the data model are unchanged since the
+     * cached render. The cache holds the rendered config in plain text, so don't point it to a shared location
+     * if the config contains secrets.
+     *
+     * @param directory the render cache directory
+     * @return this configuration
+     * @throws NullPointerException if provided {@code directory} is {@code null}
+     */
+    public TemplateConfigBundleConfiguration renderCacheDirectory(String directory) {
+        if (directory == null) {
+            throw new NullPointerException("Provided render cache directory must not be null.");
+        }
+        this.renderCacheDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Enable or disable streaming of the rendered config
+     *
+     * <p>By default the whole config is rendered into memory before it's handed to Dropwizard. In streaming mode the
+     * template is rendered on a background thread that feeds a bounded buffer, which Dropwizard reads from, and the
+     * {@code outputPath} file is written in the same pass, so the rendered config is never held in memory as a
+     * whole. Rendering failures are then reported as an {@link java.io.IOException} while reading the config.
+     *
+     * @param streaming whether to stream the rendered config
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration streaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    /**
+     * Set the size of the buffer between the rendering thread and the reader in streaming mode
+     *
+     * @param bufferSize buffer size in bytes
+     * @return this configuration
+     * @throws IllegalArgumentException if provided {@code bufferSize} is not positive
+     */
+    public TemplateConfigBundleConfiguration streamingBufferSize(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Streaming buffer size must be positive.");
+        }
+        this.streamingBufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Enable or disable hot reload of the rendered config
+     *
+     * <p>When enabled, the config template file and the {@code fileIncludePath} directory are watched while the
+     * application runs. Changes are re-rendered after the debounce time and handed to the listeners registered with
+     * {@link TemplateConfigBundle#addReloadListener(ConfigReloadListener)}. The application decides what to do with
+     * the new config, nothing is reconfigured automatically.
+     *
+     * @param hotReload whether to watch for changes
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration hotReload(boolean hotReload) {
+        this.hotReload = hotReload;
+        return this;
+    }
+
+    /**
+     * Set the time a hot reload waits after a change for further changes, so a burst of changes is rendered once
+     *
+     * @param debounce debounce time
+     * @return this configuration
+     * @throws NullPointerException if provided {@code debounce} is null
+     * @throws IllegalArgumentException if provided {@code debounce} is negative
+     */
+    public TemplateConfigBundleConfiguration hotReloadDebounce(Duration debounce) {
+        if (debounce == null) {
+            throw new NullPointerException("Provided debounce time must not be null.");
+        }
+        if (debounce.isNegative()) {
+            throw new IllegalArgumentException("Debounce time must not be negative.");
+        }
+        this.hotReloadDebounce = debounce;
+        return this;
+    }
+
     /**
      * Add a custom provider used to add your own variables to the configuration template.
      *
@@ -210,4 +582,335 @@ public class TemplateConfigBundleConfiguration {
         this.customProviders.add(customProvider);
         return this;
     }
+
+    /**
+     * Set the executor custom providers are resolved on
+     *
+     * <p>Must not be {@code null}. Providers are resolved concurrently, so the time to create the data model is
+     * the time of the slowest provider rather than the sum of all of them. By default a shared executor is used that
+     * runs each provider on a virtual thread where the JVM supports them, and on a daemon thread otherwise.
+     *
+     * @param executor the executor
+     * @return this configuration
+     * @throws NullPointerException if provided {@code executor} is {@code null}
+     */
+    public TemplateConfigBundleConfiguration providerExecutor(Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("Provided provider executor must not be null.");
+        }
+        this.providerExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Set the time to wait for the variables of each custom provider
+     *
+     * <p>Must not be {@code null}. By default there's no timeout. A provider that times out is cancelled by
+     * interrupting the thread resolving it. What happens to the render is decided by its
+     * {@link #providerFailurePolicy(ProviderFailurePolicy) failure policy}.
+     *
+     * @param timeout the timeout, counted from the start of the resolution of all providers
+     * @return this configuration
+     * @throws NullPointerException if provided {@code timeout} is {@code null}
+     * @throws IllegalArgumentException if provided {@code timeout} is not positive
+     */
+    public TemplateConfigBundleConfiguration providerTimeout(Duration timeout) {
+        this.providerTimeout = checkTimeout(timeout);
+        return this;
+    }
+
+    /**
+     * Set the time to wait for the variables of the given custom provider, overriding
+     * {@link #providerTimeout(Duration)}
+     *
+     * @param provider the provider
+     * @param timeout the timeout, counted from the start of the resolution of all providers
+     * @return this configuration
+     * @throws NullPointerException if provided {@code provider} or {@code timeout} is {@code null}
+     * @throws IllegalArgumentException if provided {@code timeout} is not positive
+     */
+    public TemplateConfigBundleConfiguration providerTimeout(TemplateConfigVariablesProvider provider,
+        Duration timeout) {
+        if (provider == null) {
+            throw new NullPointerException("Provided provider must not be null.");
+        }
+        this.providerTimeouts.put(provider, checkTimeout(timeout));
+        return this;
+    }
+
+    /**
+     * Set what to do when a custom provider fails or times out
+     *
+     * <p>Must not be {@code null}. The default is {@link ProviderFailurePolicy#FAIL_FAST}.
+     *
+     * @param policy the failure policy
+     * @return this configuration
+     * @throws NullPointerException if provided {@code policy} is {@code null}
+     */
+    public TemplateConfigBundleConfiguration providerFailurePolicy(ProviderFailurePolicy policy) {
+        if (policy == null) {
+            throw new NullPointerException("Provided provider failure policy must not be null.");
+        }
+        this.providerFailurePolicy = policy;
+        return this;
+    }
+
+    /**
+     * Set what to do when the given custom provider fails or times out, overriding
+     * {@link #providerFailurePolicy(ProviderFailurePolicy)}
+     *
+     * @param provider the provider
+     * @param policy the failure policy
+     * @return this configuration
+     * @throws NullPointerException if provided {@code provider} or {@code policy} is {@code null}
+     */
+    public TemplateConfigBundleConfiguration providerFailurePolicy(TemplateConfigVariablesProvider provider,
+        ProviderFailurePolicy policy) {
+        if (provider == null || policy == null) {
+            throw new NullPointerException("Provided provider and failure policy must not be null.");
+        }
+        this.providerFailurePolicies.put(provider, policy);
+        return this;
+    }
+
+    /**
+     * Set the maximum number of templates kept by the template cache
+     *
+     * <p>The limit applies separately to main config templates and to included snippets.
+     *
+     * @param size the maximum number of cached templates
+     * @return this configuration
+     * @throws IllegalArgumentException if provided {@code size} is negative
+     */
+    public TemplateConfigBundleConfiguration templateCacheSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Template cache size must not be negative.");
+        }
+        this.templateCacheSize = size;
+        resetEngine();
+        return this;
+    }
+
+    /**
+     * Set the eviction policy of the template cache
+     *
+     * <p>Must not be {@code null}. The default is {@link TemplateCacheEviction#LRU}.
+     *
+     * @param eviction the eviction policy
+     * @return this configuration
+     * @throws NullPointerException if provided {@code eviction} is {@code null}
+     */
+    public TemplateConfigBundleConfiguration templateCacheEviction(TemplateCacheEviction eviction) {
+        if (eviction == null) {
+            throw new NullPointerException("Provided template cache eviction must not be null.");
+        }
+        this.templateCacheEviction = eviction;
+        resetEngine();
+        return this;
+    }
+
+    /**
+     * Set the engine rendering config templates
+     *
+     * <p>Must not be {@code null}. The default is {@link RenderingEngines#freemarker()}. Use
+     * {@link RenderingEngines#substitution()} to render templates that only use plain interpolations without
+     * freemarker.
+     *
+     * @param renderingEngine the rendering engine
+     * @return this configuration
+     * @throws NullPointerException if provided {@code renderingEngine} is {@code null}
+     */
+    public TemplateConfigBundleConfiguration renderingEngine(RenderingEngine renderingEngine) {
+        if (renderingEngine == null) {
+            throw new NullPointerException("Provided rendering engine must not be null.");
+        }
+        this.renderingEngine = renderingEngine;
+        resetEngine();
+        return this;
+    }
+
+    /**
+     * Enable or disable incremental rendering of config templates
+     *
+     * <p>The config template is split at the includes on lines of their own, outside of any directive. Each of these
+     * fragments is rendered on its own and its output is kept, together with the sources it depends on and the values
+     * of the variables it may reference. On the next render only fragments whose sources or variables changed are
+     * rendered again. Fragments can only be rendered on their own if neither the template nor anything it includes
+     * defines variables or macros, imports libraries, calls macros or uses special variables like {@code .now}; other
+     * templates are always rendered as a whole.
+     *
+     * @param incrementalRendering whether to render incrementally
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration incrementalRendering(boolean incrementalRendering) {
+        this.incrementalRendering = incrementalRendering;
+        resetEngine();
+        return this;
+    }
+
+    /**
+     * Enable or disable prefetching of includes
+     *
+     * <p>Freemarker loads every included snippet when rendering reaches it, one after the other. With prefetching, the
+     * includes whose names are string literals are loaded concurrently on the {@code providerExecutor} before
+     * rendering, level by level, and rendering reads them from memory. This pays off if snippets come from slow
+     * storage like network mounts.
+     *
+     * @param prefetchIncludes whether to prefetch includes
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration prefetchIncludes(boolean prefetchIncludes) {
+        this.prefetchIncludes = prefetchIncludes;
+        resetEngine();
+        return this;
+    }
+
+    /**
+     * Enable or disable the use of templates precompiled at build time
+     *
+     * <p>If the class path contains the artifact written by {@link TemplatePrecompiler}, e.g. through the
+     * {@code dropwizard-template-config-maven-plugin}, config templates it contains aren't parsed when they're
+     * opened. Templates that only use plain interpolations are rendered from their precompiled substitution plan,
+     * others are parsed on their first render. Templates are matched by their source, so changed templates are parsed
+     * as usual. Precompiled templates are only used with the built-in rendering engines.
+     *
+     * @param precompiledTemplates whether to use precompiled templates
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration precompiledTemplates(boolean precompiledTemplates) {
+        this.precompiledTemplates = precompiledTemplates;
+        resetEngine();
+        return this;
+    }
+
+    /**
+     * Enable or disable profiling of renders
+     *
+     * <p>Every include, and every top level directive and macro call of the config template, records how long it took
+     * and how many bytes it emitted, summed up over all its executions. When a render finishes, the slowest entries
+     * are logged, and if an {@code outputPath} is set, the whole report is written as JSON next to it, to
+     * {@code <outputPath>.profile.json}. Times are inclusive, so an include within a loop counts for both.
+     *
+     * <p>Profiling instruments the templates and renders them with freemarker as a whole, so the
+     * {@code renderingEngine}, incremental rendering and precompiled templates aren't used. It's meant to find out
+     * which snippet or loop makes a render slow, not to be left on.
+     *
+     * @param profiling whether to profile renders
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration profiling(boolean profiling) {
+        this.profiling = profiling;
+        resetEngine();
+        return this;
+    }
+
+    /**
+     * Set how the data model is exposed to templates
+     *
+     * <p>Must not be {@code null}. {@link DataModelWrapping#STRING_MAP} skips the class introspection of freemarker's
+     * default object wrapper, which saves startup time and allocations as long as the data model consists of the
+     * maps and strings of the custom providers.
+     *
+     * @param wrapping the data model wrapping
+     * @return this configuration
+     * @throws NullPointerException if provided {@code wrapping} is {@code null}
+     */
+    public TemplateConfigBundleConfiguration dataModelWrapping(DataModelWrapping wrapping) {
+        if (wrapping == null) {
+            throw new NullPointerException("Provided data model wrapping must not be null.");
+        }
+        this.dataModelWrapping = wrapping;
+        resetEngine();
+        return this;
+    }
+
+    /**
+     * Enable or disable the {@code render-config} command
+     *
+     * <p>The command renders config templates against many sets of variables in parallel, sharing one freemarker
+     * engine, and writes the outputs and a summary of timings and failures, e.g.
+     * {@code java -jar app.jar render-config -v 'envs/*.properties' -o target/configs config.yaml}. It fails if any
+     * config fails to render, so it can validate the configs of all environments in a CI build. See
+     * {@code java -jar app.jar render-config -h} for all arguments.
+     *
+     * @param renderCommand whether to register the command
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration renderCommand(boolean renderCommand) {
+        this.renderCommand = renderCommand;
+        return this;
+    }
+
+    /**
+     * Enable or disable eager rendering
+     *
+     * <p>Dropwizard opens the config only after all bundles are initialized. With eager rendering,
+     * {@link TemplateConfigBundle#initialize(io.dropwizard.setup.Bootstrap)} starts creating the freemarker engine and
+     * resolving the custom providers on a background thread, and opening the config waits for it, so this work
+     * overlaps with the rest of the bootstrap. The config path isn't known that early, so the providers are asked for
+     * all their variables instead of only the ones the template references. To render the whole config eagerly, set
+     * its path with {@link #eagerRenderingPath(String)}.
+     *
+     * @param eagerRendering whether to start rendering eagerly
+     * @return this configuration
+     */
+    public TemplateConfigBundleConfiguration eagerRendering(boolean eagerRendering) {
+        this.eagerRendering = eagerRendering;
+        return this;
+    }
+
+    /**
+     * Set the path of the config to render eagerly
+     *
+     * <p>Must not be {@code null}. Enables {@link #eagerRendering(boolean) eager rendering}, which then renders the
+     * whole config with the given path in the background, including writing the {@code outputPath}. If Dropwizard
+     * opens a different path, that one is rendered as usual.
+     *
+     * @param path the path of the config Dropwizard is started with
+     * @return this configuration
+     * @throws NullPointerException if provided {@code path} is {@code null}
+     */
+    public TemplateConfigBundleConfiguration eagerRenderingPath(String path) {
+        if (path == null) {
+            throw new NullPointerException("Provided eager rendering path must not be null.");
+        }
+        this.eagerRenderingPath = path;
+        this.eagerRendering = true;
+        return this;
+    }
+
+    /**
+     * Freemarker engine shared by all providers using this configuration. Created on first use and discarded whenever
+     * a setting it depends on changes.
+     *
+     * @return shared engine
+     */
+    synchronized FreemarkerEngine engine() {
+        if (engine == null) {
+            engine = new FreemarkerEngine(this);
+        }
+        return engine;
+    }
+
+    Optional<Duration> timeoutOf(TemplateConfigVariablesProvider provider) {
+        return Optional.ofNullable(providerTimeouts.getOrDefault(provider, providerTimeout));
+    }
+
+    ProviderFailurePolicy failurePolicyOf(TemplateConfigVariablesProvider provider) {
+        return providerFailurePolicies.getOrDefault(provider, providerFailurePolicy);
+    }
+
+    private static Duration checkTimeout(Duration timeout) {
+        if (timeout == null) {
+            throw new NullPointerException("Provided provider timeout must not be null.");
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Provider timeout must be positive.");
+        }
+        return timeout;
+    }
+
+    private synchronized void resetEngine() {
+        this.engine = null;
+    }
 }
@@ -1,6 +1,7 @@
 package com.expediagroup.dropwizard.bundle.configuration.freemarker;
 
 import java.util.Map;
+import java.util.Set;
 
 public interface TemplateConfigVariablesProvider {
 
@@ -19,4 +20,19 @@ public interface TemplateConfigVariablesProvider {
      */
     Map<String, String> getVariables();
 
+    /**
+     * Override this if your provider can fetch variables selectively, e.g. from an external store. The bundle analyzes
+     * the config template and its includes before rendering and calls this method with the keys of this provider's
+     * namespace the template may reference, plus all keys the template references without a namespace. The returned
+     * map may contain more variables than requested. If the template accesses the namespace in a way that can't be
+     * analyzed, {@link #getVariables()} is called instead.
+     *
+     * @param requestedKeys the keys the template may reference
+     * @return A data model that the freemarker engine will use when parsing the config template. By default the result
+     * of {@link #getVariables()}.
+     */
+    default Map<String, String> getVariables(Set<String> requestedKeys) {
+        return getVariables();
+    }
+
 }
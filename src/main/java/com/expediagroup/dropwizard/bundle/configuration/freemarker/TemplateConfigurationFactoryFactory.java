@@ -0,0 +1,51 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.validation.Validator;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.dropwizard.configuration.ConfigurationFactory;
+import io.dropwizard.configuration.ConfigurationFactoryFactory;
+import io.dropwizard.configuration.YamlConfigurationFactory;
+
+/**
+ * Dropwizard {@link ConfigurationFactoryFactory} creating YAML configuration factories that parse configs rendered by a
+ * {@link TemplateConfigurationSourceProvider} straight from the rendered characters, instead of decoding the bytes
+ * the characters were encoded to. Any other config is parsed like by Dropwizard's default factories.
+ *
+ * <p>Registered by {@link TemplateConfigBundle} if {@link TemplateConfigBundleConfiguration#directParsing(boolean)}
+ * is enabled.
+ *
+ * @param <T> the configuration class
+ */
+public class TemplateConfigurationFactoryFactory<T> implements ConfigurationFactoryFactory<T> {
+
+    @Override
+    public ConfigurationFactory<T> create(Class<T> klass, Validator validator, ObjectMapper objectMapper,
+        String propertyPrefix) {
+        return new CharacterYamlConfigurationFactory<>(klass, validator, objectMapper, propertyPrefix);
+    }
+
+    private static final class CharacterYamlConfigurationFactory<T> extends YamlConfigurationFactory<T> {
+
+        private final YAMLFactory yamlFactory = new YAMLFactory();
+
+        private CharacterYamlConfigurationFactory(Class<T> klass, Validator validator, ObjectMapper objectMapper,
+            String propertyPrefix) {
+            super(klass, validator, objectMapper, propertyPrefix);
+        }
+
+        @Override
+        protected JsonParser createParser(InputStream input) throws IOException {
+            if (input instanceof RenderedConfigStream) {
+                RenderedConfigStream rendered = (RenderedConfigStream) input;
+                return yamlFactory.createParser(rendered.chars(), 0, rendered.length());
+            }
+            return super.createParser(input);
+        }
+    }
+}
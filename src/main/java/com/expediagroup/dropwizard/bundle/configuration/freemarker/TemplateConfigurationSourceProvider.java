@@ -2,22 +2,34 @@ package com.expediagroup.dropwizard.bundle.configuration.freemarker;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
+import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.nio.file.Files;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-import freemarker.template.Configuration;
-import freemarker.template.Template;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import freemarker.template.TemplateException;
-import freemarker.template.TemplateExceptionHandler;
 import io.dropwizard.configuration.ConfigurationSourceProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * An implementation of Dropwizard {@link ConfigurationSourceProvider} that extends an existing {@link ConfigurationSourceProvider} instance
@@ -25,8 +37,19 @@ import io.dropwizard.configuration.ConfigurationSourceProvider;
  */
 public class TemplateConfigurationSourceProvider implements ConfigurationSourceProvider {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(TemplateConfigurationSourceProvider.class);
+
+    static final String PROFILE_REPORT_SUFFIX = ".profile.json";
+    private static final int PROFILE_SUMMARY_ENTRIES = 10;
+
     private final ConfigurationSourceProvider parentProvider;
     private final TemplateConfigBundleConfiguration configuration;
+    private final List<Consumer<RenderStats>> renderListeners = new CopyOnWriteArrayList<>();
+    private RenderCache renderCache;
+    private volatile RenderStats lastRenderStats;
+    private volatile String lastOpenedPath;
+    private CompletableFuture<Void> pendingOutputWrite = CompletableFuture.completedFuture(null);
+    private CompletableFuture<EagerRender> eagerRender;
 
     TemplateConfigurationSourceProvider(
             final ConfigurationSourceProvider parentProvider,
@@ -38,66 +61,604 @@ public class TemplateConfigurationSourceProvider implements ConfigurationSourceP
 
     @Override
     public InputStream open(final String path) throws IOException {
+        lastOpenedPath = path;
+        Optional<EagerRender> eager = awaitEagerRender();
+        if (eager.isPresent() && eager.get().config != null && eager.get().path.equals(path)) {
+            return eager.get().config;
+        }
         try {
-            return createConfigurationSourceStream(path);
+            return createConfigurationSourceStream(path, eager.map(render -> render.dataModel));
         } catch (TemplateException e) {
             throw new IllegalStateException("Could not render template.", e);
         }
     }
 
-    private InputStream createConfigurationSourceStream(String path) throws IOException, TemplateException {
-        Configuration freemarkerConfiguration = createFreemarkerConfiguration();
-        Template configTemplate = createFreemarkerTemplate(path, freemarkerConfiguration);
-        byte[] processedConfigTemplate = processTemplate(Objects.requireNonNull(configuration.dataModelFactory().get()), configTemplate);
-        writeConfigFile(processedConfigTemplate);
-        return new ByteArrayInputStream(processedConfigTemplate);
+    /**
+     * Returns the hit and miss counters of the template cache shared by all renders of this provider's configuration.
+     *
+     * @return template cache statistics
+     */
+    public TemplateCacheStats templateCacheStats() {
+        return configuration.engine().cacheStats();
+    }
+
+    /**
+     * Returns the hit and miss counters of the render cache, if one is configured.
+     *
+     * @return render cache statistics, or empty if no render cache directory is configured
+     */
+    public Optional<RenderCacheStats> renderCacheStats() {
+        return renderCache().map(RenderCache::stats);
+    }
+
+    /**
+     * Returns how resolving each custom provider went during the last render with the default data model factory.
+     *
+     * @return resolution of each provider in provider order, or an empty list if a custom data model factory is used
+     */
+    public List<ProviderResolution> providerResolutions() {
+        Supplier<Object> factory = configuration.dataModelFactory();
+        return factory instanceof DefaultDataModelFactory
+            ? ((DefaultDataModelFactory) factory).lastResolutions() : Collections.emptyList();
+    }
+
+    /**
+     * Returns how long each phase of the last successful render took.
+     *
+     * @return stats of the last render, or empty if nothing has been rendered yet
+     */
+    public Optional<RenderStats> lastRenderStats() {
+        return Optional.ofNullable(lastRenderStats);
+    }
+
+    /**
+     * @return the path of the config template opened last, or empty if none was opened yet
+     */
+    Optional<String> lastOpenedPath() {
+        return Optional.ofNullable(lastOpenedPath);
+    }
+
+    /**
+     * Registers a listener that is called with the stats of every successful render from now on.
+     *
+     * @param listener the listener
+     */
+    void addRenderListener(Consumer<RenderStats> listener) {
+        renderListeners.add(listener);
+    }
+
+    /**
+     * Starts rendering on a background thread, to be picked up by the next {@link #open(String)}. See
+     * {@link TemplateConfigBundleConfiguration#eagerRendering(boolean)}.
+     */
+    synchronized void startEagerRendering() {
+        if (eagerRender != null) {
+            return;
+        }
+        Optional<String> path = configuration.eagerRenderingPath();
+        eagerRender = CompletableFuture.supplyAsync(() -> renderEagerly(path), task -> {
+            Thread renderThread = new Thread(task, "template-config-eager-render");
+            renderThread.setDaemon(true);
+            renderThread.start();
+        });
+    }
+
+    private EagerRender renderEagerly(Optional<String> path) {
+        try {
+            if (path.isPresent()) {
+                InputStream rendered = createConfigurationSourceStream(path.get(), Optional.empty());
+                if (rendered instanceof RenderedConfigStream) {
+                    // not read yet, keep the characters for direct parsing
+                    return new EagerRender(path.get(), rendered, null);
+                }
+                try (InputStream config = rendered) {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = config.read(buffer)) != -1) {
+                        output.write(buffer, 0, read);
+                    }
+                    return new EagerRender(path.get(), new ByteArrayInputStream(output.toByteArray()), null);
+                }
+            }
+            configuration.engine();
+            return new EagerRender(null, null, Objects.requireNonNull(configuration.dataModelFactory().get()));
+        } catch (IOException | TemplateException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private Optional<EagerRender> awaitEagerRender() {
+        CompletableFuture<EagerRender> pending;
+        synchronized (this) {
+            pending = eagerRender;
+            eagerRender = null;
+        }
+        if (pending == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(pending.join());
+        } catch (CompletionException e) {
+            // rendering again reports the failure where Dropwizard expects it
+            LOGGER.debug("Eager rendering failed, rendering on open", e.getCause());
+            return Optional.empty();
+        }
+    }
+
+    private InputStream createConfigurationSourceStream(String path, Optional<Object> warmDataModel)
+        throws IOException, TemplateException {
+        long start = System.nanoTime();
+        FreemarkerEngine engine = configuration.engine();
+        Duration engineInit = since(start);
+        String source = readTemplateSource(path);
+        if (configuration.streaming()) {
+            // every reader needs its own pipe, so streamed renders aren't shared
+            Render streamed = render(path, source, engine, engineInit, warmDataModel, Duration.ZERO);
+            if (streamed.stats != null) {
+                // a render cache hit, a streamed render publishes its stats once it finished
+                publish(streamed.stats);
+            }
+            return streamed.open(configuration.charset());
+        }
+        Optional<Object> dataModel = warmDataModel;
+        Duration dataModelBuild = Duration.ZERO;
+        Supplier<Object> factory = configuration.dataModelFactory();
+        if (!dataModel.isPresent() && !(factory instanceof DefaultDataModelFactory)) {
+            // a custom data model is only known once it's built, so it's part of what identifies a render
+            start = System.nanoTime();
+            dataModel = Optional.of(Objects.requireNonNull(factory.get()));
+            dataModelBuild = since(start);
+        }
+        RenderKey key = new RenderKey(path, source, factory instanceof DefaultDataModelFactory ? null : dataModel.get());
+        Optional<Object> renderDataModel = dataModel;
+        Duration renderDataModelBuild = dataModelBuild;
+        Render rendered;
+        try {
+            rendered = engine.renders().run(key,
+                () -> render(path, source, engine, engineInit, renderDataModel, renderDataModelBuild));
+        } catch (IOException | TemplateException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not render template.", e);
+        }
+        // every caller, including the ones that waited for another caller's render, reports it to its listeners
+        publish(rendered.stats);
+        return rendered.open(configuration.charset());
+    }
+
+    /**
+     * Renders a config template. Unless streaming, callers opening the same template with the same data model at the
+     * same time share the render, see {@link FreemarkerEngine#renders()}.
+     */
+    private Render render(String path, String source, FreemarkerEngine engine, Duration engineInit,
+        Optional<Object> knownDataModel, Duration knownDataModelBuild) throws IOException, TemplateException {
+        Optional<Duration> includePrefetch = Optional.empty();
+        Optional<PrefetchingTemplateLoader.Prefetch> prefetch = Optional.empty();
+        long start;
+        if (configuration.prefetchIncludes()) {
+            start = System.nanoTime();
+            prefetch = engine.prefetchIncludes(source,
+                configuration.providerExecutor().orElseGet(ProviderResolver::defaultExecutor));
+            includePrefetch = Optional.of(since(start));
+        }
+        start = System.nanoTime();
+        Object dataModel = knownDataModel.isPresent() ? knownDataModel.get() : createDataModel(source, engine);
+        Duration dataModelBuild = knownDataModelBuild.plus(since(start));
+        RenderStatsBuilder stats = new RenderStatsBuilder(engineInit, includePrefetch, dataModelBuild,
+            providerResolutions(), countVariables(dataModel));
+        Optional<RenderCache> cache = renderCache();
+        RenderCache.Fingerprint fingerprint = null;
+        if (cache.isPresent()) {
+            fingerprint = cache.get().fingerprint(path, source, configuration.charset(), dataModel, engine);
+            RenderCache.Lookup lookup = cache.get().get(path, fingerprint);
+            if (lookup.output().isPresent()) {
+                stats.outputWrite = timeConfigFileWrite(lookup.output().get());
+                return Render.ofBytes(lookup.output().get(), stats.build(lookup.output().get().length));
+            }
+            if (lookup.missReason().filter(RenderCacheMissReason.INCLUDES_CHANGED::equals).isPresent()) {
+                // don't rely on modification times to pick up snippets known to have changed
+                engine.clearIncludeCache();
+            }
+        }
+        start = System.nanoTime();
+        CompiledTemplate configTemplate = engine.getTemplate(path, source);
+        stats.templateParse = Optional.of(since(start));
+        if (configuration.profiling()) {
+            configTemplate = profiled(path, configTemplate);
+        }
+        if (prefetch.isPresent()) {
+            configTemplate = prefetch.get().serving(configTemplate);
+        }
+        if (configuration.streaming()) {
+            Optional<RenderCache.EntryWriter> cacheEntry = cache.isPresent()
+                ? cache.get().openEntry(path, fingerprint) : Optional.empty();
+            return Render.ofStream(streamTemplate(dataModel, configTemplate, cacheEntry, stats));
+        }
+        if (configuration.directParsing()) {
+            return renderCharacters(path, dataModel, configTemplate, cache, fingerprint, stats);
+        }
+        start = System.nanoTime();
+        byte[] processedConfigTemplate = processTemplate(dataModel, configTemplate);
+        stats.render = Optional.of(since(start));
+        if (cache.isPresent()) {
+            cache.get().put(path, fingerprint, processedConfigTemplate);
+        }
+        stats.outputWrite = timeConfigFileWrite(processedConfigTemplate);
+        return Render.ofBytes(processedConfigTemplate, stats.build(processedConfigTemplate.length));
     }
 
-    private Configuration createFreemarkerConfiguration() {
-        Configuration freemarkerConfiguration = new Configuration(Configuration.VERSION_2_3_22);
-        freemarkerConfiguration.setTemplateExceptionHandler(TemplateExceptionHandler.RETHROW_HANDLER);
-        freemarkerConfiguration.setNumberFormat("computer");
-        freemarkerConfiguration.setDefaultEncoding(configuration.charset().name());
-        configuration.resourceIncludePath().ifPresent(p -> freemarkerConfiguration.setClassForTemplateLoading(
-            TemplateConfigurationSourceProvider.class, !p.startsWith("/") ? ("/" + p) : p));
+    private Render renderCharacters(String path, Object dataModel, CompiledTemplate template,
+        Optional<RenderCache> cache, RenderCache.Fingerprint fingerprint, RenderStatsBuilder stats)
+        throws TemplateException, IOException {
+        long start = System.nanoTime();
+        RenderBuffer buffer = new RenderBuffer();
+        template.render(dataModel, buffer);
+        stats.render = Optional.of(since(start));
+        RenderedConfigStream rendered = new RenderedConfigStream(buffer.chars(), buffer.size(), configuration.charset());
+        // only encode if something needs the bytes
+        if (cache.isPresent()) {
+            cache.get().put(path, fingerprint, rendered.bytes());
+        }
+        if (configuration.outputPath().isPresent()) {
+            stats.outputWrite = timeConfigFileWrite(rendered.bytes());
+        }
+        return Render.ofCharacters(buffer.chars(), buffer.size(), stats.build(rendered.byteLength()));
+    }
 
-        if (!configuration.resourceIncludePath().isPresent()) {
-            configuration.fileIncludePath().map(File::new).ifPresent(f -> {
-                try {
-                    freemarkerConfiguration.setDirectoryForTemplateLoading(f);
-                } catch (IOException e) {
-                    throw new IllegalStateException("Could not set directory for template loading.", e);
+    private InputStream streamTemplate(Object dataModel, CompiledTemplate template,
+        Optional<RenderCache.EntryWriter> cacheEntry, RenderStatsBuilder stats) throws IOException {
+        RenderPipe pipe = new RenderPipe(configuration.streamingBufferSize());
+        Optional<ConfigFileWriter> configFile = openConfigFile();
+        ByteCountingOutputStream byteCount = new ByteCountingOutputStream();
+        List<OutputStream> targets = new ArrayList<>();
+        targets.add(pipe.sink());
+        targets.add(byteCount);
+        configFile.ifPresent(targets::add);
+        cacheEntry.ifPresent(targets::add);
+        Thread renderThread = new Thread(() -> {
+            try {
+                long start = System.nanoTime();
+                Writer writer = new OutputStreamWriter(new TeeOutputStream(targets), configuration.charset());
+                template.render(dataModel, writer);
+                writer.flush();
+                if (configFile.isPresent()) {
+                    configFile.get().commit();
+                }
+                stats.render = Optional.of(since(start));
+                cacheEntry.ifPresent(RenderCache.EntryWriter::commit);
+                // publish before the reader sees the end of the stream, so the stats are there once it's read
+                publish(stats.build(byteCount.count));
+                pipe.sink().close();
+            } catch (Throwable e) {
+                pipe.fail(e);
+                configFile.ifPresent(ConfigFileWriter::abort);
+                cacheEntry.ifPresent(RenderCache.EntryWriter::abort);
+                if (e instanceof Error) {
+                    throw (Error) e;
                 }
-            });
+            }
+        }, "template-config-render");
+        renderThread.setDaemon(true);
+        renderThread.start();
+        return pipe.source();
+    }
+
+    /**
+     * Wraps a template to profile its renders and report each profile once the render finished.
+     */
+    private CompiledTemplate profiled(String path, CompiledTemplate template) {
+        return (dataModel, out) -> {
+            RenderProfile profile = new RenderProfile(path, configuration.charset());
+            profile.render(template, dataModel, out);
+            reportProfile(profile);
+        };
+    }
+
+    private void reportProfile(RenderProfile profile) {
+        LOGGER.info("Render profile of {}: {}", profile.path(), profile.summary(PROFILE_SUMMARY_ENTRIES));
+        Optional<Path> reportPath = configuration.outputPath()
+            .map(outputPath -> Paths.get(outputPath + PROFILE_REPORT_SUFFIX));
+        if (!reportPath.isPresent()) {
+            return;
+        }
+        try {
+            byte[] report = new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsBytes(profile.toJson());
+            ConfigFileWriter.write(reportPath.get(), report, false);
+        } catch (IOException e) {
+            // the profile is only a diagnostic, so it doesn't fail the render
+            LOGGER.warn("Could not write render profile to {}", reportPath.get(), e);
+        }
+    }
+
+    private Object createDataModel(String source, FreemarkerEngine engine) throws IOException {
+        Supplier<Object> factory = configuration.dataModelFactory();
+        if (factory instanceof DefaultDataModelFactory) {
+            // only ask providers for what the template may reference
+            return ((DefaultDataModelFactory) factory).create(ReferencedVariables.analyze(source, engine));
+        }
+        return Objects.requireNonNull(factory.get());
+    }
+
+    private void publish(RenderStats stats) {
+        lastRenderStats = stats;
+        for (Consumer<RenderStats> listener : renderListeners) {
+            listener.accept(stats);
         }
-        return freemarkerConfiguration;
     }
 
-    private Template createFreemarkerTemplate(String path, Configuration freemarkerConfiguration) throws IOException {
-        InputStream configurationSource = parentProvider.open(path);
-        InputStreamReader configurationSourceReader = new InputStreamReader(configurationSource, configuration.charset());
-        return new Template("config", configurationSourceReader, freemarkerConfiguration);
+    private static Duration since(long startNanos) {
+        return Duration.ofNanos(System.nanoTime() - startNanos);
     }
 
-    private byte[] processTemplate(Object dataModel, Template template) throws TemplateException, IOException {
+    private static long countVariables(Object dataModel) {
+        if (!(dataModel instanceof Map)) {
+            return 0;
+        }
+        long count = 0;
+        for (Object namespace : ((Map<?, ?>) dataModel).values()) {
+            if (namespace instanceof Map) {
+                // lazy namespaces count the names of their variables, without resolving them
+                count += ((Map<?, ?>) namespace).size();
+            }
+        }
+        return count;
+    }
+
+    private synchronized Optional<RenderCache> renderCache() {
+        if (renderCache == null && configuration.renderCacheDirectory().isPresent()) {
+            renderCache = new RenderCache(Paths.get(configuration.renderCacheDirectory().get()).toAbsolutePath());
+        }
+        return Optional.ofNullable(renderCache);
+    }
+
+    private String readTemplateSource(String path) throws IOException {
+        try (InputStream configurationSource = parentProvider.open(path)) {
+            ByteArrayOutputStream sourceBytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = configurationSource.read(buffer)) != -1) {
+                sourceBytes.write(buffer, 0, read);
+            }
+            return new String(sourceBytes.toByteArray(), configuration.charset());
+        }
+    }
+
+    private byte[] processTemplate(Object dataModel, CompiledTemplate template) throws TemplateException, IOException {
         ByteArrayOutputStream processedTemplateStream = new ByteArrayOutputStream();
-        template.process(dataModel, new OutputStreamWriter(processedTemplateStream, configuration.charset()));
+        Writer writer = new OutputStreamWriter(processedTemplateStream, configuration.charset());
+        template.render(dataModel, writer);
+        writer.flush();
         return processedTemplateStream.toByteArray();
     }
 
-    private void writeConfigFile(byte[] processedTemplateBytes) {
+    /**
+     * Writes the rendered config to the configured output path, if there is one, possibly in the background. Visible
+     * for the benchmarks.
+     *
+     * @param processedTemplateBytes the rendered config
+     */
+    void writeConfigFile(byte[] processedTemplateBytes) {
         configuration.outputPath().ifPresent(pathString -> {
+            Path path = Paths.get(pathString);
+            if (!configuration.asyncOutputWrite()) {
+                writeConfigFile(path, processedTemplateBytes);
+                return;
+            }
+            Executor executor = configuration.providerExecutor().orElseGet(ProviderResolver::defaultExecutor);
+            synchronized (this) {
+                // chained, so the last rendered config is written last
+                pendingOutputWrite = pendingOutputWrite.exceptionally(e -> null)
+                    .thenRunAsync(() -> writeConfigFile(path, processedTemplateBytes), executor);
+            }
+        });
+    }
+
+    /**
+     * Waits for the config file writes started in the background by {@code asyncOutputWrite}.
+     *
+     * @throws IllegalStateException if the last write failed
+     */
+    void awaitOutputWrites() {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            pending = pendingOutputWrite;
+        }
+        try {
+            pending.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof IllegalStateException
+                ? (IllegalStateException) e.getCause()
+                : new IllegalStateException("Could not write configuration file.", e.getCause());
+        }
+    }
+
+    private void writeConfigFile(Path path, byte[] processedTemplateBytes) {
+        try {
+            ConfigFileWriter.write(path, processedTemplateBytes, configuration.fsyncOutput());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write configuration file.", e);
+        }
+    }
+
+    private Optional<Duration> timeConfigFileWrite(byte[] processedTemplateBytes) {
+        if (!configuration.outputPath().isPresent() || configuration.asyncOutputWrite()) {
+            writeConfigFile(processedTemplateBytes);
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        writeConfigFile(processedTemplateBytes);
+        return Optional.of(since(start));
+    }
+
+    private Optional<ConfigFileWriter> openConfigFile() {
+        return configuration.outputPath().map(pathString -> {
             try {
-                Path path = Paths.get(pathString).toAbsolutePath();
-                Files.createDirectories(path.getParent());
-                Files.write(path,
-                            processedTemplateBytes,
-                            StandardOpenOption.WRITE,
-                            StandardOpenOption.CREATE,
-                            StandardOpenOption.TRUNCATE_EXISTING);
+                return ConfigFileWriter.open(Paths.get(pathString), configuration.fsyncOutput());
             } catch (IOException e) {
                 throw new IllegalStateException("Could not write configuration file.", e);
             }
         });
     }
+
+
+    /**
+     * Collects the stats of a render while it progresses, possibly across threads when streaming.
+     */
+    private static final class RenderStatsBuilder {
+
+        private final Duration engineInit;
+        private final Optional<Duration> includePrefetch;
+        private final Duration dataModelBuild;
+        private final List<ProviderResolution> providerResolutions;
+        private final long variableCount;
+        private volatile Optional<Duration> templateParse = Optional.empty();
+        private volatile Optional<Duration> render = Optional.empty();
+        private volatile Optional<Duration> outputWrite = Optional.empty();
+
+        RenderStatsBuilder(Duration engineInit, Optional<Duration> includePrefetch, Duration dataModelBuild,
+            List<ProviderResolution> providerResolutions, long variableCount) {
+            this.engineInit = engineInit;
+            this.includePrefetch = includePrefetch;
+            this.dataModelBuild = dataModelBuild;
+            this.providerResolutions = providerResolutions;
+            this.variableCount = variableCount;
+        }
+
+        RenderStats build(long outputBytes) {
+            return new RenderStats(engineInit, includePrefetch, templateParse, dataModelBuild, providerResolutions,
+                render, outputWrite, outputBytes, variableCount);
+        }
+    }
+
+    /**
+     * Outcome of eager rendering: either the rendered config of a known path, or a data model resolved ahead of
+     * opening the config.
+     */
+    private static final class EagerRender {
+
+        private final String path;
+        private final InputStream config;
+        private final Object dataModel;
+
+        private EagerRender(String path, InputStream config, Object dataModel) {
+            this.path = path;
+            this.config = config;
+            this.dataModel = dataModel;
+        }
+    }
+
+    /**
+     * Identifies renders that produce the same config: the same template source opened from the same path, with the
+     * data model of a custom data model factory. Data models of the default factory aren't part of it, as they only
+     * depend on the configuration's providers, which renders sharing the engine share as well. Providers whose values
+     * change over time, e.g. {@link Providers#cached} or {@link Providers#fromDirectory} ones, aren't versioned
+     * either: a caller joining a render in flight gets the values read when that render started, not when it joined.
+     */
+    static final class RenderKey {
+
+        private final String path;
+        private final String source;
+        private final Object customDataModel;
+        private final int hashCode;
+
+        RenderKey(String path, String source, Object customDataModel) {
+            this.path = path;
+            this.source = source;
+            this.customDataModel = customDataModel;
+            this.hashCode = Objects.hash(path, source, customDataModel);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof RenderKey)) {
+                return false;
+            }
+            RenderKey that = (RenderKey) o;
+            return hashCode == that.hashCode && path.equals(that.path) && source.equals(that.source)
+                && Objects.equals(customDataModel, that.customDataModel);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Outcome of a render, which every caller sharing it opens as its own stream.
+     */
+    static final class Render {
+
+        private final byte[] bytes;
+        private final char[] chars;
+        private final int length;
+        private final InputStream stream;
+        private final RenderStats stats;
+
+        private Render(byte[] bytes, char[] chars, int length, InputStream stream, RenderStats stats) {
+            this.bytes = bytes;
+            this.chars = chars;
+            this.length = length;
+            this.stream = stream;
+            this.stats = stats;
+        }
+
+        private static Render ofBytes(byte[] bytes, RenderStats stats) {
+            return new Render(bytes, null, bytes.length, null, stats);
+        }
+
+        private static Render ofCharacters(char[] chars, int length, RenderStats stats) {
+            return new Render(null, chars, length, null, stats);
+        }
+
+        private static Render ofStream(InputStream stream) {
+            return new Render(null, null, 0, stream, null);
+        }
+
+        /**
+         * Opens the rendered config. A streamed render can only be opened once, by the caller that started it.
+         */
+        private InputStream open(Charset charset) {
+            if (stream != null) {
+                return stream;
+            }
+            return chars != null ? new RenderedConfigStream(chars, length, charset) : new ByteArrayInputStream(bytes);
+        }
+    }
+
+    /**
+     * {@link CharArrayWriter} handing out its buffer without copying it.
+     */
+    private static final class RenderBuffer extends CharArrayWriter {
+
+        private RenderBuffer() {
+            super(8192);
+        }
+
+        private char[] chars() {
+            return buf;
+        }
+    }
+
+    /**
+     * Discards everything written to it, only counting the bytes.
+     */
+    private static final class ByteCountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
 }
@@ -0,0 +1,79 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The statically known, transitive includes and imports of a config template.
+ */
+final class TemplateIncludes {
+
+    private final Map<String, String> sources;
+    private final boolean complete;
+
+    private TemplateIncludes(Map<String, String> sources, boolean complete) {
+        this.sources = Collections.unmodifiableMap(sources);
+        this.complete = complete;
+    }
+
+    /**
+     * Walks the include and import directives of the given template and of everything it includes.
+     *
+     * @param templateName name of the template, used to resolve relative include names
+     * @param source the template source
+     * @param engine engine to load included templates with
+     * @return the resolved includes
+     * @throws IOException if an included template cannot be read
+     */
+    static TemplateIncludes resolve(String templateName, String source, FreemarkerEngine engine) throws IOException {
+        Map<String, String> sources = new LinkedHashMap<>();
+        Deque<String[]> pending = new ArrayDeque<>();
+        pending.add(new String[] {templateName, source});
+        boolean complete = true;
+        while (!pending.isEmpty()) {
+            String[] current = pending.poll();
+            Optional<List<String>> includedNames = TemplateSourceScanner.scan(current[1]).includedTemplateNames();
+            if (!includedNames.isPresent()) {
+                complete = false;
+                continue;
+            }
+            for (String includedName : includedNames.get()) {
+                Optional<String> resolvedName = TemplateSourceScanner.resolveTemplateName(current[0], includedName);
+                if (!resolvedName.isPresent()) {
+                    complete = false;
+                    continue;
+                }
+                if (sources.containsKey(resolvedName.get())) {
+                    continue;
+                }
+                String includedSource = engine.loadIncludeSource(resolvedName.get());
+                sources.put(resolvedName.get(), includedSource);
+                if (includedSource != null) {
+                    pending.add(new String[] {resolvedName.get(), includedSource});
+                }
+            }
+        }
+        return new TemplateIncludes(sources, complete);
+    }
+
+    /**
+     * @return sources of all resolved includes by template name, in discovery order. Missing templates map to
+     *     {@code null}.
+     */
+    Map<String, String> sources() {
+        return sources;
+    }
+
+    /**
+     * @return {@code false} if any include couldn't be resolved statically, e.g. because its name is computed
+     */
+    boolean isComplete() {
+        return complete;
+    }
+}
@@ -0,0 +1,187 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import freemarker.template.Template;
+
+/**
+ * Validates config templates at build time and writes the artifact {@link TemplateConfigurationSourceProvider} uses
+ * instead of parsing them at runtime, e.g. from the {@code dropwizard-template-config-maven-plugin}.
+ *
+ * <p>Every template is parsed by freemarker, along with the includes it names with string literals. Templates that
+ * only use plain interpolations are compiled into the same substitution plan {@link RenderingEngines#substitution()}
+ * uses, and are rendered from the plan at runtime without being parsed. Other templates are only marked as valid,
+ * so they're parsed on their first render instead of when they're opened. Includes are resolved like they are at
+ * runtime, so the configuration should point its {@code fileIncludePath} at the directory the
+ * {@code resourceIncludePath} of the application is packaged from.
+ *
+ * <p>Templates are identified by the digest of their source, so a template changed after the build is parsed at
+ * runtime as usual. Instances are not thread-safe.
+ */
+public final class TemplatePrecompiler {
+
+    /**
+     * Class path resource the artifact has to be packaged as
+     */
+    public static final String RESOURCE = PrecompiledTemplates.RESOURCE;
+
+    private static final String TEMPLATE_NAME = "config";
+
+    private final FreemarkerEngine engine;
+    private final Map<String, byte[]> plans = new LinkedHashMap<>();
+    private final Set<String> validatedIncludes = new HashSet<>();
+    private final List<String> errors = new ArrayList<>();
+
+    /**
+     * Creates a precompiler parsing templates like renders with the given configuration would.
+     *
+     * @param configuration configuration providing charset and include path
+     */
+    public TemplatePrecompiler(TemplateConfigBundleConfiguration configuration) {
+        if (configuration == null) {
+            throw new NullPointerException("Provided configuration must not be null.");
+        }
+        this.engine = new FreemarkerEngine(configuration);
+    }
+
+    /**
+     * Validates a main config template and the templates it includes, and precompiles it.
+     *
+     * @param name name of the template used in error messages, e.g. its path
+     * @param source the template source
+     * @return true if the template and its includes are valid
+     */
+    public boolean addTemplate(String name, String source) {
+        int errorCount = errors.size();
+        // includes of the main template are resolved relative to the name it's rendered as
+        parse(name, TEMPLATE_NAME, source);
+        if (errors.size() > errorCount) {
+            return false;
+        }
+        byte[] plan = new byte[0];
+        Optional<CompiledTemplate> compiled = SubstitutionPlan.compile(source, null);
+        if (compiled.isPresent()) {
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(serialized)) {
+                ((SubstitutionPlan) compiled.get()).write(out);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not serialize the substitution plan of " + name, e);
+            }
+            plan = serialized.toByteArray();
+        }
+        plans.put(Digests.sha256Hex(source), plan);
+        return true;
+    }
+
+    /**
+     * Validates an included template and the templates it includes in turn.
+     *
+     * @param name the name the template is included with, relative to the include path
+     * @return true if the template exists and it and its includes are valid
+     */
+    public boolean addInclude(String name) {
+        int errorCount = errors.size();
+        validateInclude(name, name);
+        return errors.size() == errorCount;
+    }
+
+    private void parse(String displayName, String templateName, String source) {
+        try {
+            new Template(templateName, source, engine.freemarkerConfiguration());
+        } catch (IOException e) {
+            errors.add(displayName + ": " + e.getMessage());
+            return;
+        }
+        for (String included : TemplateSourceScanner.scan(source).staticIncludedTemplateNames()) {
+            Optional<String> resolved = TemplateSourceScanner.resolveTemplateName(templateName, included);
+            if (resolved.isPresent()) {
+                validateInclude(displayName, resolved.get());
+            } else {
+                errors.add(displayName + ": include " + included + " is outside of the include path");
+            }
+        }
+    }
+
+    private void validateInclude(String includedBy, String name) {
+        if (!validatedIncludes.add(name)) {
+            return;
+        }
+        String source;
+        try {
+            source = engine.loadIncludeSource(name);
+        } catch (IOException e) {
+            errors.add(includedBy + ": could not read include " + name + ": " + e.getMessage());
+            return;
+        }
+        if (source == null) {
+            errors.add(includedBy + ": include " + name + " not found");
+            return;
+        }
+        parse(name, name, source);
+    }
+
+    /**
+     * @return the errors of all templates added so far, empty if they are all valid
+     */
+    public List<String> errors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * @return number of main config templates precompiled so far
+     */
+    public int templateCount() {
+        return plans.size();
+    }
+
+    /**
+     * @return number of main config templates precompiled into substitution plans so far
+     */
+    public int substitutionPlanCount() {
+        return (int) plans.values().stream().filter(plan -> plan.length > 0).count();
+    }
+
+    /**
+     * Writes the artifact with the templates added so far.
+     *
+     * @param out output to write to
+     * @throws IOException if writing fails
+     * @throws IllegalStateException if any of the templates isn't valid
+     */
+    public void write(OutputStream out) throws IOException {
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException(errors.size() + " config templates are invalid.");
+        }
+        PrecompiledTemplates.write(plans, out);
+    }
+
+    /**
+     * Writes the artifact with the templates added so far to {@link #RESOURCE} in the given class output directory.
+     *
+     * @param classesDirectory directory packaged into the jar
+     * @return the written artifact
+     * @throws IOException if writing fails
+     * @throws IllegalStateException if any of the templates isn't valid
+     */
+    public Path writeTo(Path classesDirectory) throws IOException {
+        Path artifact = classesDirectory.resolve(RESOURCE);
+        Files.createDirectories(artifact.getParent());
+        try (OutputStream out = Files.newOutputStream(artifact)) {
+            write(out);
+        }
+        return artifact;
+    }
+}
@@ -0,0 +1,432 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Lightweight lexer for freemarker templates using the default angle bracket tag syntax.
+ *
+ * <p>It splits a template source into text, comments, interpolations and tags without building a freemarker AST, which
+ * is enough to find statically known includes and the variables a template may reference. Whenever the scanner is
+ * unsure about the structure of a template it marks the result as not {@link ScannedTemplate#isComplete() complete},
+ * so callers can fall back to a conservative behavior.
+ */
+final class TemplateSourceScanner {
+
+    private TemplateSourceScanner() {
+    }
+
+    /**
+     * Splits the given template source into tokens.
+     *
+     * @param source template source
+     * @return scanned template
+     */
+    static ScannedTemplate scan(String source) {
+        if (usesSquareBracketSyntax(source)) {
+            return new ScannedTemplate(Collections.singletonList(
+                new Token(Kind.TEXT, 0, source.length(), null, source)), false);
+        }
+        List<Token> tokens = new ArrayList<>();
+        boolean complete = true;
+        int length = source.length();
+        int textStart = 0;
+        int i = 0;
+        while (i < length) {
+            Token token = nextTag(source, i);
+            if (token == null) {
+                i++;
+                continue;
+            }
+            if (token.end < 0) {
+                complete = false;
+                break;
+            }
+            if (textStart < i) {
+                tokens.add(new Token(Kind.TEXT, textStart, i, null, source.substring(textStart, i)));
+            }
+            tokens.add(token);
+            i = token.end;
+            if (token.kind == Kind.DIRECTIVE && "noparse".equalsIgnoreCase(token.name)) {
+                int close = indexOfIgnoreCase(source, "</#noparse>", i);
+                if (close < 0) {
+                    complete = false;
+                    break;
+                }
+                tokens.add(new Token(Kind.TEXT, i, close, null, source.substring(i, close)));
+                int closeEnd = close + "</#noparse>".length();
+                tokens.add(new Token(Kind.DIRECTIVE_END, close, closeEnd, token.name, ""));
+                i = closeEnd;
+            }
+            textStart = i;
+        }
+        if (textStart < length && complete) {
+            tokens.add(new Token(Kind.TEXT, textStart, length, null, source.substring(textStart)));
+        }
+        return new ScannedTemplate(tokens, complete);
+    }
+
+    /**
+     * Extracts the value of a leading string literal of a directive parameter expression, e.g. the template name of an
+     * {@code <#include "name.yaml" parse=true>} directive. Only plain literals are accepted: string interpolation,
+     * concatenation or any other operator following the literal yield an empty result.
+     *
+     * @param expression the parameter expression of a directive
+     * @return the literal value, if the expression starts with a plain string literal
+     */
+    static Optional<String> leadingStringLiteral(String expression) {
+        int i = skipWhitespace(expression, 0);
+        boolean raw = false;
+        if (i < expression.length() && expression.charAt(i) == 'r') {
+            raw = true;
+            i++;
+        }
+        if (i >= expression.length() || (expression.charAt(i) != '"' && expression.charAt(i) != '\'')) {
+            return Optional.empty();
+        }
+        char quote = expression.charAt(i);
+        StringBuilder value = new StringBuilder();
+        i++;
+        while (i < expression.length() && expression.charAt(i) != quote) {
+            char c = expression.charAt(i);
+            if (!raw && (c == '$' || c == '#') && i + 1 < expression.length() && expression.charAt(i + 1) == '{') {
+                return Optional.empty();
+            }
+            if (!raw && c == '\\') {
+                if (i + 1 >= expression.length()) {
+                    return Optional.empty();
+                }
+                char escaped = expression.charAt(++i);
+                switch (escaped) {
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case '"':
+                    case '\'':
+                    case '\\':
+                    case '{':
+                        value.append(escaped);
+                        break;
+                    default:
+                        return Optional.empty();
+                }
+            } else {
+                value.append(c);
+            }
+            i++;
+        }
+        if (i >= expression.length()) {
+            return Optional.empty();
+        }
+        int rest = skipWhitespace(expression, i + 1);
+        if (rest < expression.length() && !isParameterAssignment(expression, rest)) {
+            return Optional.empty();
+        }
+        return Optional.of(value.toString());
+    }
+
+    /**
+     * Resolves a template name used by an include or import directive against the name of the including template,
+     * following freemarker's rules for relative and absolute names.
+     *
+     * @param currentTemplateName name of the template containing the directive
+     * @param includeName the name used in the directive
+     * @return normalized template name, or empty if the name cannot be resolved statically
+     */
+    static Optional<String> resolveTemplateName(String currentTemplateName, String includeName) {
+        if (includeName.isEmpty() || includeName.contains("*") || includeName.contains("://")) {
+            return Optional.empty();
+        }
+        String fullName;
+        if (includeName.startsWith("/")) {
+            fullName = includeName.substring(1);
+        } else {
+            int lastSlash = currentTemplateName.lastIndexOf('/');
+            fullName = (lastSlash < 0 ? "" : currentTemplateName.substring(0, lastSlash + 1)) + includeName;
+        }
+        List<String> segments = new ArrayList<>();
+        for (String segment : fullName.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                if (segments.isEmpty()) {
+                    return Optional.empty();
+                }
+                segments.remove(segments.size() - 1);
+            } else {
+                segments.add(segment);
+            }
+        }
+        return segments.isEmpty() ? Optional.empty() : Optional.of(String.join("/", segments));
+    }
+
+    private static boolean usesSquareBracketSyntax(String source) {
+        return source.startsWith("[#ftl", skipWhitespace(source, 0));
+    }
+
+    private static Token nextTag(String source, int i) {
+        char c = source.charAt(i);
+        int length = source.length();
+        if ((c == '$' || c == '#') && i + 1 < length && source.charAt(i + 1) == '{') {
+            int end = scanInterpolationEnd(source, i + 2);
+            return new Token(Kind.INTERPOLATION, i, end < 0 ? -1 : end + 1, null,
+                end < 0 ? "" : source.substring(i + 2, end));
+        }
+        if (c != '<' || i + 2 >= length) {
+            return null;
+        }
+        char marker = source.charAt(i + 1);
+        if (marker == '#' && source.startsWith("<#--", i)) {
+            int close = source.indexOf("-->", i + 4);
+            return new Token(Kind.COMMENT, i, close < 0 ? -1 : close + 3, null,
+                close < 0 ? "" : source.substring(i + 4, close));
+        }
+        if ((marker == '#' || marker == '@') && isNameStart(source.charAt(i + 2))) {
+            int nameEnd = scanName(source, i + 2);
+            int close = scanTagEnd(source, nameEnd);
+            if (close < 0) {
+                return new Token(Kind.DIRECTIVE, i, -1, null, "");
+            }
+            int expressionEnd = close > nameEnd && source.charAt(close - 1) == '/' ? close - 1 : close;
+            return new Token(marker == '#' ? Kind.DIRECTIVE : Kind.USER_DIRECTIVE, i, close + 1,
+                source.substring(i + 2, nameEnd), source.substring(nameEnd, Math.max(nameEnd, expressionEnd)));
+        }
+        if (marker == '/' && i + 3 < length && (source.charAt(i + 2) == '#' || source.charAt(i + 2) == '@')) {
+            int nameEnd = scanName(source, i + 3);
+            int close = source.indexOf('>', nameEnd);
+            return new Token(source.charAt(i + 2) == '#' ? Kind.DIRECTIVE_END : Kind.USER_DIRECTIVE_END, i,
+                close < 0 ? -1 : close + 1, source.substring(i + 3, nameEnd), "");
+        }
+        return null;
+    }
+
+    private static int scanInterpolationEnd(String source, int from) {
+        int depth = 0;
+        int i = from;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = skipString(source, i);
+                if (i < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static int scanTagEnd(String source, int from) {
+        int depth = 0;
+        int i = from;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = skipString(source, i);
+                if (i < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (c == '(' || c == '[' || c == '{') {
+                depth++;
+            } else if (c == ')' || c == ']' || c == '}') {
+                depth = Math.max(0, depth - 1);
+            } else if (c == '>' && depth == 0) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * @return index right after the closing quote of the string literal starting at {@code quoteIndex}, or -1
+     */
+    private static int skipString(String source, int quoteIndex) {
+        char quote = source.charAt(quoteIndex);
+        boolean raw = quoteIndex > 0 && source.charAt(quoteIndex - 1) == 'r'
+            && (quoteIndex < 2 || !Character.isJavaIdentifierPart(source.charAt(quoteIndex - 2)));
+        int i = quoteIndex + 1;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (c == '\\' && !raw) {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static int scanName(String source, int from) {
+        int i = from;
+        while (i < source.length() && isNamePart(source.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == '$';
+    }
+
+    private static boolean isParameterAssignment(String expression, int from) {
+        int nameEnd = from;
+        while (nameEnd < expression.length() && Character.isJavaIdentifierPart(expression.charAt(nameEnd))) {
+            nameEnd++;
+        }
+        if (nameEnd == from) {
+            return false;
+        }
+        String name = expression.substring(from, nameEnd);
+        if (name.equals("as")) {
+            return true;
+        }
+        int equals = skipWhitespace(expression, nameEnd);
+        return equals < expression.length() && expression.charAt(equals) == '='
+            && (equals + 1 >= expression.length() || expression.charAt(equals + 1) != '=');
+    }
+
+    private static int skipWhitespace(String text, int from) {
+        int i = from;
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int indexOfIgnoreCase(String source, String needle, int from) {
+        for (int i = from; i <= source.length() - needle.length(); i++) {
+            if (source.regionMatches(true, i, needle, 0, needle.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Kinds of tokens a template source is split into
+     */
+    enum Kind {
+        TEXT,
+        COMMENT,
+        INTERPOLATION,
+        DIRECTIVE,
+        DIRECTIVE_END,
+        USER_DIRECTIVE,
+        USER_DIRECTIVE_END
+    }
+
+    /**
+     * A token of a template source. {@code expression} holds the text of an interpolation, the parameters of a tag or
+     * the content of text and comment tokens.
+     */
+    static final class Token {
+
+        final Kind kind;
+        final int start;
+        final int end;
+        final String name;
+        final String expression;
+
+        Token(Kind kind, int start, int end, String name, String expression) {
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+            this.name = name;
+            this.expression = expression;
+        }
+
+        boolean isDirective(String directiveName) {
+            return kind == Kind.DIRECTIVE && directiveName.equals(name);
+        }
+    }
+
+    /**
+     * Result of scanning a template source
+     */
+    static final class ScannedTemplate {
+
+        private final List<Token> tokens;
+        private final boolean complete;
+
+        private ScannedTemplate(List<Token> tokens, boolean complete) {
+            this.tokens = Collections.unmodifiableList(tokens);
+            this.complete = complete;
+        }
+
+        List<Token> tokens() {
+            return tokens;
+        }
+
+        /**
+         * @return {@code false} if the source could not be fully understood by the scanner
+         */
+        boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * Collects the template names of the include and import directives whose name is a plain string literal.
+         *
+         * @return template names in order of appearance, skipping computed ones
+         */
+        List<String> staticIncludedTemplateNames() {
+            List<String> names = new ArrayList<>();
+            for (Token token : tokens) {
+                if (token.isDirective("include") || token.isDirective("import")) {
+                    leadingStringLiteral(token.expression).ifPresent(names::add);
+                }
+            }
+            return names;
+        }
+
+        /**
+         * Collects the template names of all include and import directives.
+         *
+         * @return template names in order of appearance, or empty if any of them isn't a plain string literal
+         */
+        Optional<List<String>> includedTemplateNames() {
+            if (!complete) {
+                return Optional.empty();
+            }
+            List<String> names = new ArrayList<>();
+            for (Token token : tokens) {
+                if (token.isDirective("include") || token.isDirective("import")) {
+                    Optional<String> name = leadingStringLiteral(token.expression);
+                    if (!name.isPresent()) {
+                        return Optional.empty();
+                    }
+                    names.add(name.get());
+                }
+            }
+            return Optional.of(names);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import io.dropwizard.lifecycle.Managed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches a config template file and an include directory, including its subdirectories, and calls back once a burst
+ * of changes is over.
+ *
+ * <p>Every change restarts the debounce time, the callback runs when no change happened for that long. Callbacks
+ * never overlap.
+ */
+final class TemplateWatcher implements Managed {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TemplateWatcher.class);
+
+    private final Optional<Path> configFile;
+    private final Optional<Path> includeDirectory;
+    private final Duration debounce;
+    private final Runnable onChange;
+    private final Map<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> pendingChange;
+
+    TemplateWatcher(Optional<Path> configFile, Optional<Path> includeDirectory, Duration debounce, Runnable onChange) {
+        this.configFile = configFile.map(Path::toAbsolutePath);
+        this.includeDirectory = includeDirectory.map(Path::toAbsolutePath);
+        this.debounce = debounce;
+        this.onChange = onChange;
+    }
+
+    @Override
+    public synchronized void start() throws IOException {
+        Path anyPath = configFile.isPresent() ? configFile.get() : includeDirectory.orElse(null);
+        if (anyPath == null) {
+            return;
+        }
+        watchService = anyPath.getFileSystem().newWatchService();
+        if (configFile.isPresent() && configFile.get().getParent() != null) {
+            register(configFile.get().getParent());
+        }
+        if (includeDirectory.isPresent() && Files.isDirectory(includeDirectory.get())) {
+            registerTree(includeDirectory.get());
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "template-config-reload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Thread watchThread = new Thread(this::watch, "template-config-watcher");
+        watchThread.setDaemon(true);
+        watchThread.start();
+    }
+
+    @Override
+    public synchronized void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = watchedDirectories.get(key);
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= directory == null || handle(directory, event);
+                }
+                if (!key.reset()) {
+                    watchedDirectories.remove(key);
+                }
+                if (changed) {
+                    scheduleChange();
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // stopped
+        }
+    }
+
+    /**
+     * @return whether the event is a change of the watched files
+     */
+    private boolean handle(Path directory, WatchEvent<?> event) {
+        if (event.kind() == OVERFLOW) {
+            return true;
+        }
+        Path changed = directory.resolve((Path) event.context());
+        if (includeDirectory.isPresent() && changed.startsWith(includeDirectory.get())) {
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(changed)) {
+                try {
+                    registerTree(changed);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not watch new include directory {}", changed, e);
+                }
+            }
+            return true;
+        }
+        return configFile.filter(changed::equals).isPresent();
+    }
+
+    private synchronized void scheduleChange() {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (pendingChange != null) {
+            pendingChange.cancel(false);
+        }
+        pendingChange = scheduler.schedule(this::changed, debounce.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void changed() {
+        try {
+            onChange.run();
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not reload the config template", e);
+        }
+    }
+
+    private void registerTree(Path root) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+                throws IOException {
+                register(directory);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void register(Path directory) throws IOException {
+        watchedDirectories.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+    }
+}
@@ -0,0 +1,152 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Data model of the default data model factory: the variables of each namespace, and the variables referenced
+ * without a namespace like {@code ${PORT}}.
+ *
+ * <p>Variables without a namespace are served from an index that maps each key to its winning value, in order of
+ * precedence: environment variables, system properties, then the other namespaces in the order their providers were
+ * added. If the keys the template references without a namespace are known, the index is built when the data model
+ * is created. Otherwise each key is resolved on its first lookup and remembered. Keys provided by several namespaces
+ * are logged as collisions. Namespaces take precedence over variables of the same name. Iterating the data model
+ * yields the namespaces and the variables indexed up front.
+ */
+final class VariablesDataModel extends AbstractMap<String, Object> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VariablesDataModel.class);
+
+    // compared by identity, so it can't be confused with a variable that is an empty string
+    private static final String MISSING = new String("");
+
+    private final Map<String, Map<String, String>> namespaces;
+    private final List<String> precedence;
+    private final Map<String, String> index;
+    private final boolean complete;
+    private final Map<String, String> resolved = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> collisions = new ConcurrentHashMap<>();
+    private volatile Set<Entry<String, Object>> entries;
+
+    private VariablesDataModel(Map<String, Map<String, String>> namespaces, Optional<Set<String>> bareKeys) {
+        this.namespaces = namespaces;
+        this.precedence = precedence(namespaces.keySet());
+        this.complete = bareKeys.isPresent();
+        Map<String, String> bareVariables = new HashMap<>();
+        for (String key : bareKeys.orElse(Collections.emptySet())) {
+            if (!namespaces.containsKey(key)) {
+                String value = resolve(key);
+                if (value != null) {
+                    bareVariables.put(key, value);
+                }
+            }
+        }
+        this.index = bareVariables;
+    }
+
+    /**
+     * Creates the data model.
+     *
+     * @param namespaces variables by namespace, in the order the providers of the namespaces were added
+     * @param bareKeys the keys the template may reference without a namespace, or empty if they're unknown
+     * @return data model
+     */
+    static VariablesDataModel create(Map<String, Map<String, String>> namespaces, Optional<Set<String>> bareKeys) {
+        return new VariablesDataModel(namespaces, bareKeys);
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        Map<String, String> namespace = namespaces.get(key);
+        if (namespace != null) {
+            return namespace;
+        }
+        String value = index.get(key);
+        if (value != null || complete) {
+            return value;
+        }
+        value = resolved.computeIfAbsent((String) key, name -> {
+            String variable = resolve(name);
+            return variable == null ? MISSING : variable;
+        });
+        return value == MISSING ? null : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Set<Entry<String, Object>> allEntries = entries;
+        if (allEntries == null) {
+            Map<String, Object> all = new LinkedHashMap<>(namespaces);
+            index.forEach(all::putIfAbsent);
+            allEntries = Collections.unmodifiableMap(all).entrySet();
+            entries = allEntries;
+        }
+        return allEntries;
+    }
+
+    /**
+     * @return the namespaces providing each key looked up without a namespace that is provided by more than one,
+     *     the winning namespace first
+     */
+    Map<String, List<String>> collisions() {
+        return Collections.unmodifiableMap(collisions);
+    }
+
+    private String resolve(String key) {
+        String value = null;
+        List<String> providing = null;
+        for (String namespace : precedence) {
+            String candidate = namespaces.get(namespace).get(key);
+            if (candidate == null) {
+                continue;
+            }
+            if (providing == null) {
+                providing = new ArrayList<>(1);
+                value = candidate;
+            }
+            providing.add(namespace);
+        }
+        if (providing != null && providing.size() > 1) {
+            collisions.put(key, providing);
+            LOGGER.warn("Variable {} referenced without a namespace is provided by namespaces {}, using {}.{}",
+                key, providing, providing.get(0), key);
+        }
+        return value;
+    }
+
+    private static List<String> precedence(Set<String> namespaces) {
+        List<String> precedence = new ArrayList<>(namespaces.size());
+        if (namespaces.contains(Providers.ENV_NAMESPACE)) {
+            precedence.add(Providers.ENV_NAMESPACE);
+        }
+        if (namespaces.contains(Providers.SYS_NAMESPACE)) {
+            precedence.add(Providers.SYS_NAMESPACE);
+        }
+        for (String namespace : namespaces) {
+            if (!Providers.ENV_NAMESPACE.equals(namespace) && !Providers.SYS_NAMESPACE.equals(namespace)) {
+                precedence.add(namespace);
+            }
+        }
+        return precedence;
+    }
+}
@@ -0,0 +1,73 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class BareKeysSpec extends Specification {
+
+    def environmentProvider = TestCustomProvider.forEnv()
+    def systemProvider = TestCustomProvider.forSys()
+    def customProvider = Providers.fromMap('app', [PORT: '7070', HOST: 'app-host', NAME: 'app'])
+    def otherProvider = Providers.fromMap('other', [NAME: 'other', REGION: 'eu'])
+    def configuration = new TemplateConfigBundleConfiguration(otherProvider, customProvider, systemProvider,
+            environmentProvider)
+
+    def render(String template) {
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), configuration)
+        IOUtils.toString(provider.open(template), StandardCharsets.UTF_8)
+    }
+
+    def 'variables can be referenced without a namespace'() {
+        expect:
+        render('host: ${HOST}, region: ${REGION}') == 'host: app-host, region: eu'
+    }
+
+    def 'environment variables win over system properties and custom providers'() {
+        given:
+        environmentProvider.putVariable('PORT', '9090')
+        systemProvider.putVariable('PORT', '8080')
+        systemProvider.putVariable('HOST', 'sys-host')
+
+        expect:
+        render('port: ${PORT}, host: ${HOST}') == 'port: 9090, host: sys-host'
+    }
+
+    def 'custom providers take precedence in the order they were added'() {
+        expect:
+        render('name: ${NAME}') == 'name: other'
+    }
+
+    def 'namespaces win over variables of the same name'() {
+        given:
+        environmentProvider.putVariable('app', 'not a namespace')
+
+        expect:
+        render('port: ${app.PORT}') == 'port: 7070'
+    }
+
+    def 'missing variables fall back to their defaults'() {
+        expect:
+        render('port: ${MISSING!8080}, known: ${(MISSING??)?c}') == 'port: 8080, known: false'
+    }
+
+    def 'variables are looked up on demand if the template cannot be analyzed'() {
+        expect:
+        render('<#assign name = "HOST">host: ${name?eval}, region: ${REGION}') == 'host: app-host, region: eu'
+    }
+
+    def 'collisions are reported when the data model is built'() {
+        given:
+        environmentProvider.putVariable('PORT', '9090')
+        def factory = (DefaultDataModelFactory) configuration.dataModelFactory()
+
+        when:
+        def dataModel = (VariablesDataModel) factory.create(ReferencedVariables.analyzeSource('${PORT} ${NAME} ${HOST}'))
+
+        then:
+        dataModel.collisions() == [PORT: ['env', 'app'], NAME: ['other', 'app']]
+        dataModel.get('PORT') == '9090'
+        dataModel.entrySet().collect { it.key } as Set == ['other', 'app', 'sys', 'env', 'PORT', 'NAME', 'HOST'] as Set
+    }
+}
@@ -3,6 +3,7 @@ package com.expediagroup.dropwizard.bundle.configuration.freemarker
 import spock.lang.Specification
 
 import java.nio.charset.StandardCharsets
+import java.time.Duration
 
 class BundleCreationSpec extends Specification {
 
@@ -164,4 +165,28 @@ class BundleCreationSpec extends Specification {
         then:
         thrown NullPointerException
     }
+
+    def 'hot reload can be enabled with a specific debounce time'() {
+        when:
+        def bundle = new TemplateConfigBundle(
+                new TemplateConfigBundleConfiguration()
+                        .hotReload(true)
+                        .hotReloadDebounce(Duration.ofSeconds(2))
+        )
+
+        then:
+        bundle.configuration.hotReload()
+        bundle.configuration.hotReloadDebounce() == Duration.ofSeconds(2)
+    }
+
+    def 'a specific configuration with a negative hot reload debounce time throws exception'() {
+        when:
+        new TemplateConfigBundle(
+                new TemplateConfigBundleConfiguration()
+                        .hotReloadDebounce(Duration.ofMillis(-1))
+        )
+
+        then:
+        thrown IllegalArgumentException
+    }
 }
@@ -0,0 +1,200 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+class CachingProviderSpec extends Specification {
+
+    AtomicLong now = new AtomicLong()
+    AtomicInteger loadCount = new AtomicInteger()
+    List<Runnable> refreshTasks = []
+
+    TemplateConfigVariablesProvider countingProvider = new TemplateConfigVariablesProvider() {
+        @Override
+        String getNamespace() {
+            'vault'
+        }
+
+        @Override
+        Map<String, String> getVariables() {
+            [LOAD: String.valueOf(loadCount.incrementAndGet())]
+        }
+    }
+
+    def cached(Duration ttl, Duration refreshAfter = null) {
+        new CachingVariablesProvider(countingProvider, ttl, refreshAfter, { refreshTasks << it }, { now.get() })
+    }
+
+    def 'variables are cached until they expire'() {
+        given:
+        def provider = cached(Duration.ofSeconds(10))
+
+        when:
+        def first = provider.getVariables()
+        now.set(Duration.ofSeconds(9).toNanos())
+        def second = provider.getVariables()
+        now.set(Duration.ofSeconds(10).toNanos())
+        def third = provider.getVariables()
+
+        then:
+        first.LOAD == '1'
+        second.LOAD == '1'
+        third.LOAD == '2'
+        provider.namespace == 'vault'
+        provider.stats().hitCount == 1
+        provider.stats().missCount == 2
+        provider.stats().loadCount == 2
+    }
+
+    def 'invalidated variables are loaded again'() {
+        given:
+        def provider = cached(Duration.ofSeconds(10))
+
+        when:
+        provider.getVariables()
+        provider.invalidate()
+
+        then:
+        provider.getVariables().LOAD == '2'
+    }
+
+    def 'variables are refreshed in the background before they expire'() {
+        given:
+        def provider = cached(Duration.ofSeconds(10), Duration.ofSeconds(8))
+
+        when:
+        provider.getVariables()
+        now.set(Duration.ofSeconds(8).toNanos())
+        def stale = provider.getVariables()
+        provider.getVariables()
+
+        then:
+        stale.LOAD == '1'
+        refreshTasks.size() == 1
+
+        when:
+        refreshTasks[0].run()
+
+        then:
+        provider.getVariables().LOAD == '2'
+        provider.stats().refreshCount == 1
+    }
+
+    def 'concurrent callers share a single load'() {
+        given:
+        def loading = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def slowProvider = new TemplateConfigVariablesProvider() {
+            @Override
+            String getNamespace() {
+                'vault'
+            }
+
+            @Override
+            Map<String, String> getVariables() {
+                loadCount.incrementAndGet()
+                loading.countDown()
+                release.await()
+                [KEY: 'value']
+            }
+        }
+        def provider = Providers.cached(slowProvider, Duration.ofMinutes(1))
+        def executor = Executors.newFixedThreadPool(4)
+
+        when:
+        def first = executor.submit({ provider.getVariables() } as java.util.concurrent.Callable)
+        loading.await(5, TimeUnit.SECONDS)
+        def others = (1..3).collect { executor.submit({ provider.getVariables() } as java.util.concurrent.Callable) }
+        Thread.sleep(100)
+        release.countDown()
+
+        then:
+        first.get(5, TimeUnit.SECONDS) == [KEY: 'value']
+        others.every { it.get(5, TimeUnit.SECONDS) == [KEY: 'value'] }
+        loadCount.get() == 1
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def 'failed loads are not cached'() {
+        given:
+        def attempts = new AtomicInteger()
+        def flakyProvider = new TemplateConfigVariablesProvider() {
+            @Override
+            String getNamespace() {
+                'vault'
+            }
+
+            @Override
+            Map<String, String> getVariables() {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IllegalStateException('vault unavailable')
+                }
+                [KEY: 'value']
+            }
+        }
+        def provider = Providers.cached(flakyProvider, Duration.ofMinutes(1))
+
+        when:
+        provider.getVariables()
+
+        then:
+        thrown IllegalStateException
+
+        when:
+        def variables = provider.getVariables()
+
+        then:
+        variables == [KEY: 'value']
+        provider.stats().loadFailureCount == 1
+    }
+
+    def 'entries of requested keys are evicted once expired or too many'() {
+        given:
+        def provider = cached(Duration.ofSeconds(10))
+
+        when:
+        (1..CachingVariablesProvider.MAX_KEY_SETS + 10).each { provider.getVariables(['KEY' + it] as Set) }
+
+        then:
+        provider.entries.size() == CachingVariablesProvider.MAX_KEY_SETS
+
+        when:
+        now.set(Duration.ofSeconds(10).toNanos())
+        provider.getVariables(['OTHER'] as Set)
+
+        then:
+        provider.entries.size() == 1
+    }
+
+    def 'merged cached providers are loaded again once they expire'() {
+        given:
+        def merged = Providers.mergeProviders(cached(Duration.ofSeconds(10)), Providers.fromMap('vault', [KEY: 'value']))
+
+        when:
+        def first = merged.getVariables()
+        now.set(Duration.ofSeconds(10).toNanos())
+        def second = merged.getVariables()
+
+        then:
+        first.LOAD == '1'
+        second.LOAD == '2'
+        second.KEY == 'value'
+        merged.getVariable('LOAD') == '2'
+    }
+
+    def 'refresh time must be less than the time to live'() {
+        when:
+        Providers.refreshingAhead(countingProvider, Duration.ofSeconds(10), Duration.ofSeconds(10))
+
+        then:
+        thrown IllegalArgumentException
+    }
+}
@@ -0,0 +1,131 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class ConcurrentOpenSpec extends Specification {
+
+    static final int APPS = 8
+
+    def resolutions = new AtomicInteger()
+    def release = new CountDownLatch(1)
+    Closure resolve = { release.await(10, TimeUnit.SECONDS) }
+
+    TemplateConfigVariablesProvider blockingProvider = new TemplateConfigVariablesProvider() {
+        @Override
+        String getNamespace() {
+            'app'
+        }
+
+        @Override
+        Map<String, String> getVariables() {
+            resolutions.incrementAndGet()
+            resolve()
+            [NAME: 'my-app']
+        }
+    }
+
+    def configuration = new TemplateConfigBundleConfiguration(blockingProvider)
+
+    def provider() {
+        new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), configuration)
+    }
+
+    def openInParallel(List<String> paths) {
+        def streams = Collections.synchronizedMap([:])
+        def threads = paths.withIndex().collect { path, i ->
+            Thread.start { streams[i] = provider().open(path) }
+        }
+        [threads, streams]
+    }
+
+    def 'concurrent opens of the same config share one render'() {
+        given:
+        def (threads, streams) = openInParallel((1..APPS).collect { 'name: ${app.NAME}' })
+
+        when: 'every app waits for the render in flight'
+        new PollingConditions(timeout: 10).eventually {
+            assert resolutions.get() == 1
+            assert threads.every { it.state == Thread.State.WAITING || it.state == Thread.State.TIMED_WAITING }
+        }
+        release.countDown()
+        threads*.join()
+
+        then:
+        resolutions.get() == 1
+        streams.size() == APPS
+        streams.values().collect { IOUtils.toString(it, StandardCharsets.UTF_8) }.every { it == 'name: my-app' }
+        streams.values().toSet().size() == APPS
+    }
+
+    def 'configs are rendered again once the shared render completed'() {
+        given:
+        release.countDown()
+
+        when:
+        provider().open('name: ${app.NAME}')
+        provider().open('name: ${app.NAME}')
+
+        then:
+        resolutions.get() == 2
+    }
+
+    def 'different configs render in parallel'() {
+        given:
+        def bothResolving = new CountDownLatch(2)
+        resolve = {
+            bothResolving.countDown()
+            // only returns in time if the other render doesn't wait for this one
+            assert bothResolving.await(10, TimeUnit.SECONDS)
+        }
+
+        when:
+        def (threads, streams) = openInParallel(['first: ${app.NAME}', 'second: ${app.NAME}'])
+        threads*.join()
+
+        then:
+        IOUtils.toString(streams[0], StandardCharsets.UTF_8) == 'first: my-app'
+        IOUtils.toString(streams[1], StandardCharsets.UTF_8) == 'second: my-app'
+    }
+
+    def 'callers waiting for a failed render get its failure'() {
+        given:
+        def flight = new SingleFlight<String, String>()
+        def started = new CountDownLatch(1)
+        def fail = new CountDownLatch(1)
+        def failures = Collections.synchronizedList([])
+        def leader = Thread.start {
+            try {
+                flight.run('key', { started.countDown(); fail.await(); throw new IOException('broken') })
+            } catch (IOException e) {
+                failures << e
+            }
+        }
+        started.await()
+        def follower = Thread.start {
+            try {
+                flight.run('key', { 'not computed' })
+            } catch (IOException e) {
+                failures << e
+            }
+        }
+
+        when:
+        new PollingConditions(timeout: 10).eventually {
+            assert follower.state == Thread.State.WAITING
+        }
+        fail.countDown()
+        [leader, follower]*.join()
+
+        then:
+        failures.size() == 2
+        failures.every { it.message == 'broken' }
+        flight.inFlightCount() == 0
+    }
+}
@@ -0,0 +1,71 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.charset.StandardCharsets
+
+class DataModelWrappingSpec extends Specification {
+
+    TestCustomProvider environmentProvider = TestCustomProvider.forEnv()
+
+    def setup() {
+        environmentProvider.putVariable('PORT', '9090')
+        environmentProvider.putVariable('ENABLE_SSL', 'true')
+        environmentProvider.putVariable('HOSTS', 'a,b')
+    }
+
+    def render(TemplateConfigBundleConfiguration configuration, String template) {
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), configuration)
+        IOUtils.toString(provider.open(template), StandardCharsets.UTF_8)
+    }
+
+    def configuration(DataModelWrapping wrapping) {
+        new TemplateConfigBundleConfiguration(environmentProvider).dataModelWrapping(wrapping)
+    }
+
+    @Unroll
+    def 'the string map wrapper renders #template like the default wrapper'() {
+        expect:
+        render(configuration(DataModelWrapping.STRING_MAP), template) ==
+                render(configuration(DataModelWrapping.DEFAULT), template)
+
+        where:
+        template << [
+                'port: ${env.PORT}',
+                'port: ${env.MISSING!8080}',
+                '<#if env.ENABLE_SSL == "true">ssl: on</#if>',
+                'known: ${(env.PORT??)?c}, empty: ${env?has_content?c}',
+                '<#list env?keys as key>${key}=${env[key]} </#list>',
+                '<#list env.HOSTS?split(",") as host>- ${host?upper_case}\n</#list>',
+                'size: ${env?size}'
+        ]
+    }
+
+    def 'objects other than maps and strings are wrapped by the default wrapper'() {
+        given:
+        def configuration = configuration(DataModelWrapping.STRING_MAP)
+                .dataModelFactory({ [app: [port: 8080, hosts: ['a', 'b'], debug: true]] })
+
+        expect:
+        render(configuration, 'port: ${app.port}, hosts: ${app.hosts?join(",")}, debug: ${app.debug?c}') ==
+                'port: 8080, hosts: a,b, debug: true'
+    }
+
+    def 'the string map wrapper is used by the engine when selected'() {
+        expect:
+        configuration(DataModelWrapping.STRING_MAP).engine().freemarkerConfiguration().objectWrapper instanceof
+                StringMapObjectWrapper
+        !(configuration(DataModelWrapping.DEFAULT).engine().freemarkerConfiguration().objectWrapper instanceof
+                StringMapObjectWrapper)
+    }
+
+    def 'a null data model wrapping throws exception'() {
+        when:
+        new TemplateConfigBundleConfiguration().dataModelWrapping(null)
+
+        then:
+        thrown NullPointerException
+    }
+}
@@ -0,0 +1,109 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import io.dropwizard.Configuration
+import io.dropwizard.configuration.ConfigurationFactoryFactory
+import io.dropwizard.configuration.ConfigurationSourceProvider
+import io.dropwizard.configuration.DefaultConfigurationFactoryFactory
+import io.dropwizard.jackson.Jackson
+import io.dropwizard.validation.BaseValidator
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+
+class DirectParsingSpec extends Specification {
+
+    TestCustomProvider environmentProvider = TestCustomProvider.forEnv()
+
+    def config = '''
+            server:
+              registerDefaultExceptionMappers: ${env.MAPPERS!'false'}
+            # café 🚀
+            '''.stripIndent()
+
+    def provider(TemplateConfigBundleConfiguration configuration) {
+        new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), configuration)
+    }
+
+    def 'the rendered config is exposed as characters and encoded when read'() {
+        given:
+        def direct = provider(new TemplateConfigBundleConfiguration(environmentProvider).directParsing(true))
+        def plain = provider(new TemplateConfigBundleConfiguration(environmentProvider))
+
+        when:
+        def rendered = direct.open(config)
+        def expected = IOUtils.toByteArray(plain.open(config))
+
+        then:
+        rendered instanceof RenderedConfigStream
+        new String(rendered.chars(), 0, rendered.length()) == new String(expected, StandardCharsets.UTF_8)
+        direct.lastRenderStats().get().outputBytes == expected.length
+        IOUtils.toByteArray(rendered) == expected
+    }
+
+    def 'the output file gets the encoded config'() {
+        given:
+        def outputPath = Files.createTempDirectory('direct-parsing').resolve('config.yaml')
+        environmentProvider.putVariable('NAME', 'café')
+        def direct = provider(new TemplateConfigBundleConfiguration(environmentProvider)
+                .charset(StandardCharsets.ISO_8859_1)
+                .outputPath(outputPath.toString())
+                .directParsing(true))
+        def expected = 'name: café'.getBytes(StandardCharsets.ISO_8859_1)
+
+        when:
+        def rendered = (RenderedConfigStream) direct.open('name: ${env.NAME}')
+
+        then:
+        Files.readAllBytes(outputPath) == expected
+        direct.lastRenderStats().get().outputBytes == expected.length
+        IOUtils.toByteArray(rendered) == expected
+    }
+
+    def 'configuration factories parse the rendered characters without encoding them'() {
+        given:
+        def direct = provider(new TemplateConfigBundleConfiguration(environmentProvider).directParsing(true))
+        RenderedConfigStream rendered = null
+        ConfigurationSourceProvider capturing = { String path -> rendered = (RenderedConfigStream) direct.open(path) }
+        def factory = new TemplateConfigurationFactoryFactory<Configuration>()
+                .create(Configuration, BaseValidator.newValidator(), Jackson.newObjectMapper(), 'dw')
+
+        when:
+        def parsed = factory.build(capturing, config)
+
+        then:
+        !parsed.serverFactory.registerDefaultExceptionMappers
+        rendered.@bytes == null
+    }
+
+    def 'configuration factories parse other configs from bytes'() {
+        given:
+        def factory = new TemplateConfigurationFactoryFactory<Configuration>()
+                .create(Configuration, BaseValidator.newValidator(), Jackson.newObjectMapper(), 'dw')
+
+        when:
+        def parsed = factory.build(new TestConfigSourceProvider(), 'server:\n  registerDefaultExceptionMappers: false\n')
+
+        then:
+        !parsed.serverFactory.registerDefaultExceptionMappers
+    }
+
+    def 'the bundle registers the configuration factory factory only in place of the default one'() {
+        given:
+        def bootstrap = TestApplication.bootstrap()
+        bootstrap.configurationFactoryFactory = factoryFactory
+
+        when:
+        new TemplateConfigBundle(new TemplateConfigBundleConfiguration().directParsing(true)).initialize(bootstrap)
+
+        then:
+        (bootstrap.configurationFactoryFactory instanceof TemplateConfigurationFactoryFactory) == registered
+        registered || bootstrap.configurationFactoryFactory.is(factoryFactory)
+
+        where:
+        factoryFactory                                          | registered
+        new DefaultConfigurationFactoryFactory()                | true
+        ({ k, v, m, p -> null } as ConfigurationFactoryFactory) | false
+    }
+}
@@ -0,0 +1,125 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+class DirectoryProviderSpec extends Specification {
+
+    Path directory = Files.createTempDirectory('secrets')
+
+    def write(String name, String content) {
+        Files.createDirectories(directory.resolve(name).parent)
+        Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8))
+    }
+
+    def render(TemplateConfigVariablesProvider provider, String template) {
+        def sourceProvider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(provider))
+        IOUtils.toString(sourceProvider.open(template), StandardCharsets.UTF_8)
+    }
+
+    def 'every file is a variable'() {
+        given:
+        write('DB_USER', 'admin')
+        write('DB_PASSWORD', 'sécret\n')
+        write('CERTIFICATE', '-----BEGIN-----\r\nabc\r\n-----END-----\r\n')
+
+        when:
+        def provider = Providers.fromDirectory('secrets', directory)
+
+        then:
+        provider.getVariableNames() == ['DB_USER', 'DB_PASSWORD', 'CERTIFICATE'] as Set
+        provider.getVariable('DB_USER') == 'admin'
+        provider.getVariable('DB_PASSWORD') == 'sécret'
+        provider.getVariable('CERTIFICATE') == '-----BEGIN-----\r\nabc\r\n-----END-----'
+        provider.getVariable('MISSING') == null
+        render(provider, 'user: ${secrets.DB_USER}') == 'user: admin'
+    }
+
+    def 'kubernetes mounts are read through their links'() {
+        given:
+        write('..2020_01_01_00_00_00.000000000/DB_USER', 'admin')
+        Files.createSymbolicLink(directory.resolve('..data'), directory.resolve('..2020_01_01_00_00_00.000000000'))
+        Files.createSymbolicLink(directory.resolve('DB_USER'), directory.resolve('..data/DB_USER'))
+
+        when:
+        def provider = Providers.fromDirectory('secrets', directory)
+
+        then:
+        provider.getVariableNames() == ['DB_USER'] as Set
+        provider.getVariable('DB_USER') == 'admin'
+    }
+
+    def 'names outside of the directory, hidden files and directories are not variables'() {
+        given:
+        write('.hidden', 'hidden')
+        write('nested/VALUE', 'nested')
+        write('../outside', 'outside')
+
+        when:
+        def provider = Providers.fromDirectory('secrets', directory)
+
+        then:
+        provider.getVariable('.hidden') == null
+        provider.getVariable('nested') == null
+        provider.getVariable('nested/VALUE') == null
+        provider.getVariable('../outside') == null
+        provider.getVariableNames().isEmpty()
+        provider.getVariables().isEmpty()
+    }
+
+    def 'files are read when their variable is dereferenced, not when the variables are listed'() {
+        given:
+        write('PORT', '8080')
+        def provider = Providers.fromDirectory('secrets', directory)
+        def names = provider.getVariableNames()
+
+        when:
+        write('PORT', '9090')
+
+        then:
+        names == ['PORT'] as Set
+        render(provider, 'port: ${secrets.PORT}') == 'port: 9090'
+    }
+
+    def 'cached values are only read again once their file changed'() {
+        given:
+        write('PASSWORD', 'first')
+        def modified = Files.getLastModifiedTime(directory.resolve('PASSWORD'))
+        def cached = Providers.fromDirectory('secrets', directory, true)
+        def uncached = Providers.fromDirectory('secrets', directory)
+        cached.getVariable('PASSWORD')
+
+        when: 'the content changes without changing the modification time or size'
+        write('PASSWORD', 'other')
+        Files.setLastModifiedTime(directory.resolve('PASSWORD'), modified)
+
+        then:
+        cached.getVariable('PASSWORD') == 'first'
+        uncached.getVariable('PASSWORD') == 'other'
+
+        when: 'the file is replaced'
+        write('PASSWORD', 'second value')
+
+        then:
+        cached.getVariable('PASSWORD') == 'second value'
+
+        when: 'the file is removed'
+        Files.delete(directory.resolve('PASSWORD'))
+
+        then:
+        cached.getVariable('PASSWORD') == null
+    }
+
+    def 'blank namespaces are rejected'() {
+        when:
+        Providers.fromDirectory(' ', directory)
+
+        then:
+        thrown IllegalArgumentException
+    }
+}
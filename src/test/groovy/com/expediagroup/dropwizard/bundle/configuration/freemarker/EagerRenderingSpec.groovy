@@ -0,0 +1,112 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import io.dropwizard.Configuration
+import io.dropwizard.configuration.ConfigurationSourceProvider
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.atomic.AtomicInteger
+
+class EagerRenderingSpec extends Specification {
+
+    def config = 'server:\n  port: ${app.PORT}\n'
+    def resolutions = new AtomicInteger()
+    def failures = 0
+    def appProvider = [
+            getNamespace: { 'app' },
+            getVariables: {
+                resolutions.incrementAndGet()
+                if (failures-- > 0) {
+                    throw new IllegalStateException('provider unavailable')
+                }
+                [PORT: '8080']
+            }
+    ] as TemplateConfigVariablesProvider
+    ConfigurationSourceProvider sourceProvider
+
+    def initialize(TemplateConfigBundleConfiguration bundleConfiguration) {
+        def bootstrap = TestApplication.bootstrap()
+        new TemplateConfigBundle<Configuration>(bundleConfiguration).initialize(bootstrap)
+        sourceProvider = bootstrap.configurationSourceProvider
+    }
+
+    def render(String path) {
+        IOUtils.toString(sourceProvider.open(path), StandardCharsets.UTF_8)
+    }
+
+    def 'providers are resolved during initialize and reused when the config is opened'() {
+        given:
+        initialize(new TemplateConfigBundleConfiguration(appProvider).eagerRendering(true))
+
+        when:
+        def rendered = render(config)
+
+        then:
+        rendered == 'server:\n  port: 8080\n'
+        resolutions.get() == 1
+
+        when: 'only the first open uses the eager data model'
+        render(config)
+
+        then:
+        resolutions.get() == 2
+    }
+
+    def 'the config with the eager rendering path is rendered during initialize'() {
+        given:
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(appProvider).eagerRenderingPath(config)
+        initialize(bundleConfiguration)
+
+        when:
+        def rendered = render(config)
+
+        then:
+        bundleConfiguration.eagerRendering()
+        rendered == 'server:\n  port: 8080\n'
+        resolutions.get() == 1
+        sourceProvider.lastRenderStats().present
+    }
+
+    def 'a different path than the eager rendering path is rendered when opened'() {
+        given:
+        initialize(new TemplateConfigBundleConfiguration(appProvider).eagerRenderingPath('port: ${app.PORT}'))
+
+        when:
+        def rendered = render(config)
+
+        then:
+        rendered == 'server:\n  port: 8080\n'
+        resolutions.get() == 2
+    }
+
+    def 'a failing eager render is retried when the config is opened'() {
+        given:
+        failures = 1
+        initialize(new TemplateConfigBundleConfiguration(appProvider).eagerRenderingPath(config))
+
+        when:
+        def rendered = render(config)
+
+        then:
+        rendered == 'server:\n  port: 8080\n'
+        resolutions.get() == 2
+    }
+
+    def 'rendering is not started during initialize by default'() {
+        given:
+        initialize(new TemplateConfigBundleConfiguration(appProvider))
+        sleep(100)
+
+        expect:
+        resolutions.get() == 0
+    }
+
+    def 'a null eager rendering path throws exception'() {
+        when:
+        new TemplateConfigBundleConfiguration().eagerRenderingPath(null)
+
+        then:
+        thrown NullPointerException
+    }
+}
@@ -0,0 +1,101 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import freemarker.cache.StringTemplateLoader
+import freemarker.cache.TemplateLoader
+import freemarker.template.Configuration
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class IncludePrefetchSpec extends Specification {
+
+    def config = '''
+            server:
+              port: ${env.PORT!8080}
+
+            <#include "database.yaml">
+            <#include "missing.yaml" ignore_missing=true>
+            '''.stripIndent()
+
+    def 'prefetched includes render the same config'() {
+        given:
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(TestCustomProvider.forEnv())
+                .resourceIncludePath('/config-snippets')
+        def prefetching = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                bundleConfiguration)
+        def plain = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(TestCustomProvider.forEnv()).resourceIncludePath('/config-snippets'))
+
+        when:
+        bundleConfiguration.prefetchIncludes(true)
+        def rendered = IOUtils.toString(prefetching.open(config), StandardCharsets.UTF_8)
+
+        then:
+        rendered == IOUtils.toString(plain.open(config), StandardCharsets.UTF_8)
+        prefetching.lastRenderStats().get().includePrefetch.present
+        !plain.lastRenderStats().get().includePrefetch.present
+    }
+
+    def 'prefetched templates are served without the underlying loader'() {
+        given:
+        def templates = new StringTemplateLoader()
+        templates.putTemplate('a.yaml', 'a: 1\n<#include "b.yaml">')
+        templates.putTemplate('b.yaml', 'b: 2')
+        def lookups = Collections.synchronizedList([])
+        TemplateLoader countingLoader = [
+                findTemplateSource : { String name -> lookups << name; templates.findTemplateSource(name) },
+                getLastModified    : { source -> templates.getLastModified(source) },
+                getReader          : { source, String encoding -> templates.getReader(source, encoding) },
+                closeTemplateSource: { source -> templates.closeTemplateSource(source) }
+        ] as TemplateLoader
+        def loader = new PrefetchingTemplateLoader(countingLoader)
+        def prefetch = loader.newPrefetch()
+        def served = [:]
+        def render = { dataModel, out ->
+            served.a = loader.findTemplateSource('a.yaml')
+            served.c = loader.findTemplateSource('c.yaml')
+        } as CompiledTemplate
+
+        when:
+        prefetch.prefetch('a.yaml', 'UTF-8')
+        prefetch.prefetch('c.yaml', 'UTF-8')
+        lookups.clear()
+        prefetch.serving(render).render(null, new StringWriter())
+
+        then:
+        IOUtils.toString(loader.getReader(served.a, 'UTF-8')) == 'a: 1\n<#include "b.yaml">'
+        served.c == null
+        lookups.empty
+
+        when:
+        loader.findTemplateSource('a.yaml')
+        loader.newPrefetch().serving(render).render(null, new StringWriter())
+
+        then:
+        lookups == ['a.yaml', 'a.yaml', 'c.yaml']
+    }
+
+    def 'includes prefetched again are not parsed again'() {
+        given:
+        def templates = new StringTemplateLoader()
+        templates.putTemplate('b.yaml', 'b: 2')
+        def loader = new PrefetchingTemplateLoader(templates)
+        def freemarkerConfiguration = new Configuration(Configuration.VERSION_2_3_22)
+        freemarkerConfiguration.setTemplateLoader(loader)
+        freemarkerConfiguration.setTemplateUpdateDelay(0)
+        def parsed = []
+        def render = { dataModel, out -> parsed << freemarkerConfiguration.getTemplate('b.yaml') } as CompiledTemplate
+
+        when:
+        2.times {
+            def prefetch = loader.newPrefetch()
+            prefetch.prefetch('b.yaml', 'UTF-8')
+            prefetch.serving(render).render(null, new StringWriter())
+        }
+
+        then:
+        parsed.size() == 2
+        parsed[0].is(parsed[1])
+    }
+}
@@ -0,0 +1,110 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+class IncrementalRenderingSpec extends Specification {
+
+    TestCustomProvider environmentProvider = TestCustomProvider.forEnv()
+    Path includeDirectory = Files.createTempDirectory('snippets')
+
+    def config = '''
+            server:
+              port: ${env.PORT!8080}
+            <#include "database.yaml">
+            <#include "logging.yaml">
+            '''.stripIndent()
+
+    def setup() {
+        write('database.yaml', '''
+                database:
+                  url: ${env.DB_URL!'jdbc:h2:mem'}
+                '''.stripIndent())
+        write('logging.yaml', '''
+                logging:
+                  level: ${env.LOG_LEVEL!'INFO'}
+                <#include "appenders/console.yaml">
+                '''.stripIndent())
+        Files.createDirectories(includeDirectory.resolve('appenders'))
+        write('appenders/console.yaml', '''
+                  appenders:
+                    - type: console
+                '''.stripIndent())
+    }
+
+    def write(String name, String content) {
+        Files.write(includeDirectory.resolve(name), content.getBytes(StandardCharsets.UTF_8))
+    }
+
+    def provider(boolean incremental) {
+        new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(environmentProvider)
+                        .fileIncludePath(includeDirectory.toString())
+                        .incrementalRendering(incremental))
+    }
+
+    def render(TemplateConfigurationSourceProvider provider) {
+        IOUtils.toString(provider.open(config), StandardCharsets.UTF_8)
+    }
+
+    def 'fragments render the same config as the whole template'() {
+        expect:
+        render(provider(true)) == render(provider(false))
+    }
+
+    def 'only fragments referencing a changed variable are rendered again'() {
+        given:
+        def incrementalProvider = provider(true)
+        render(incrementalProvider)
+
+        when:
+        environmentProvider.putVariable('DB_URL', 'jdbc:postgresql://db/app')
+        def rendered = render(incrementalProvider)
+        def stats = incrementalProvider.templateCacheStats()
+
+        then:
+        rendered.contains('url: jdbc:postgresql://db/app')
+        rendered == render(provider(false))
+        // server piece, database and logging on the first render, database on the second
+        stats.fragmentMissCount == 4
+        stats.fragmentHitCount == 2
+    }
+
+    def 'a changed nested snippet renders the fragment including it again'() {
+        given:
+        def incrementalProvider = provider(true)
+        render(incrementalProvider)
+
+        when:
+        write('appenders/console.yaml', '''
+                  appenders:
+                    - type: file
+                '''.stripIndent())
+        def rendered = render(incrementalProvider)
+
+        then:
+        rendered.contains('- type: file')
+        incrementalProvider.templateCacheStats().fragmentMissCount == 4
+    }
+
+    def 'templates defining variables are rendered as a whole'() {
+        given:
+        def incrementalProvider = provider(true)
+        write('database.yaml', '''
+                <#assign port = 5432>
+                database:
+                  port: ${port}
+                '''.stripIndent())
+
+        when:
+        def rendered = render(incrementalProvider)
+
+        then:
+        rendered.contains('port: 5432')
+        incrementalProvider.templateCacheStats().fragmentMissCount == 0
+    }
+}
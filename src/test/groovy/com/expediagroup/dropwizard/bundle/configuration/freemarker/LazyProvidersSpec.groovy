@@ -0,0 +1,104 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import org.apache.commons.io.FileUtils
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+
+class LazyProvidersSpec extends Specification {
+
+    List<String> lookups = []
+
+    LazyTemplateConfigVariablesProvider secretsProvider = new LazyTemplateConfigVariablesProvider() {
+        @Override
+        String getNamespace() {
+            'secrets'
+        }
+
+        @Override
+        String getVariable(String name) {
+            lookups << name
+            name.startsWith('DB_') ? "decrypted-${name}".toString() : null
+        }
+
+        @Override
+        Set<String> getVariableNames() {
+            (1..500).collect { "DB_SECRET_${it}".toString() } as Set
+        }
+    }
+
+    def render(TemplateConfigBundleConfiguration bundleConfiguration, String config) {
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration)
+        IOUtils.toString(provider.open(config), StandardCharsets.UTF_8)
+    }
+
+    def 'only variables dereferenced by the template are resolved'() {
+        given:
+        def config = 'password: ${secrets.DB_PASSWORD}\nuser: ${secrets.DB_USER}\nagain: ${secrets.DB_PASSWORD}'
+
+        when:
+        def rendered = render(new TemplateConfigBundleConfiguration(secretsProvider), config)
+
+        then:
+        rendered == 'password: decrypted-DB_PASSWORD\nuser: decrypted-DB_USER\nagain: decrypted-DB_PASSWORD'
+        lookups == ['DB_PASSWORD', 'DB_USER']
+    }
+
+    def 'variables are resolved again on every render'() {
+        given:
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(secretsProvider))
+
+        when:
+        provider.open('password: ${secrets.DB_PASSWORD}')
+        provider.open('password: ${secrets.DB_PASSWORD}')
+
+        then:
+        lookups == ['DB_PASSWORD', 'DB_PASSWORD']
+    }
+
+    def 'the render cache only resolves the variables the template references'() {
+        given:
+        def cacheDirectory = Files.createTempDirectory('lazy-render-cache')
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(secretsProvider).renderCacheDirectory(cacheDirectory.toString()))
+
+        when:
+        provider.open('password: ${secrets.DB_PASSWORD}')
+        provider.open('password: ${secrets.DB_PASSWORD}')
+
+        then:
+        provider.renderCacheStats().get().hitCount == 1
+        lookups == ['DB_PASSWORD', 'DB_PASSWORD']
+
+        cleanup:
+        FileUtils.deleteDirectory(cacheDirectory.toFile())
+    }
+
+    def 'the size of lazy variables is known without resolving them'() {
+        expect:
+        secretsProvider.getVariables().size() == 500
+        lookups.empty
+    }
+
+    def 'missing lazy variables fall back to defaults'() {
+        expect:
+        render(new TemplateConfigBundleConfiguration(secretsProvider), 'port: ${secrets.PORT!8080}') == 'port: 8080'
+    }
+
+    def 'lazy providers sharing a namespace with eager ones stay lazy'() {
+        given:
+        def eagerProvider = new TestCustomProvider('secrets')
+        eagerProvider.putVariable('DB_USER', 'overridden')
+
+        when:
+        def rendered = render(new TemplateConfigBundleConfiguration(secretsProvider, eagerProvider),
+                'user: ${secrets.DB_USER}\npassword: ${secrets.DB_PASSWORD}')
+
+        then:
+        rendered == 'user: overridden\npassword: decrypted-DB_PASSWORD'
+        lookups == ['DB_PASSWORD']
+    }
+}
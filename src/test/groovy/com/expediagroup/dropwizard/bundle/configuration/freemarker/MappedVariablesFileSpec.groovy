@@ -0,0 +1,182 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.StandardCopyOption
+
+import static com.expediagroup.dropwizard.bundle.configuration.freemarker.MappedVariablesFile.Format.JSON
+import static com.expediagroup.dropwizard.bundle.configuration.freemarker.MappedVariablesFile.Format.PROPERTIES
+import static com.expediagroup.dropwizard.bundle.configuration.freemarker.MappedVariablesFile.Format.YAML
+
+class MappedVariablesFileSpec extends Specification {
+
+    Path directory = Files.createTempDirectory('mapped-variables')
+
+    def file(String content, String charset = 'UTF-8') {
+        def file = Files.createTempFile(directory, 'variables', '')
+        Files.write(file, content.getBytes(charset))
+        file
+    }
+
+    def variables(MappedVariablesFile mapped) {
+        mapped.names().collectEntries { [(it): mapped.get(it)] }
+    }
+
+    @Unroll
+    def 'properties are read like Properties.load reads them: #description'() {
+        given:
+        def path = file(content, 'ISO-8859-1')
+        def expected = new Properties()
+        Files.newInputStream(path).withCloseable { expected.load(it) }
+
+        when:
+        def mapped = MappedVariablesFile.map(path, PROPERTIES)
+
+        then:
+        variables(mapped) == expected
+        mapped.size() == expected.size()
+
+        where:
+        description          | content
+        'separators'         | 'a=1\nb = 2\nc:3\nd 4\n  e\t=\t5  \n'
+        'comments'           | '#a=1\n!b=2\n\\#c=3\n'
+        'escapes'            | 'key\\ with\\ spaces=caf\\u00e9\\tx\nlast=\\'
+        'continuations'      | 'a=multi\\\n   line\\\r\n\tend\nb=2'
+        'line terminators'   | 'a=caf\u00e9\r\nb=1\rc=2'
+        'missing values'     | 'a=\nb\n'
+        'redefined keys'     | 'a=1\na=2\n'
+        'empty file'         | ''
+    }
+
+    def 'flat YAML is read like Jackson reads it'() {
+        given:
+        def content = '''\
+            # comment
+            ---
+            plain: some value  # comment
+            url: http://host:8080/path
+            'single': 'it''s'
+            "double": "tab\\tcafé \\u00e9 \\U0001F680"
+            number: 8080
+            -dash: value
+            emoji: 🚀
+            redefined: 1
+            redefined: 2
+            '''.stripIndent()
+        def expected = new ObjectMapper(new YAMLFactory()).readValue(content, Map)
+                .collectEntries { key, value -> [(key): String.valueOf(value)] }
+
+        expect:
+        variables(MappedVariablesFile.map(file(content), YAML)) == expected
+    }
+
+    def 'empty and null YAML values are missing'() {
+        when:
+        def mapped = MappedVariablesFile.map(file('a:\nb: ~\nc: null\nd: value\n'), YAML)
+
+        then:
+        mapped.get('a') == null
+        mapped.get('b') == null
+        mapped.get('c') == null
+        mapped.names() == ['d'] as Set
+    }
+
+    def 'flat JSON is read like Jackson reads it'() {
+        given:
+        def content = '{ "string": "quote \\" caf\\u00e9", "number": -1.5, "bool": true, "émoji": "🚀", "a": 1, "a": 2 }'
+        def expected = new ObjectMapper().readValue(content, Map)
+                .collectEntries { key, value -> [(key): value.toString()] }
+
+        expect:
+        variables(MappedVariablesFile.map(file(content), JSON)) == expected
+    }
+
+    def 'null JSON values are missing'() {
+        when:
+        def mapped = MappedVariablesFile.map(file('{"a": null, "b": "value"}'), JSON)
+
+        then:
+        mapped.get('a') == null
+        mapped.names() == ['b'] as Set
+    }
+
+    @Unroll
+    def 'structured #format files are rejected'() {
+        when:
+        MappedVariablesFile.map(file(content), format)
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message.contains('line ' + line)
+
+        where:
+        format | content                        | line
+        YAML   | 'a: 1\nb:\n  c: 2\n'           | 3
+        YAML   | '- a\n'                        | 1
+        YAML   | 'a: [1, 2]\n'                  | 1
+        YAML   | 'a: "multi\n  line"\n'         | 1
+        JSON   | '{"a": 1,\n "b": {"c": 2}}'    | 2
+        JSON   | '[1]'                          | 1
+        JSON   | '{"a": 1} trailing'            | 1
+    }
+
+    def 'large files are indexed without decoding the values'() {
+        given:
+        def content = new StringBuilder()
+        100_000.times { content.append("key.${it}=value.${it}\n") }
+
+        when:
+        def mapped = MappedVariablesFile.map(file(content.toString()), PROPERTIES)
+
+        then:
+        mapped.size() == 100_000
+        mapped.get('key.0') == 'value.0'
+        mapped.get('key.99999') == 'value.99999'
+        mapped.get('key.100000') == null
+    }
+
+    def 'file providers are lazy and usable in templates'() {
+        given:
+        def provider = Providers.lazyFromYamlFile('app', file('PORT: 8080\nHOST: localhost\n'))
+        def sourceProvider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(provider))
+
+        expect:
+        sourceProvider.open('port: ${app.PORT}').getText(StandardCharsets.UTF_8.name()) == 'port: 8080'
+    }
+
+    def 'file providers map the file again once it was replaced'() {
+        given:
+        def path = file('PORT: 8080\n')
+        def provider = Providers.lazyFromYamlFile('app', path)
+        def before = provider.getVariables()
+
+        when:
+        def replacement = file('PORT: 9090\nHOST: localhost\n')
+        Files.move(replacement, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE)
+
+        then:
+        before.PORT == '8080'
+        provider.getVariable('PORT') == '9090'
+        provider.getVariables() == [PORT: '9090', HOST: 'localhost']
+    }
+
+    def 'file providers keep the mapped file while it is unchanged'() {
+        given:
+        def provider = Providers.lazyFromPropertiesFile('app', file('PORT=8080\n'))
+
+        when:
+        provider.getVariable('PORT')
+        def snapshot = provider.snapshot
+
+        then:
+        provider.getVariable('PORT') == '8080'
+        provider.snapshot.is(snapshot)
+    }
+}
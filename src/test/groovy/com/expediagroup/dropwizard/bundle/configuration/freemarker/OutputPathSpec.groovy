@@ -41,4 +41,50 @@ class OutputPathSpec extends Specification {
         cleanup:
         new File(outputPath).delete()
     }
+
+    def 'an unchanged config is not written again'() {
+        given:
+        def outputFile = new File(outputPath)
+        provider.open('port: 8080').close()
+        outputFile.setLastModified(0)
+
+        when:
+        provider.open('port: 8080').close()
+
+        then:
+        outputFile.lastModified() == 0
+
+        when:
+        provider.open('port: 9090').close()
+
+        then:
+        outputFile.text == 'port: 9090'
+        outputFile.lastModified() > 0
+        !outputFile.parentFile.listFiles().any { it.name.startsWith('.outputPathSpec.yml.') }
+
+        cleanup:
+        outputFile.delete()
+    }
+
+    def 'the config is written in the background if configured'() {
+        given:
+        def outputFile = new File(outputPath)
+        def asyncProvider = new TemplateConfigurationSourceProvider(
+                new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(environmentProvider)
+                        .outputPath(outputPath)
+                        .asyncOutputWrite(true)
+                        .fsyncOutput(true))
+
+        when:
+        asyncProvider.open('port: 7070').close()
+        asyncProvider.awaitOutputWrites()
+
+        then:
+        outputFile.text == 'port: 7070'
+        !asyncProvider.lastRenderStats().get().outputWrite.present
+
+        cleanup:
+        outputFile.delete()
+    }
 }
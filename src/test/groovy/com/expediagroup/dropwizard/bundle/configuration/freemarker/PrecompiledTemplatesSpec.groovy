@@ -0,0 +1,128 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+class PrecompiledTemplatesSpec extends Specification {
+
+    static final String PLAIN_TEMPLATE = 'name: ${app.NAME}\nport: ${app.PORT!8080}\n'
+    static final String DIRECTIVE_TEMPLATE = 'server: {<#include "server.yaml">}\nname: ${app.NAME?upper_case}\n'
+
+    Path snippets = Files.createTempDirectory('snippets')
+    Path classes = Files.createTempDirectory('classes')
+    ClassLoader originalClassLoader = Thread.currentThread().contextClassLoader
+
+    def app = Providers.fromMap('app', [NAME: 'my-app'])
+
+    def setup() {
+        write('server.yaml', 'type: <#include "connector.yaml">')
+        write('connector.yaml', 'http')
+        Thread.currentThread().contextClassLoader = new URLClassLoader([classes.toUri().toURL()] as URL[],
+                originalClassLoader)
+    }
+
+    def cleanup() {
+        Thread.currentThread().contextClassLoader = originalClassLoader
+    }
+
+    def write(String name, String content) {
+        Files.write(snippets.resolve(name), content.getBytes(StandardCharsets.UTF_8))
+    }
+
+    def precompiler() {
+        new TemplatePrecompiler(new TemplateConfigBundleConfiguration().fileIncludePath(snippets.toString()))
+    }
+
+    def configuration() {
+        new TemplateConfigBundleConfiguration(app).fileIncludePath(snippets.toString())
+    }
+
+    def render(TemplateConfigBundleConfiguration configuration, String template) {
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), configuration)
+        IOUtils.toString(provider.open(template), StandardCharsets.UTF_8)
+    }
+
+    def 'templates with plain interpolations are rendered from their precompiled plan'() {
+        given:
+        def precompiler = precompiler()
+        precompiler.addTemplate('config.yaml', PLAIN_TEMPLATE)
+        precompiler.writeTo(classes)
+        def configuration = configuration()
+
+        expect:
+        precompiler.templateCount() == 1
+        precompiler.substitutionPlanCount() == 1
+        configuration.engine().getTemplate('config.yaml', PLAIN_TEMPLATE) instanceof SubstitutionPlan
+        render(configuration, PLAIN_TEMPLATE) == 'name: my-app\nport: 8080\n'
+    }
+
+    def 'other precompiled templates are only parsed on their first render'() {
+        given:
+        def precompiler = precompiler()
+        precompiler.addTemplate('config.yaml', DIRECTIVE_TEMPLATE)
+        precompiler.writeTo(classes)
+        def configuration = configuration()
+
+        when:
+        def template = configuration.engine().getTemplate('config.yaml', DIRECTIVE_TEMPLATE)
+
+        then:
+        precompiler.substitutionPlanCount() == 0
+        template instanceof FreemarkerCompiledTemplate
+        template.@template == null
+
+        and:
+        render(configuration, DIRECTIVE_TEMPLATE) == 'server: {type: http}\nname: MY-APP\n'
+    }
+
+    def 'templates changed after the build and disabled precompilation parse templates as usual'() {
+        given:
+        def precompiler = precompiler()
+        precompiler.addTemplate('config.yaml', PLAIN_TEMPLATE)
+        precompiler.writeTo(classes)
+
+        expect:
+        !(configuration().engine().getTemplate('config.yaml', PLAIN_TEMPLATE + 'changed: true')
+                instanceof SubstitutionPlan)
+        configuration().precompiledTemplates(false).engine().getTemplate('config.yaml', PLAIN_TEMPLATE)
+                .@template != null
+    }
+
+    def 'syntax errors and missing includes fail the precompilation'() {
+        given:
+        write('broken.yaml', 'value: ${app.NAME')
+        def precompiler = precompiler()
+
+        expect:
+        precompiler.addTemplate('valid.yaml', DIRECTIVE_TEMPLATE)
+        precompiler.addInclude('server.yaml')
+        !precompiler.addTemplate('invalid.yaml', 'name: <#if>')
+        !precompiler.addTemplate('missing.yaml', '<#include "missing.yaml">')
+        !precompiler.addInclude('broken.yaml')
+        precompiler.templateCount() == 1
+        precompiler.errors().size() == 3
+        precompiler.errors()[0].startsWith('invalid.yaml: ')
+        precompiler.errors()[1] == 'missing.yaml: include missing.yaml not found'
+        precompiler.errors()[2].startsWith('broken.yaml: ')
+
+        when:
+        precompiler.write(new ByteArrayOutputStream())
+
+        then:
+        thrown IllegalStateException
+    }
+
+    def 'unreadable artifacts are ignored'() {
+        given:
+        def artifact = classes.resolve(TemplatePrecompiler.RESOURCE)
+        Files.createDirectories(artifact.parent)
+        Files.write(artifact, 'not an artifact'.getBytes(StandardCharsets.UTF_8))
+
+        expect:
+        render(configuration(), PLAIN_TEMPLATE) == 'name: my-app\nport: 8080\n'
+    }
+}
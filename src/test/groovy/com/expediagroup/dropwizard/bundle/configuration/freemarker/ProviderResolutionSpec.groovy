@@ -0,0 +1,195 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.time.Duration
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class ProviderResolutionSpec extends Specification {
+
+    static TemplateConfigVariablesProvider slowProvider(String namespace, long delayMillis, Map<String, String> variables) {
+        new TemplateConfigVariablesProvider() {
+            @Override
+            String getNamespace() {
+                namespace
+            }
+
+            @Override
+            Map<String, String> getVariables() {
+                Thread.sleep(delayMillis)
+                variables
+            }
+        }
+    }
+
+    static TemplateConfigVariablesProvider failingProvider(String namespace) {
+        new TemplateConfigVariablesProvider() {
+            @Override
+            String getNamespace() {
+                namespace
+            }
+
+            @Override
+            Map<String, String> getVariables() {
+                throw new IllegalArgumentException('vault is sealed')
+            }
+        }
+    }
+
+    def render(TemplateConfigurationSourceProvider provider, String config) {
+        IOUtils.toString(provider.open(config), StandardCharsets.UTF_8)
+    }
+
+    def 'providers are resolved concurrently and merged in the order they were added'() {
+        given:
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(
+                slowProvider('app', 500, [KEY: 'first', FIRST: '1']),
+                slowProvider('app', 500, [KEY: 'second']),
+                slowProvider('other', 500, [KEY: 'other']))
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration)
+
+        when:
+        long start = System.nanoTime()
+        def rendered = render(provider, '${app.KEY} ${app.FIRST} ${other.KEY}')
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000
+
+        then:
+        rendered == 'second 1 other'
+        elapsedMillis < 1400
+        provider.providerResolutions()*.outcome == [ProviderResolution.Outcome.RESOLVED] * 3
+        provider.providerResolutions().every { it.duration >= Duration.ofMillis(500) }
+    }
+
+    def 'a provider timing out fails the render by default'() {
+        given:
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(slowProvider('app', 2000, [:]))
+                .providerTimeout(Duration.ofMillis(100))
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration)
+
+        when:
+        render(provider, 'key: ${app.KEY!"default"}')
+
+        then:
+        def exception = thrown(IllegalStateException)
+        exception.message.contains("'app'")
+        provider.providerResolutions().isEmpty()
+    }
+
+    def 'providers falling back are left out of the data model'() {
+        given:
+        def slow = slowProvider('app', 2000, [KEY: 'slow'])
+        def failing = failingProvider('vault')
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(
+                Providers.fromMap('app', [KEY: 'fast']), slow, failing)
+                .providerTimeout(slow, Duration.ofMillis(100))
+                .providerFailurePolicy(ProviderFailurePolicy.FALLBACK)
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration)
+
+        when:
+        def rendered = render(provider, '${app.KEY} ${vault.KEY!"sealed"}')
+
+        then:
+        rendered == 'fast sealed'
+        provider.providerResolutions()*.outcome == [ProviderResolution.Outcome.RESOLVED,
+                                                     ProviderResolution.Outcome.TIMED_OUT,
+                                                     ProviderResolution.Outcome.FAILED]
+    }
+
+    def 'failures are rethrown when failing fast'() {
+        given:
+        def failing = failingProvider('vault')
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(Providers.fromMap('app', [:]), failing)
+                .providerFailurePolicy(ProviderFailurePolicy.FALLBACK)
+                .providerFailurePolicy(failing, ProviderFailurePolicy.FAIL_FAST)
+
+        when:
+        render(new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration), 'a: b')
+
+        then:
+        def exception = thrown(IllegalArgumentException)
+        exception.message == 'vault is sealed'
+    }
+
+    def 'providers are resolved on the configured executor'() {
+        given:
+        def executor = Executors.newSingleThreadExecutor({ runnable -> new Thread(runnable, 'custom-executor') })
+        def threadNames = []
+        def provider = new TemplateConfigVariablesProvider() {
+            @Override
+            String getNamespace() {
+                'app'
+            }
+
+            @Override
+            Map<String, String> getVariables() {
+                threadNames << Thread.currentThread().name
+                [:]
+            }
+        }
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(provider, Providers.fromMap('other', [:]))
+                .providerExecutor(executor)
+
+        when:
+        render(new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration), 'a: b')
+
+        then:
+        threadNames == ['custom-executor']
+
+        cleanup:
+        executor.shutdown()
+    }
+
+    def 'a provider timing out is interrupted and frees its executor thread'() {
+        given:
+        def executor = Executors.newSingleThreadExecutor()
+        def interrupted = new CountDownLatch(1)
+        def hanging = new TemplateConfigVariablesProvider() {
+            @Override
+            String getNamespace() {
+                'vault'
+            }
+
+            @Override
+            Map<String, String> getVariables() {
+                try {
+                    Thread.sleep(60_000)
+                } catch (InterruptedException e) {
+                    interrupted.countDown()
+                    throw e
+                }
+                [:]
+            }
+        }
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(hanging)
+                .providerTimeout(Duration.ofMillis(100))
+                .providerFailurePolicy(ProviderFailurePolicy.FALLBACK)
+                .providerExecutor(executor)
+
+        def free = new CountDownLatch(1)
+
+        when:
+        def rendered = render(new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration),
+                'key: ${vault.KEY!"default"}')
+        executor.execute { free.countDown() }
+
+        then:
+        rendered == 'key: default'
+        interrupted.await(5, TimeUnit.SECONDS)
+        free.await(5, TimeUnit.SECONDS)
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def 'a non positive provider timeout throws exception'() {
+        when:
+        new TemplateConfigBundleConfiguration().providerTimeout(Duration.ZERO)
+
+        then:
+        thrown IllegalArgumentException
+    }
+}
@@ -0,0 +1,143 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import io.dropwizard.configuration.ConfigurationSourceProvider
+import org.apache.commons.io.FileUtils
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+
+import static org.assertj.core.api.Assertions.assertThat
+
+class RenderCacheSpec extends Specification {
+
+    TestCustomProvider environmentProvider = TestCustomProvider.forEnv()
+
+    def cacheDirectory = Files.createTempDirectory('render-cache')
+    def includeDirectory = Files.createTempDirectory('render-cache-includes')
+
+    def template = '''
+            server:
+              port: ${env.PORT!8080}
+            <#include "database.yaml">
+            '''.stripIndent()
+
+    ConfigurationSourceProvider parentProvider = { path -> IOUtils.toInputStream(template, StandardCharsets.UTF_8) }
+
+    def setup() {
+        includeDirectory.resolve('database.yaml').toFile().text = 'database: ${env.DB!"postgres"}\n'
+    }
+
+    def cleanup() {
+        FileUtils.deleteDirectory(cacheDirectory.toFile())
+        FileUtils.deleteDirectory(includeDirectory.toFile())
+    }
+
+    def 'unchanged renders are served from the render cache'() {
+        given:
+        def provider = newProvider()
+
+        when:
+        def first = IOUtils.toString(provider.open('config.yaml'), StandardCharsets.UTF_8)
+        def second = IOUtils.toString(newProvider().open('config.yaml'), StandardCharsets.UTF_8)
+
+        then:
+        first == second
+        assertThat(second).contains('port: 8080').contains('database: postgres')
+        provider.renderCacheStats().get().missCounts == [(RenderCacheMissReason.NO_ENTRY): 1L]
+    }
+
+    def 'a cache hit is reported'() {
+        given:
+        def provider = newProvider()
+
+        when:
+        provider.open('config.yaml')
+        provider.open('config.yaml')
+
+        then:
+        provider.renderCacheStats().get().hitCount == 1
+        provider.renderCacheStats().get().missCount == 1
+    }
+
+    def 'changed variables invalidate the cached render'() {
+        given:
+        def provider = newProvider()
+        provider.open('config.yaml')
+        environmentProvider.putVariable('PORT', '9090')
+
+        when:
+        def rendered = IOUtils.toString(provider.open('config.yaml'), StandardCharsets.UTF_8)
+
+        then:
+        assertThat(rendered).contains('port: 9090')
+        provider.renderCacheStats().get().missCounts[RenderCacheMissReason.DATA_MODEL_CHANGED] == 1L
+    }
+
+    def 'changed templates invalidate the cached render'() {
+        given:
+        def provider = newProvider()
+        provider.open('config.yaml')
+        template = template.replace('server:', 'service:')
+
+        when:
+        def rendered = IOUtils.toString(provider.open('config.yaml'), StandardCharsets.UTF_8)
+
+        then:
+        assertThat(rendered).contains('service:')
+        provider.renderCacheStats().get().missCounts[RenderCacheMissReason.TEMPLATE_CHANGED] == 1L
+    }
+
+    def 'changed includes invalidate the cached render'() {
+        given:
+        def provider = newProvider()
+        provider.open('config.yaml')
+        includeDirectory.resolve('database.yaml').toFile().text = 'database: mysql\n'
+
+        when:
+        def rendered = IOUtils.toString(provider.open('config.yaml'), StandardCharsets.UTF_8)
+
+        then:
+        assertThat(rendered).contains('database: mysql')
+        provider.renderCacheStats().get().missCounts[RenderCacheMissReason.INCLUDES_CHANGED] == 1L
+    }
+
+    def 'templates with computed include names are not cached'() {
+        given:
+        template = '<#include "${env.SNIPPET!\'database\'}.yaml">'
+        def provider = newProvider()
+
+        when:
+        provider.open('config.yaml')
+        provider.open('config.yaml')
+
+        then:
+        provider.renderCacheStats().get().hitCount == 0
+        provider.renderCacheStats().get().missCounts[RenderCacheMissReason.DYNAMIC_INCLUDES] == 2L
+    }
+
+    def 'render cache stats are absent without a render cache directory'() {
+        given:
+        def provider = new TemplateConfigurationSourceProvider(parentProvider,
+                new TemplateConfigBundleConfiguration(environmentProvider))
+
+        expect:
+        !provider.renderCacheStats().isPresent()
+    }
+
+    def 'a null render cache directory throws exception'() {
+        when:
+        new TemplateConfigBundleConfiguration().renderCacheDirectory(null)
+
+        then:
+        thrown NullPointerException
+    }
+
+    private TemplateConfigurationSourceProvider newProvider() {
+        new TemplateConfigurationSourceProvider(parentProvider,
+                new TemplateConfigBundleConfiguration(environmentProvider)
+                        .fileIncludePath(includeDirectory.toString())
+                        .renderCacheDirectory(cacheDirectory.toString()))
+    }
+}
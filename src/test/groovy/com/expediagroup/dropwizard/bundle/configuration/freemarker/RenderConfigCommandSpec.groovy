@@ -0,0 +1,104 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import net.sourceforge.argparse4j.inf.Namespace
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+class RenderConfigCommandSpec extends Specification {
+
+    Path directory = Files.createTempDirectory('render-config')
+    Path output = directory.resolve('out')
+    def console = new ByteArrayOutputStream()
+    def configuration = new TemplateConfigBundleConfiguration(Providers.fromMap('app', [NAME: 'my-app']))
+
+    def setup() {
+        write('templates/server.yaml', 'name: ${app.NAME}\nport: ${env.PORT}\n')
+        write('templates/database.yaml', 'url: jdbc:${env.DB}://${env.REGION}\n')
+        write('envs/prod/eu.properties', 'PORT=8080\nDB=postgresql\nREGION=eu\n')
+        write('envs/prod/us.properties', 'PORT=8080\nDB=postgresql\nREGION=us\n')
+        write('envs/test/eu.properties', 'PORT=9090\nDB=h2\nREGION=eu\n')
+    }
+
+    def write(String name, String content) {
+        Files.createDirectories(directory.resolve(name).parent)
+        Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8))
+    }
+
+    def read(String name) {
+        new String(Files.readAllBytes(output.resolve(name)), StandardCharsets.UTF_8)
+    }
+
+    def run(List<String> templates, List<String> variables, int threads = 4) {
+        def command = new RenderConfigCommand(configuration, new PrintStream(console, true))
+        command.run(TestApplication.bootstrap(), new Namespace([
+                templates: templates,
+                variables: variables,
+                namespace: 'env',
+                output   : output.toString(),
+                threads  : threads
+        ]))
+    }
+
+    def 'every template is rendered with every variable set'() {
+        when:
+        run(["${directory}/templates/*.yaml".toString()], ["${directory}/envs/**.properties".toString()])
+
+        then:
+        read('prod/eu/server.yaml') == 'name: my-app\nport: 8080\n'
+        read('prod/us/database.yaml') == 'url: jdbc:postgresql://us\n'
+        read('test/eu/server.yaml') == 'name: my-app\nport: 9090\n'
+        read('test/eu/database.yaml') == 'url: jdbc:h2://eu\n'
+        def summary = read(RenderConfigCommand.SUMMARY_FILE).readLines()
+        summary.size() == 7
+        summary.tail().every { it.startsWith('OK\t') }
+        console.toString().contains('Rendered 6 of 6 configs')
+    }
+
+    def 'failures are summarized and fail the command'() {
+        given:
+        write('envs/broken.properties', 'PORT=1\n')
+
+        when:
+        run([directory.resolve('templates/database.yaml').toString()],
+                [directory.resolve('envs/broken.properties').toString(),
+                 directory.resolve('envs/test/eu.properties').toString()], 1)
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.message == '1 of 2 configs failed to render.'
+        read('test/eu/database.yaml') == 'url: jdbc:h2://eu\n'
+        def failure = read(RenderConfigCommand.SUMMARY_FILE).readLines().find { it.startsWith('FAILED') }
+        failure.startsWith('FAILED\tdatabase.yaml\tbroken\t')
+        failure.contains('env.DB')
+        console.toString().contains('FAILED database.yaml with broken')
+    }
+
+    def 'without variable sets templates are rendered once'() {
+        given:
+        write('name.yaml', 'name: ${app.NAME}\n')
+
+        when:
+        run([directory.resolve('name.yaml').toString()], null)
+
+        then:
+        read('name.yaml') == 'name: my-app\n'
+    }
+
+    def 'patterns that match nothing are rejected'() {
+        when:
+        RenderConfigCommand.expand(["${directory}/missing/*.yaml".toString()])
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    def 'paths are named relative to their common parent'() {
+        expect:
+        RenderConfigCommand.relativeNames([directory.resolve('a/x.yaml'), directory.resolve('a/b/y.yaml')]) ==
+                ['x.yaml', 'b/y.yaml']
+        RenderConfigCommand.relativeNames([directory.resolve('a/x.yaml')]) == ['x.yaml']
+    }
+}
@@ -0,0 +1,92 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import io.dropwizard.Configuration
+import io.dropwizard.configuration.ConfigurationSourceProvider
+import io.dropwizard.setup.Environment
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class RenderMetricsSpec extends Specification {
+
+    static final String PREFIX = 'com.expediagroup.dropwizard.bundle.configuration.freemarker.TemplateConfigBundle.render.'
+
+    def bundleConfiguration = new TemplateConfigBundleConfiguration(Providers.fromMap('app', [PORT: '8080', HOST: 'localhost']))
+    def bundle = new TemplateConfigBundle<Configuration>(bundleConfiguration)
+    def environment = new Environment('render-metrics')
+    def metrics = environment.metrics()
+    ConfigurationSourceProvider sourceProvider
+
+    def setup() {
+        def bootstrap = TestApplication.bootstrap()
+        bundle.initialize(bootstrap)
+        sourceProvider = bootstrap.configurationSourceProvider
+    }
+
+    def run() {
+        bundle.run(new Configuration(), environment)
+    }
+
+    def 'the render during bootstrap is recorded when the application runs'() {
+        given:
+        def rendered = IOUtils.toString(sourceProvider.open('port: ${app.PORT}'), StandardCharsets.UTF_8)
+
+        when:
+        run()
+
+        then:
+        ['engineInit', 'templateParse', 'dataModelBuild', 'render', 'providers.app'].each {
+            assert metrics.timers[PREFIX + it].count == 1
+        }
+        !metrics.timers.containsKey(PREFIX + 'outputWrite')
+        metrics.gauges[PREFIX + 'outputBytes'].value == rendered.getBytes(StandardCharsets.UTF_8).length
+        metrics.gauges[PREFIX + 'variableCount'].value == 2
+    }
+
+    def 'later renders are recorded as they happen'() {
+        given:
+        run()
+
+        when:
+        sourceProvider.open('port: ${app.PORT}').close()
+        sourceProvider.open('host: ${app.HOST}').close()
+
+        then:
+        metrics.timers[PREFIX + 'render'].count == 2
+        metrics.gauges[PREFIX + 'outputBytes'].value == 'host: localhost'.length()
+    }
+
+    def 'the output write is timed if an output path is configured'() {
+        given:
+        def outputFile = File.createTempFile('render-metrics', '.yaml')
+        outputFile.deleteOnExit()
+        bundleConfiguration.outputPath(outputFile.absolutePath)
+        sourceProvider.open('port: ${app.PORT}').close()
+
+        when:
+        run()
+
+        then:
+        metrics.timers[PREFIX + 'outputWrite'].count == 1
+    }
+
+    def 'the provider exposes the stats of the last render'() {
+        given:
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration)
+
+        expect:
+        !provider.lastRenderStats().present
+
+        when:
+        provider.open('${app.PORT}').close()
+
+        then:
+        def stats = provider.lastRenderStats().get()
+        stats.outputBytes == 4
+        stats.templateParse.present
+        stats.render.present
+        !stats.outputWrite.present
+        stats.providerResolutions*.outcome == [ProviderResolution.Outcome.RESOLVED]
+    }
+}
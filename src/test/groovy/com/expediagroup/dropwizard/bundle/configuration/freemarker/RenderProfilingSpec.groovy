@@ -0,0 +1,117 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import io.dropwizard.configuration.ConfigurationSourceProvider
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Path
+
+class RenderProfilingSpec extends Specification {
+
+    static final String TEMPLATE = '''server:
+<#include "server.yaml">
+tenants:
+<#list 1..3 as t>
+- <#include "tenant.yaml">
+</#list>
+'''
+    static final String RENDERED = 'server:\nport: 8080\ntenants:\n- tenant-1\n- tenant-2\n- tenant-3\n'
+
+    Path directory = Files.createTempDirectory('profiling')
+    Path outputPath = directory.resolve('config.yaml')
+
+    def sources = ['config.yaml': TEMPLATE]
+    ConfigurationSourceProvider sourceProvider =
+            { String path -> new ByteArrayInputStream(sources[path].getBytes(StandardCharsets.UTF_8)) }
+
+    def configuration = new TemplateConfigBundleConfiguration(Providers.fromMap('app', [PORT: '8080']))
+            .fileIncludePath(directory.toString())
+            .profiling(true)
+
+    def setup() {
+        write('server.yaml', 'port: ${app.PORT}\n')
+        write('tenant.yaml', 'tenant-${t}')
+    }
+
+    def write(String name, String content) {
+        Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8))
+    }
+
+    def render(String path) {
+        def provider = new TemplateConfigurationSourceProvider(sourceProvider, configuration)
+        IOUtils.toString(provider.open(path), StandardCharsets.UTF_8)
+    }
+
+    def report() {
+        new ObjectMapper().readValue(Files.readAllBytes(directory.resolve('config.yaml.profile.json')), Map)
+    }
+
+    def 'includes and top level directives are profiled without changing the output'() {
+        given:
+        configuration.outputPath(outputPath.toString())
+
+        when:
+        def rendered = render('config.yaml')
+        def report = report()
+
+        then:
+        rendered == RENDERED
+        new String(Files.readAllBytes(outputPath), StandardCharsets.UTF_8) == RENDERED
+        report.path == 'config.yaml'
+        report.bytes == RENDERED.length()
+        report.nanos > 0
+        report.entries.collectEntries { [(it.name): [it.kind, it.count, it.bytes]] } == [
+                'server.yaml'        : ['include', 1, 'port: 8080\n'.length()],
+                'config.yaml:4 #list': ['directive', 1, '- tenant-1\n'.length() * 3],
+                'tenant.yaml'        : ['include', 3, 'tenant-1'.length() * 3],
+        ]
+    }
+
+    def 'entries are sorted by the time spent in them'() {
+        given:
+        configuration.outputPath(outputPath.toString())
+        write('slow.yaml', '<#list 1..20000 as i>${i}</#list>\n')
+        sources['config.yaml'] = 'fast: <#include "server.yaml">\n<#include "slow.yaml">'
+
+        when:
+        render('config.yaml')
+        def nanos = report().entries*.nanos
+
+        then:
+        report().entries[0].name == 'slow.yaml'
+        nanos == nanos.sort(false).reverse()
+    }
+
+    def 'bytes are counted in the configured charset'() {
+        given:
+        configuration.outputPath(outputPath.toString()).charset(StandardCharsets.UTF_16BE)
+        Files.write(directory.resolve('server.yaml'), 'port: ${app.PORT}\n'.getBytes(StandardCharsets.UTF_16BE))
+        sources['config.yaml'] = '<#include "server.yaml">'
+        sourceProvider = { String path -> new ByteArrayInputStream(sources[path].getBytes(StandardCharsets.UTF_16BE)) }
+
+        when:
+        render('config.yaml')
+
+        then:
+        report().entries[0].bytes == 'port: 8080\n'.length() * 2
+    }
+
+    def 'without output path the profile is only logged'() {
+        expect:
+        render('config.yaml') == RENDERED
+        !Files.exists(directory.resolve('config.yaml.profile.json'))
+    }
+
+    def 'templates are rendered from freemarker when profiling, even if they could be substituted'() {
+        given:
+        configuration.renderingEngine(RenderingEngines.substitution())
+        sources['plain.yaml'] = 'port: ${app.PORT}'
+
+        expect:
+        configuration.engine().getTemplate('plain.yaml', sources['plain.yaml']) instanceof FreemarkerCompiledTemplate
+        render('plain.yaml') == 'port: 8080'
+    }
+}
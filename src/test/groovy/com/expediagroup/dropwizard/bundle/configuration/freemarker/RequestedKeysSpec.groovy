@@ -0,0 +1,71 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+class RequestedKeysSpec extends Specification {
+
+    List<Set<String>> requests = []
+    int fullLoads = 0
+
+    TemplateConfigVariablesProvider vaultProvider = new TemplateConfigVariablesProvider() {
+        @Override
+        String getNamespace() {
+            'vault'
+        }
+
+        @Override
+        Map<String, String> getVariables() {
+            fullLoads++
+            [DB_PASSWORD: 'secret', API_KEY: 'key']
+        }
+
+        @Override
+        Map<String, String> getVariables(Set<String> requestedKeys) {
+            requests << requestedKeys
+            [DB_PASSWORD: 'secret', API_KEY: 'key'].findAll { requestedKeys.contains(it.key) }
+        }
+    }
+
+    def render(String config) {
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(vaultProvider))
+        IOUtils.toString(provider.open(config), StandardCharsets.UTF_8)
+    }
+
+    def 'providers are asked only for the keys the template references'() {
+        when:
+        def rendered = render('password: ${vault.DB_PASSWORD}')
+
+        then:
+        rendered == 'password: secret'
+        requests == [['DB_PASSWORD'] as Set]
+        fullLoads == 0
+    }
+
+    def 'dynamically accessed namespaces are loaded completely'() {
+        when:
+        def rendered = render('<#list vault?keys?sort as key>${key} </#list>')
+
+        then:
+        rendered == 'API_KEY DB_PASSWORD '
+        requests.isEmpty()
+        fullLoads == 1
+    }
+
+    def 'custom data model factories are used as they are'() {
+        given:
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(vaultProvider)
+                .dataModelFactory({ [vault: [DB_PASSWORD: 'custom']] })
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration)
+
+        when:
+        def rendered = IOUtils.toString(provider.open('password: ${vault.DB_PASSWORD}'), StandardCharsets.UTF_8)
+
+        then:
+        rendered == 'password: custom'
+        requests.isEmpty()
+    }
+}
@@ -0,0 +1,104 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import freemarker.core.InvalidReferenceException
+import org.apache.commons.io.FileUtils
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+
+import static org.assertj.core.api.Assertions.assertThat
+
+class StreamingSpec extends Specification {
+
+    TestCustomProvider environmentProvider = TestCustomProvider.forEnv()
+
+    def outputPath = System.getProperty('java.io.tmpdir') + '/streamingSpec.yml'
+
+    def config = '''
+            tenants:
+            <#list 1..2000 as tenant>
+              - name: tenant-${tenant}
+                port: ${env.PORT!8080}
+            </#list>
+            '''.stripIndent()
+
+    def cleanup() {
+        new File(outputPath).delete()
+    }
+
+    def 'streamed config is identical to the buffered one'() {
+        given:
+        def buffered = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(environmentProvider))
+        def streamed = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(environmentProvider)
+                        .streaming(true)
+                        .streamingBufferSize(128))
+
+        when:
+        def bufferedConfig = IOUtils.toString(buffered.open(config), StandardCharsets.UTF_8)
+        def streamedConfig = IOUtils.toString(streamed.open(config), StandardCharsets.UTF_8)
+
+        then:
+        streamedConfig == bufferedConfig
+        assertThat(streamedConfig).contains('name: tenant-2000')
+    }
+
+    def 'streamed config is written to outputPath in the same pass'() {
+        given:
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(environmentProvider)
+                        .streaming(true)
+                        .streamingBufferSize(128)
+                        .outputPath(outputPath))
+
+        when:
+        def streamedConfig = IOUtils.toString(provider.open(config), StandardCharsets.UTF_8)
+
+        then:
+        new File(outputPath).getText(StandardCharsets.UTF_8.name()) == streamedConfig
+    }
+
+    def 'streamed config is opened again from the render cache'() {
+        given:
+        def cacheDirectory = Files.createTempDirectory('streaming-render-cache')
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(environmentProvider)
+                        .streaming(true)
+                        .renderCacheDirectory(cacheDirectory.toString()))
+
+        when:
+        def firstConfig = IOUtils.toString(provider.open(config), StandardCharsets.UTF_8)
+        def secondConfig = IOUtils.toString(provider.open(config), StandardCharsets.UTF_8)
+
+        then:
+        secondConfig == firstConfig
+        provider.renderCacheStats().get().hitCount == 1
+
+        cleanup:
+        FileUtils.deleteDirectory(cacheDirectory.toFile())
+    }
+
+    def 'rendering failures are reported while reading'() {
+        given:
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(environmentProvider).streaming(true))
+
+        when:
+        IOUtils.toString(provider.open('port: ${env.PORT}'), StandardCharsets.UTF_8)
+
+        then:
+        def exception = thrown(IOException)
+        assertThat(exception.cause).isInstanceOf(InvalidReferenceException)
+    }
+
+    def 'a non positive streaming buffer size throws exception'() {
+        when:
+        new TemplateConfigBundleConfiguration().streamingBufferSize(0)
+
+        then:
+        thrown IllegalArgumentException
+    }
+}
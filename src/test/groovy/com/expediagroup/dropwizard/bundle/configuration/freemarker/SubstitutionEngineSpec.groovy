@@ -0,0 +1,95 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import freemarker.core.InvalidReferenceException
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+import spock.lang.Unroll
+
+import java.nio.charset.StandardCharsets
+
+class SubstitutionEngineSpec extends Specification {
+
+    TestCustomProvider environmentProvider = TestCustomProvider.forEnv()
+
+    def render(TemplateConfigBundleConfiguration bundleConfiguration, String config) {
+        def provider = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration)
+        IOUtils.toString(provider.open(config), StandardCharsets.UTF_8)
+    }
+
+    @Unroll
+    def 'substitution engine renders #config like freemarker'() {
+        given:
+        environmentProvider.putVariable('PORT', '9090')
+        environmentProvider.putVariable('db.url', 'jdbc:h2:mem:')
+
+        when:
+        def substituted = render(new TemplateConfigBundleConfiguration(environmentProvider)
+                .renderingEngine(RenderingEngines.substitution()), config)
+        def freemarker = render(new TemplateConfigBundleConfiguration(environmentProvider), config)
+
+        then:
+        substituted == freemarker
+
+        where:
+        config << [
+                'port: ${env.PORT}',
+                'port: ${env["PORT"]}\nurl: ${env[\'db.url\']}',
+                'port: ${ env.HOST ! "localhost" }',
+                'port: ${env.ADMIN_PORT!08081}',
+                'name: ${env.NAME!}',
+                'url: ${env.db\\.url}',
+                'no variables at all'
+        ]
+    }
+
+    def 'plain interpolations are compiled into a substitution plan'() {
+        given:
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(environmentProvider)
+                .renderingEngine(RenderingEngines.substitution())
+
+        expect:
+        bundleConfiguration.engine().getTemplate('a', 'port: ${env.PORT!8080}') instanceof SubstitutionPlan
+        bundleConfiguration.engine().getTemplate('b', '<#if true>port: 8080</#if>') instanceof FreemarkerCompiledTemplate
+        bundleConfiguration.engine().getTemplate('c', 'port: ${env.PORT?upper_case}') instanceof FreemarkerCompiledTemplate
+        bundleConfiguration.engine().getTemplate('d', 'port: ${env.PORT!"${x}"}') instanceof FreemarkerCompiledTemplate
+    }
+
+    def 'templates using other features are rendered by freemarker'() {
+        given:
+        def config = '<#list 1..2 as i>port-${i}: ${env.PORT!8080}\n</#list>'
+
+        when:
+        def rendered = render(new TemplateConfigBundleConfiguration(environmentProvider)
+                .renderingEngine(RenderingEngines.substitution()), config)
+
+        then:
+        rendered == 'port-1: 8080\nport-2: 8080\n'
+    }
+
+    def 'missing variables fail like with freemarker'() {
+        when:
+        render(new TemplateConfigBundleConfiguration(environmentProvider)
+                .renderingEngine(RenderingEngines.substitution()), 'port: ${env.PORT}')
+
+        then:
+        def exception = thrown(IllegalStateException)
+        exception.cause instanceof InvalidReferenceException
+    }
+
+    def 'syntax errors are reported when the config is opened'() {
+        when:
+        render(new TemplateConfigBundleConfiguration(environmentProvider)
+                .renderingEngine(RenderingEngines.substitution()), '<#if>')
+
+        then:
+        thrown(IOException)
+    }
+
+    def 'null rendering engine throws exception'() {
+        when:
+        new TemplateConfigBundleConfiguration().renderingEngine(null)
+
+        then:
+        thrown NullPointerException
+    }
+}
@@ -0,0 +1,106 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import org.apache.commons.io.IOUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+import static org.assertj.core.api.Assertions.assertThat
+
+class TemplateCacheSpec extends Specification {
+
+    TestCustomProvider environmentProvider = TestCustomProvider.forEnv()
+
+    def config = '''
+            server:
+              port: ${env.PORT!8080}
+
+            <#include "database.yaml">
+            '''.stripIndent()
+
+    def 'main template and includes are served from the cache on subsequent renders'() {
+        given:
+        def provider = new TemplateConfigurationSourceProvider(
+                new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(environmentProvider).resourceIncludePath('/config-snippets')
+        )
+
+        when:
+        provider.open(config)
+        provider.open(config)
+        def stats = provider.templateCacheStats()
+
+        then:
+        stats.templateMissCount == 1
+        stats.templateHitCount == 1
+        stats.includeHitCount >= 1
+    }
+
+    def 'cached template is rendered with the current variables'() {
+        given:
+        def provider = new TemplateConfigurationSourceProvider(
+                new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(environmentProvider).resourceIncludePath('/config-snippets')
+        )
+
+        when:
+        provider.open(config)
+        environmentProvider.putVariable('PORT', '9090')
+        def parsedConfigAsString = IOUtils.toString(provider.open(config), StandardCharsets.UTF_8)
+
+        then:
+        assertThat(parsedConfigAsString).contains('port: 9090')
+        provider.templateCacheStats().templateHitCount == 1
+    }
+
+    def 'providers sharing a configuration share the engine'() {
+        given:
+        def bundleConfiguration = new TemplateConfigBundleConfiguration(environmentProvider)
+                .resourceIncludePath('/config-snippets')
+        def first = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration)
+        def second = new TemplateConfigurationSourceProvider(new TestConfigSourceProvider(), bundleConfiguration)
+
+        when:
+        first.open(config)
+        second.open(config)
+
+        then:
+        second.templateCacheStats().templateHitCount == 1
+    }
+
+    def 'caching can be disabled'() {
+        given:
+        def provider = new TemplateConfigurationSourceProvider(
+                new TestConfigSourceProvider(),
+                new TemplateConfigBundleConfiguration(environmentProvider)
+                        .resourceIncludePath('/config-snippets')
+                        .templateCacheEviction(TemplateCacheEviction.NONE)
+        )
+
+        when:
+        provider.open(config)
+        provider.open(config)
+        def stats = provider.templateCacheStats()
+
+        then:
+        stats.templateHitCount == 0
+        stats.templateMissCount == 2
+        stats.includeHitCount == 0
+    }
+
+    def 'a negative template cache size throws exception'() {
+        when:
+        new TemplateConfigBundleConfiguration().templateCacheSize(-1)
+
+        then:
+        thrown IllegalArgumentException
+    }
+
+    def 'a null template cache eviction throws exception'() {
+        when:
+        new TemplateConfigBundleConfiguration().templateCacheEviction(null)
+
+        then:
+        thrown NullPointerException
+    }
+}
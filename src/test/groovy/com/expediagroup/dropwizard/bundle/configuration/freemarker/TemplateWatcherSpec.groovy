@@ -0,0 +1,66 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker
+
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+
+class TemplateWatcherSpec extends Specification {
+
+    def conditions = new PollingConditions(timeout: 15)
+    def changes = new AtomicInteger()
+    Path configDirectory = Files.createTempDirectory('config')
+    Path configFile = Files.write(configDirectory.resolve('config.yaml'), 'server: ${app.PORT}'.bytes)
+    Path includeDirectory = Files.createTempDirectory('includes')
+    TemplateWatcher watcher
+
+    def setup() {
+        Files.createDirectories(includeDirectory.resolve('nested'))
+        watcher = new TemplateWatcher(Optional.of(configFile), Optional.of(includeDirectory),
+                Duration.ofMillis(200), { changes.incrementAndGet() })
+        watcher.start()
+    }
+
+    def cleanup() {
+        watcher.stop()
+    }
+
+    def 'a burst of changes to the config and its includes is reloaded once'() {
+        when:
+        Files.write(configFile, 'server: ${app.HOST}'.bytes)
+        Files.write(includeDirectory.resolve('nested/snippet.yaml'), 'a: b'.bytes)
+
+        then:
+        conditions.eventually {
+            assert changes.get() == 1
+        }
+    }
+
+    def 'files created in new include directories are watched'() {
+        given:
+        Path newDirectory = Files.createDirectories(includeDirectory.resolve('new'))
+        conditions.eventually {
+            assert changes.get() == 1
+        }
+
+        when:
+        Files.write(newDirectory.resolve('snippet.yaml'), 'a: b'.bytes)
+
+        then:
+        conditions.eventually {
+            assert changes.get() == 2
+        }
+    }
+
+    def 'other files next to the config are ignored'() {
+        when:
+        Files.write(configDirectory.resolve('unrelated.txt'), 'x'.bytes)
+        Thread.sleep(1000)
+
+        then:
+        changes.get() == 0
+    }
+}
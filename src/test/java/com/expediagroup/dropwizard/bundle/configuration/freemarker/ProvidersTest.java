@@ -1,14 +1,21 @@
 package com.expediagroup.dropwizard.bundle.configuration.freemarker;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 /**
  * Various tests for Providers
@@ -133,4 +140,172 @@ public class ProvidersTest {
         mergedProviders.getVariables().put("newKey", "newValue");
     }
 
+    @Test
+    public void lazyFromMap() {
+        LazyTemplateConfigVariablesProvider provider =
+            Providers.lazyFromMap("lazyFromMap", Collections.singletonMap("key", "value"));
+        assertThat(provider.getNamespace()).isEqualTo("lazyFromMap");
+        assertThat(provider.getVariable("key")).isEqualTo("value");
+        assertThat(provider.getVariable("missing")).isNull();
+        assertThat(provider.getVariables()).containsOnly(entry("key", "value"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lazyFromMapWithEmptyNamespace() {
+        Providers.lazyFromMap(" ", Collections.singletonMap("key", "value"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void lazyFromMapUnmodified() {
+        Providers.lazyFromMap("lazyFromMap", new HashMap<>()).getVariables().put("newKey", "newValue");
+    }
+
+    @Test
+    public void lazyFromSystemProperties() {
+        LazyTemplateConfigVariablesProvider provider = Providers.lazyFromSystemProperties();
+        assertThat(provider.getNamespace()).isEqualTo("sys");
+        assertThat(provider.getVariable("java.version")).isEqualTo(System.getProperty("java.version"));
+        assertThat(provider.getVariableNames()).contains("java.version");
+    }
+
+    @Test
+    public void lazyFromEnvironmentProperties() {
+        LazyTemplateConfigVariablesProvider provider = Providers.lazyFromEnvironmentProperties();
+        assertThat(provider.getNamespace()).isEqualTo("env");
+        assertThat(provider.getVariables()).isEqualTo(System.getenv());
+    }
+
+    @Test
+    public void lazyFromPropertiesURL() {
+        LazyTemplateConfigVariablesProvider provider =
+            Providers.lazyFromProperties("lazyFromPropertiesURL", getClass().getResource("/config-snippets/test.properties"));
+        assertThat(provider.getVariable("propertyKey")).isEqualTo("propertyValue");
+    }
+
+    @Test
+    public void lazyFromPropertiesFile() throws URISyntaxException {
+        LazyTemplateConfigVariablesProvider provider =
+            Providers.lazyFromPropertiesFile("lazyFromPropertiesFile", resource("/config-snippets/test.properties"));
+        assertThat(provider.getNamespace()).isEqualTo("lazyFromPropertiesFile");
+        assertThat(provider.getVariable("propertyKey")).isEqualTo("propertyValue");
+        assertThat(provider.getVariable("missing")).isNull();
+        assertThat(provider.getVariables()).containsOnly(entry("propertyKey", "propertyValue"));
+    }
+
+    @Test
+    public void lazyFromYamlFile() throws URISyntaxException {
+        LazyTemplateConfigVariablesProvider provider =
+            Providers.lazyFromYamlFile("lazyFromYamlFile", resource("/config-snippets/test-variables.yaml"));
+        assertThat(provider.getVariable("propertyKey")).isEqualTo("propertyValue");
+        assertThat(provider.getVariableNames()).containsOnly("propertyKey");
+    }
+
+    @Test
+    public void lazyFromJsonFile() throws URISyntaxException {
+        LazyTemplateConfigVariablesProvider provider =
+            Providers.lazyFromJsonFile("lazyFromJsonFile", resource("/config-snippets/test-variables.json"));
+        assertThat(provider.getVariable("propertyKey")).isEqualTo("propertyValue");
+        assertThat(provider.getVariableNames()).containsOnly("propertyKey");
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void lazyFromPropertiesFileNotFound() {
+        Providers.lazyFromPropertiesFile("lazyFromPropertiesFile", Paths.get("notfound.properties"))
+            .getVariable("propertyKey");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void lazyFromPropertiesFileUnmodified() throws URISyntaxException {
+        Providers.lazyFromPropertiesFile("lazyFromPropertiesFile", resource("/config-snippets/test.properties"))
+            .getVariables().put("newKey", "newValue");
+    }
+
+    @Test
+    public void lazyVariablesAreResolvedOncePerView() {
+        AtomicInteger lookups = new AtomicInteger();
+        Properties properties = new Properties() {
+            @Override
+            public String getProperty(String key) {
+                lookups.incrementAndGet();
+                return super.getProperty(key);
+            }
+        };
+        properties.setProperty("key", "value");
+        Map<String, String> variables = Providers.lazyFromProperties("lazy", properties).getVariables();
+
+        assertThat(lookups.get()).isZero();
+        assertThat(variables.get("key")).isEqualTo("value");
+        assertThat(variables.get("key")).isEqualTo("value");
+        assertThat(variables.get("missing")).isNull();
+        assertThat(variables.get("missing")).isNull();
+        assertThat(lookups.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void mergeLazyProviders() {
+        TemplateConfigVariablesProvider leftProvider =
+            Providers.fromMap("mergeProviders", Collections.singletonMap("key", "value1"));
+        TemplateConfigVariablesProvider rightProvider =
+            Providers.lazyFromMap("mergeProviders", Collections.singletonMap("other", "value2"));
+        TemplateConfigVariablesProvider mergedProviders = Providers.mergeProviders(leftProvider, rightProvider);
+
+        assertThat(mergedProviders).isInstanceOf(LazyTemplateConfigVariablesProvider.class);
+        assertThat(mergedProviders.getVariables()).containsOnly(entry("key", "value1"), entry("other", "value2"));
+    }
+
+    @Test
+    public void mergeManyProvidersLooksUpRightToLeft() {
+        TemplateConfigVariablesProvider merged = Providers.fromMap("layers", Collections.singletonMap("key0", "value0"));
+        for (int i = 1; i < 50; i++) {
+            Map<String, String> variables = new HashMap<>();
+            variables.put("key" + i, "value" + i);
+            variables.put("shared", "value" + i);
+            merged = Providers.mergeProviders(merged, Providers.fromMap("layers", variables));
+        }
+
+        assertThat(merged.getVariables()).hasSize(51);
+        assertThat(merged.getVariables()).containsEntry("key0", "value0");
+        assertThat(merged.getVariables()).containsEntry("shared", "value49");
+        assertThat(((LazyTemplateConfigVariablesProvider) merged).getVariable("shared")).isEqualTo("value49");
+    }
+
+    @Test
+    public void mergedProvidersAskEagerProvidersOnce() {
+        AtomicInteger calls = new AtomicInteger();
+        TemplateConfigVariablesProvider eager = new TemplateConfigVariablesProvider() {
+            @Override
+            public String getNamespace() {
+                return "mergeProviders";
+            }
+
+            @Override
+            public Map<String, String> getVariables() {
+                return Collections.singletonMap("key", "value" + calls.incrementAndGet());
+            }
+        };
+        TemplateConfigVariablesProvider mergedProviders = Providers.mergeProviders(eager,
+            Providers.lazyFromMap("mergeProviders", Collections.singletonMap("other", "value")));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(((LazyTemplateConfigVariablesProvider) mergedProviders).getVariable("key")).isEqualTo("value1");
+        }
+        assertThat(mergedProviders.getVariables()).containsOnly(entry("key", "value1"), entry("other", "value"));
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void mergedProvidersAreNotCopied() {
+        Map<String, String> variables = new HashMap<>();
+        TemplateConfigVariablesProvider mergedProviders = Providers.mergeProviders(
+            Providers.fromMap("mergeProviders", Collections.singletonMap("key", "value1")),
+            Providers.fromMap("mergeProviders", variables));
+        variables.put("key", "value2");
+
+        assertThat(mergedProviders.getVariables()).containsOnly(entry("key", "value2"));
+    }
+
+    private Path resource(String name) throws URISyntaxException {
+        return Paths.get(getClass().getResource(name).toURI());
+    }
+
 }
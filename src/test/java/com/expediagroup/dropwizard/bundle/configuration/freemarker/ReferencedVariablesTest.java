@@ -0,0 +1,59 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Various tests for ReferencedVariables
+ */
+public class ReferencedVariablesTest {
+
+    @Test
+    public void namespacedKeys() {
+        ReferencedVariables referenced = ReferencedVariables.analyzeSource(
+            "port: ${env.PORT!8080}\nhost: ${env['HOST']?upper_case}\n<#if sys.debug??>debug: ${sys.http\\-port}</#if>");
+        assertThat(referenced.keys("env").get()).containsOnly("PORT", "HOST");
+        assertThat(referenced.keys("sys").get()).containsOnly("debug", "http-port");
+        assertThat(referenced.keys("other").get()).isEmpty();
+    }
+
+    @Test
+    public void bareKeysAreRequestedFromAllNamespaces() {
+        ReferencedVariables referenced = ReferencedVariables.analyzeSource("port: ${PORT!8080}");
+        assertThat(referenced.keys("env").get()).containsOnly("PORT");
+        assertThat(referenced.keys("sys").get()).containsOnly("PORT");
+    }
+
+    @Test
+    public void stringInterpolationsAreAnalyzed() {
+        ReferencedVariables referenced = ReferencedVariables.analyzeSource("<#assign url = \"jdbc:${env.DB_HOST}\">");
+        assertThat(referenced.keys("env").get()).contains("DB_HOST");
+    }
+
+    @Test
+    public void dynamicallyAccessedNamespacesAreRequestedWholesale() {
+        ReferencedVariables referenced = ReferencedVariables.analyzeSource(
+            "<#list env?keys as key>${key}</#list>${sys[name]}<#assign all = providerA>${providerB.KEY}");
+        assertThat(referenced.keys("env")).isEmpty();
+        assertThat(referenced.keys("sys")).isEmpty();
+        assertThat(referenced.keys("providerA")).isEmpty();
+        assertThat(referenced.keys("providerB")).isPresent();
+    }
+
+    @Test
+    public void rangesAndMembersOfCallsAreNotVariables() {
+        ReferencedVariables referenced = ReferencedVariables.analyzeSource("<#list 1..count as i>${f(i).vars}</#list>");
+        assertThat(referenced.isAll()).isFalse();
+        assertThat(referenced.keys("env").get()).contains("count", "f").doesNotContain("vars");
+    }
+
+    @Test
+    public void unanalyzableTemplatesRequestEverything() {
+        assertThat(ReferencedVariables.analyzeSource("${.vars['env']}").isAll()).isTrue();
+        assertThat(ReferencedVariables.analyzeSource("${'env.PORT'?eval}").isAll()).isTrue();
+        assertThat(ReferencedVariables.analyzeSource("[#ftl]${env.PORT}").isAll()).isTrue();
+        assertThat(ReferencedVariables.analyzeSource("${env.PORT").isAll()).isTrue();
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Various tests for TemplateSourceScanner
+ */
+public class TemplateSourceScannerTest {
+
+    @Test
+    public void includedTemplateNames() {
+        TemplateSourceScanner.ScannedTemplate scanned = TemplateSourceScanner.scan(
+            "a: ${env.A}\n<#include \"database.yaml\">\n<#if x > 1><#import 'lib/macros.ftl' as m></#if>");
+        assertThat(scanned.isComplete()).isTrue();
+        assertThat(scanned.includedTemplateNames()).contains(Arrays.asList("database.yaml", "lib/macros.ftl"));
+    }
+
+    @Test
+    public void computedIncludeNamesAreNotStatic() {
+        assertThat(TemplateSourceScanner.scan("<#include \"${env.NAME}.yaml\">").includedTemplateNames()).isEmpty();
+        assertThat(TemplateSourceScanner.scan("<#include name + \".yaml\">").includedTemplateNames()).isEmpty();
+        assertThat(TemplateSourceScanner.scan("<#include \"a\" + suffix>").includedTemplateNames()).isEmpty();
+    }
+
+    @Test
+    public void includeParametersAreAllowed() {
+        assertThat(TemplateSourceScanner.leadingStringLiteral(" \"a.yaml\" parse=false"))
+            .isEqualTo(Optional.of("a.yaml"));
+    }
+
+    @Test
+    public void commentsAndNoparseAreNotScanned() {
+        TemplateSourceScanner.ScannedTemplate scanned = TemplateSourceScanner.scan(
+            "<#-- <#include \"a.yaml\"> --><#noparse><#include \"b.yaml\"></#noparse>");
+        assertThat(scanned.includedTemplateNames()).contains(Arrays.asList());
+    }
+
+    @Test
+    public void unterminatedTagsAreIncomplete() {
+        assertThat(TemplateSourceScanner.scan("a: ${env.A").isComplete()).isFalse();
+        assertThat(TemplateSourceScanner.scan("<#if a").isComplete()).isFalse();
+    }
+
+    @Test
+    public void squareBracketSyntaxIsIncomplete() {
+        assertThat(TemplateSourceScanner.scan("[#ftl]\n[#include \"a.yaml\"]").isComplete()).isFalse();
+    }
+
+    @Test
+    public void resolveTemplateName() {
+        assertThat(TemplateSourceScanner.resolveTemplateName("config", "database.yaml")).contains("database.yaml");
+        assertThat(TemplateSourceScanner.resolveTemplateName("db/main.yaml", "pool.yaml")).contains("db/pool.yaml");
+        assertThat(TemplateSourceScanner.resolveTemplateName("db/main.yaml", "/pool.yaml")).contains("pool.yaml");
+        assertThat(TemplateSourceScanner.resolveTemplateName("db/main.yaml", "../a/./b.yaml")).contains("a/b.yaml");
+        assertThat(TemplateSourceScanner.resolveTemplateName("config", "../b.yaml")).isEmpty();
+        assertThat(TemplateSourceScanner.resolveTemplateName("config", "*/b.yaml")).isEmpty();
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.expediagroup.dropwizard.bundle.configuration.freemarker;
+
+import io.dropwizard.Application;
+import io.dropwizard.Configuration;
+import io.dropwizard.setup.Bootstrap;
+import io.dropwizard.setup.Environment;
+
+public class TestApplication extends Application<Configuration> {
+
+    public static Bootstrap<Configuration> bootstrap() {
+        Bootstrap<Configuration> bootstrap = new Bootstrap<>(new TestApplication());
+        bootstrap.setConfigurationSourceProvider(new TestConfigSourceProvider());
+        return bootstrap;
+    }
+
+    @Override
+    public void run(final Configuration configuration, final Environment environment) {
+    }
+
+}